@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Задержка записи с подписчиками лент изменений и без них. Приложение поднимается дважды: без подписчиков
+ * и с {@code subscribers} открытыми потоками {@code /films/changes} и {@code /users/changes}, каждый десятый
+ * из которых ничего не читает. Нагрузка - только запросы на запись: создание и замена фильмов,
+ * создание пользователей, лайки. Публикация в ленту не ждёт подписчиков, поэтому задержки должны совпасть.
+ * <p>
+ * Запуск: {@code mvn -P benchmark test-compile exec:exec@change-feed-harness}, параметры
+ * {@code -Dharness.subscribers}, {@code -Dharness.writers}, {@code -Dharness.seconds}, {@code -Dharness.warmup}.
+ */
+public final class ChangeFeedHarness {
+
+    private static final int SEEDED = 1_000;
+    private static final int SLOW_EVERY = 10;
+    private static final AtomicLong EMAIL_SEQUENCE = new AtomicLong();
+
+    private ChangeFeedHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int subscribers = Integer.getInteger("harness.subscribers", 1_000);
+        int writers = Integer.getInteger("harness.writers", 64);
+        int seconds = Integer.getInteger("harness.seconds", 20);
+        int warmup = Integer.getInteger("harness.warmup", 5);
+
+        LoadHarness.Result alone = run(0, writers, warmup, seconds);
+        LoadHarness.Result subscribed = run(subscribers, writers, warmup, seconds);
+
+        System.out.printf("%n%d клиентов записи, %d с замера%n", writers, seconds);
+        System.out.printf("%-10s %12s %10s %10s %10s%n", "подписчики", "запросов/с", "p50, мс", "p99, мс", "ошибки");
+        alone.print("0");
+        subscribed.print(Integer.toString(subscribers));
+    }
+
+    private static LoadHarness.Result run(int subscribers, int writers, int warmup, int seconds) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=true",
+                "--logging.level.root=WARN",
+                "--logging.level.ru.yandex.practicum.filmorate=WARN");
+        AtomicLong delivered = new AtomicLong();
+        try (ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(readers)
+                     .build()) {
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                URI base = URI.create("http://localhost:" + port);
+                seed(http, base);
+                subscribe(http, base, subscribers, readers, delivered);
+                LoadHarness.drive(base, writers, warmup, ChangeFeedHarness::write);
+                LoadHarness.Result result = LoadHarness.drive(base, writers, seconds, ChangeFeedHarness::write);
+                if (subscribers > 0) {
+                    System.out.printf("Подписчикам доставлено событий: %d%n", delivered.get());
+                }
+                return result;
+            } finally {
+                context.close();
+                // непрочитанные ленты не закончатся сами, а закрытие клиента ждёт все открытые ответы
+                http.shutdownNow();
+            }
+        }
+    }
+
+    private static void seed(HttpClient http, URI base) throws IOException, InterruptedException {
+        StringJoiner films = new StringJoiner(",", "[", "]");
+        StringJoiner users = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < SEEDED; i++) {
+            films.add(film(i));
+            users.add(user());
+        }
+        http.send(LoadHarness.post(base, "/films/batch", films.toString()), HttpResponse.BodyHandlers.discarding());
+        http.send(LoadHarness.post(base, "/users/batch", users.toString()), HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * Открывает ленты и дожидается ответа на каждую подписку. Читающие подписчики разбирают поток построчно
+     * в своих виртуальных потоках, остальные держат соединение и не читают, пока не переполнятся буферы сокета.
+     */
+    private static void subscribe(HttpClient http, URI base, int subscribers, ExecutorService readers,
+                                  AtomicLong delivered) {
+        List<CompletableFuture<HttpResponse<InputStream>>> responses = new ArrayList<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            String path = i % 2 == 0 ? "/films/changes" : "/users/changes";
+            HttpRequest request = HttpRequest.newBuilder(base.resolve(path))
+                    .header("Accept", "text/event-stream")
+                    .GET()
+                    .build();
+            responses.add(http.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()));
+        }
+        for (int i = 0; i < subscribers; i++) {
+            HttpResponse<InputStream> response = responses.get(i).join();
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Подписка на ленту отклонена: " + response.statusCode());
+            }
+            if (i % SLOW_EVERY != 0) {
+                readers.submit(() -> read(response.body(), delivered));
+            }
+        }
+    }
+
+    private static void read(InputStream body, AtomicLong delivered) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("id:")) {
+                    delivered.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            // приложение остановлено
+        }
+    }
+
+    private static HttpRequest write(URI base, Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> LoadHarness.post(base, "/films", film(random.nextInt(1_000_000)));
+            case 1 -> LoadHarness.put(base, "/films", film(random.nextInt(1_000_000))
+                    .replace("{", "{\"id\":" + (random.nextInt(SEEDED) + 1) + ","));
+            case 2 -> LoadHarness.post(base, "/users", user());
+            default -> LoadHarness.put(base, "/films/" + (random.nextInt(SEEDED) + 1)
+                    + "/like/" + (random.nextInt(SEEDED) + 1), "");
+        };
+    }
+
+    private static String film(int number) {
+        return """
+                {"name":"Фильм %d","description":"Нагрузка","releaseDate":"2000-01-01","duration":100}"""
+                .formatted(number);
+    }
+
+    private static String user() {
+        return """
+                {"email":"feed%d@mail.ru","login":"feed","birthday":"1990-01-01"}"""
+                .formatted(EMAIL_SEQUENCE.incrementAndGet());
+    }
+}
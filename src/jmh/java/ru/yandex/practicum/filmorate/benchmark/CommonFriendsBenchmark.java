@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пересечение списков друзей: отсортированные массивы против {@code HashSet<Long>}, который
+ * хранилище использовало раньше. {@code otherFriends} задаёт перекос размеров, при котором
+ * слияние сменяется двоичным поиском.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFriendsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    @Param({"100", "10000"})
+    private int otherFriends;
+
+    private long[] friends;
+    private long[] otherIds;
+    private Set<Long> friendsSet;
+    private Set<Long> otherSet;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        friends = randomIds(random, size, size * 4L);
+        otherIds = randomIds(random, otherFriends, size * 4L);
+        friendsSet = toSet(friends);
+        otherSet = toSet(otherIds);
+    }
+
+    @Benchmark
+    public long[] sortedArrays() {
+        return SortedLongArrays.intersect(friends, otherIds);
+    }
+
+    @Benchmark
+    public Set<Long> hashSets() {
+        Set<Long> smaller = friendsSet.size() <= otherSet.size() ? friendsSet : otherSet;
+        Set<Long> larger = smaller == friendsSet ? otherSet : friendsSet;
+        Set<Long> common = new HashSet<>();
+        for (Long id : smaller) {
+            if (larger.contains(id)) {
+                common.add(id);
+            }
+        }
+        return common;
+    }
+
+    private static long[] randomIds(Random random, int count, long bound) {
+        Set<Long> seen = new HashSet<>();
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            long id = 1 + (long) (random.nextDouble() * bound);
+            if (seen.add(id)) {
+                ids[filled++] = id;
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> set = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.storage.EmailIndex;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Резервирование и освобождение email восемью потоками. При {@code hotEmails} адресов мало
+ * и потоки борются за одни и те же ключи.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class EmailIndexBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    @Param({"16", "1000000"})
+    private int hotEmails;
+
+    private final EmailIndex emailIndex = new EmailIndex();
+
+    @Setup
+    public void fill() {
+        for (int i = 0; i < size; i++) {
+            emailIndex.reserve("taken" + i + "@mail.ru", i + 1);
+        }
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String email = "User" + random.nextInt(hotEmails) + "@Mail.ru";
+        long owner = size + 1 + random.nextInt(1_000_000);
+        try {
+            emailIndex.reserve(email, owner);
+        } catch (DuplicateException e) {
+            return false;
+        }
+        emailIndex.release(email, owner);
+        return true;
+    }
+
+    @Benchmark
+    public boolean isTaken() {
+        return emailIndex.isTaken("TAKEN" + ThreadLocalRandom.current().nextInt(size) + "@mail.ru");
+    }
+}
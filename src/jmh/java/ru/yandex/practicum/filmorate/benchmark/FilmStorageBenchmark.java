@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции хранилища фильмов на заполненном каталоге. Создание меряется на свежем хранилище
+ * каждой итерации, чтобы каталог не разрастался от итерации к итерации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class FilmStorageBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private InMemoryFilmStorage storage;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        storage = Fixtures.filmStorage(size);
+    }
+
+    @Benchmark
+    public Optional<Film> findById() {
+        return storage.findById(ThreadLocalRandom.current().nextLong(1, size + 1));
+    }
+
+    @Benchmark
+    public List<Film> findPage() {
+        return storage.findPage(ThreadLocalRandom.current().nextLong(size), 100);
+    }
+
+    @Benchmark
+    public Film create() {
+        return storage.create(Fixtures.film(ThreadLocalRandom.current().nextLong(size)));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Film createContended() {
+        return storage.create(Fixtures.film(ThreadLocalRandom.current().nextLong(size)));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Film updateContended() {
+        long id = ThreadLocalRandom.current().nextLong(1, size + 1);
+        Film film = Fixtures.film(id + 1);
+        film.setId(id);
+        return storage.update(film);
+    }
+}
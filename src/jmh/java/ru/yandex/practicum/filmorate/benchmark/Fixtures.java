@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Тестовые данные для бенчмарков. Данные детерминированы, чтобы прогоны разных сборок были сравнимы.
+ */
+final class Fixtures {
+
+    private static final String[] WORDS = {
+            "космос", "война", "любовь", "город", "ночь", "дорога", "время", "море",
+            "matrix", "star", "night", "river", "king", "ghost", "dream", "world"
+    };
+
+    private Fixtures() {
+    }
+
+    static Film film(long seed) {
+        Film film = new Film();
+        film.setName(WORDS[(int) (seed % WORDS.length)] + " " + WORDS[(int) (seed / WORDS.length % WORDS.length)]
+                + " " + seed);
+        film.setDescription("Описание фильма " + seed + ": " + WORDS[(int) (seed * 7 % WORDS.length)]);
+        film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(seed % 27_000));
+        film.setDuration(60 + (int) (seed % 120));
+        return film;
+    }
+
+    static User user(long seed) {
+        return new User(null, "user" + seed + "@mail.ru", "login" + seed, "Пользователь " + seed,
+                LocalDate.of(1970, 1, 1).plusDays(seed % 15_000));
+    }
+
+    /**
+     * Хранилище в той же конфигурации, что в приложении: без журнала, со всеми индексами фильмов.
+     */
+    static InMemoryFilmStorage filmStorage(int size) {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(JournalFactory.disabled(),
+                List.of(new FilmSearchIndex(), new FilmRangeIndex()));
+        for (int i = 0; i < size; i++) {
+            storage.create(film(i));
+        }
+        return storage;
+    }
+}
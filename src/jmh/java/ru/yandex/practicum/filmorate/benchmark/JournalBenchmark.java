@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал на диске: создание фильмов с ожиданием fsync и время запуска хранилища,
+ * то есть восстановления каталога из снимка и сегментов.
+ */
+public class JournalBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+    private static final long SNAPSHOT_EVERY = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Writes {
+
+        private Path dir;
+        private JournalFactory journalFactory;
+        private InMemoryFilmStorage storage;
+
+        @Setup
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("filmorate-journal");
+            journalFactory = new JournalFactory(true, dir, SNAPSHOT_EVERY, OBJECT_MAPPER);
+            storage = storage(journalFactory);
+        }
+
+        @TearDown
+        public void close() throws IOException {
+            journalFactory.close();
+            FileSystemUtils.deleteRecursively(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Catalogue {
+
+        @Param({"10000", "100000", "1000000"})
+        private int size;
+
+        private Path dir;
+
+        @Setup
+        public void write() throws IOException {
+            dir = Files.createTempDirectory("filmorate-journal");
+            JournalFactory journalFactory = new JournalFactory(true, dir, SNAPSHOT_EVERY, OBJECT_MAPPER);
+            InMemoryFilmStorage storage = storage(journalFactory);
+            for (int i = 0; i < size; i++) {
+                storage.create(Fixtures.film(i));
+            }
+            journalFactory.close();
+        }
+
+        @TearDown
+        public void delete() throws IOException {
+            FileSystemUtils.deleteRecursively(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @Threads(8)
+    public Film create(Writes writes) {
+        return writes.storage.create(Fixtures.film(ThreadLocalRandom.current().nextLong(1_000_000)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+    public int startup(Catalogue catalogue) {
+        JournalFactory journalFactory = new JournalFactory(true, catalogue.dir, SNAPSHOT_EVERY, OBJECT_MAPPER);
+        try {
+            return storage(journalFactory).size();
+        } finally {
+            journalFactory.close();
+        }
+    }
+
+    private static InMemoryFilmStorage storage(JournalFactory journalFactory) {
+        return new InMemoryFilmStorage(journalFactory, List.of(new FilmSearchIndex(), new FilmRangeIndex()));
+    }
+}
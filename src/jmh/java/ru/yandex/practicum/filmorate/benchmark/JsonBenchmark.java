@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация Jackson с теми же настройками, что у Spring MVC: ответ со всем каталогом,
+ * как у {@code GET /films}, и разбор одного фильма и пользователя из тела запроса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class JsonBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private ObjectWriter filmsWriter;
+    private ObjectWriter usersWriter;
+    private ObjectReader filmReader;
+    private ObjectReader userReader;
+    private List<Film> films;
+    private List<User> users;
+    private byte[] filmJson;
+    private byte[] userJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        filmsWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Film.class));
+        usersWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, User.class));
+        filmReader = objectMapper.readerFor(Film.class);
+        userReader = objectMapper.readerFor(User.class);
+        films = new ArrayList<>(size);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Film film = Fixtures.film(i);
+            film.setId(i + 1L);
+            films.add(film);
+            User user = Fixtures.user(i);
+            user.setId(i + 1L);
+            users.add(user);
+        }
+        filmJson = objectMapper.writeValueAsBytes(films.get(0));
+        userJson = objectMapper.writeValueAsBytes(users.get(0));
+    }
+
+    @Benchmark
+    public byte[] writeFilms() throws JsonProcessingException {
+        return filmsWriter.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    public byte[] writeUsers() throws JsonProcessingException {
+        return usersWriter.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Film readFilm() throws Exception {
+        return filmReader.readValue(filmJson);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public User readUser() throws Exception {
+        return userReader.readValue(userJson);
+    }
+}
@@ -0,0 +1,223 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Нагрузочный прогон {@code /films} и {@code /users}: приложение поднимается дважды, на потоках Tomcat
+ * и на виртуальных, и каждое получает одинаковую нагрузку от {@code connections} параллельных клиентов.
+ * Журнал включён, поэтому запросы на запись ждут fsync - именно такое ожидание ограничивает пул потоков.
+ * <p>
+ * Запуск: {@code mvn -P benchmark test-compile exec:exec@load-harness}, параметры
+ * {@code -Dharness.connections}, {@code -Dharness.seconds}, {@code -Dharness.warmup}.
+ */
+public final class LoadHarness {
+
+    private static final long SEED = 42;
+    private static final AtomicLong EMAIL_SEQUENCE = new AtomicLong();
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = Integer.getInteger("harness.connections", 2_000);
+        int seconds = Integer.getInteger("harness.seconds", 20);
+        int warmup = Integer.getInteger("harness.warmup", 5);
+
+        Result platform = run(false, connections, warmup, seconds);
+        Result virtual = run(true, connections, warmup, seconds);
+
+        System.out.printf("%n%d соединений, %d с замера%n", connections, seconds);
+        System.out.printf("%-10s %12s %10s %10s %10s%n", "потоки", "запросов/с", "p50, мс", "p99, мс", "ошибки");
+        platform.print("platform");
+        virtual.print("virtual");
+    }
+
+    private static Result run(boolean virtualThreads, int connections, int warmup, int seconds)
+            throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("filmorate-load");
+        ConfigurableApplicationContext context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--filmorate.persistence.enabled=true",
+                "--filmorate.persistence.dir=" + dir,
+                "--logging.level.root=WARN",
+                "--logging.level.ru.yandex.practicum.filmorate=WARN");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI base = URI.create("http://localhost:" + port);
+            drive(base, connections, warmup, LoadHarness::next);
+            return drive(base, connections, seconds, LoadHarness::next);
+        } finally {
+            context.close();
+            FileSystemUtils.deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Смешанная нагрузка: создание фильмов и пользователей и чтение страниц списков.
+     */
+    private static HttpRequest next(URI base, Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> post(base, "/films", """
+                    {"name":"Фильм %d","description":"Нагрузка","releaseDate":"2000-01-01","duration":100}"""
+                    .formatted(random.nextInt(1_000_000)));
+            case 1 -> post(base, "/users", """
+                    {"email":"load%d@mail.ru","login":"load","birthday":"1990-01-01"}"""
+                    .formatted(EMAIL_SEQUENCE.incrementAndGet()));
+            case 2 -> get(base, "/films?after=" + random.nextInt(1_000) + "&limit=20");
+            default -> get(base, "/users?after=" + random.nextInt(1_000) + "&limit=20");
+        };
+    }
+
+    static HttpRequest post(URI base, String path, String body) {
+        return send(base, path, "POST", body);
+    }
+
+    static HttpRequest put(URI base, String path, String body) {
+        return send(base, path, "PUT", body);
+    }
+
+    static HttpRequest get(URI base, String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).GET().build();
+    }
+
+    private static HttpRequest send(URI base, String path, String method, String body) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Гоняет {@code connections} параллельных клиентов, каждый шлёт запросы {@code workload} один за другим.
+     */
+    static Result drive(URI base, int connections, int seconds, BiFunction<URI, Random, HttpRequest> workload)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Future<Worker>> futures = new ArrayList<>(connections);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .build()) {
+            for (int i = 0; i < connections; i++) {
+                Worker worker = new Worker(http, base, workload, new Random(SEED + i), deadline);
+                futures.add(clients.submit(worker::run));
+            }
+            List<Worker> workers = new ArrayList<>(connections);
+            for (Future<Worker> future : futures) {
+                try {
+                    workers.add(future.get());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Клиент нагрузки завершился с ошибкой", e);
+                }
+            }
+            return Result.of(workers, seconds);
+        }
+    }
+
+    /**
+     * Один клиент: шлёт запросы нагрузки по одному и запоминает задержку каждого.
+     */
+    private static final class Worker {
+
+        private final HttpClient http;
+        private final URI base;
+        private final BiFunction<URI, Random, HttpRequest> workload;
+        private final Random random;
+        private final long deadline;
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        private Worker(HttpClient http, URI base, BiFunction<URI, Random, HttpRequest> workload, Random random,
+                       long deadline) {
+            this.http = http;
+            this.base = base;
+            this.workload = workload;
+            this.random = random;
+            this.deadline = deadline;
+        }
+
+        private Worker run() {
+            while (System.nanoTime() < deadline) {
+                HttpRequest request = workload.apply(base, random);
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        errors++;
+                    }
+                } catch (IOException e) {
+                    errors++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                record(System.nanoTime() - start);
+            }
+            return this;
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+
+    record Result(double throughput, double p50Millis, double p99Millis, long errors) {
+
+        static Result of(List<Worker> workers, int seconds) {
+            int total = 0;
+            long errors = 0;
+            for (Worker worker : workers) {
+                total += worker.count;
+                errors += worker.errors;
+            }
+            long[] latencies = new long[total];
+            int position = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies, 0, latencies, position, worker.count);
+                position += worker.count;
+            }
+            Arrays.sort(latencies);
+            return new Result((double) total / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99), errors);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+
+        void print(String label) {
+            System.out.printf("%-10s %12.0f %10.2f %10.2f %10d%n", label, throughput, p50Millis, p99Millis, errors);
+        }
+    }
+}
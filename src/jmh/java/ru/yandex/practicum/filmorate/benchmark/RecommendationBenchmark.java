@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.recommendation.FilmRecommender;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации на матрице {@code users} × {@code films} с {@code likesPerUser} лайками на пользователя
+ * и перекосом популярности: расчёт с нуля, ответ из кэша и пересборка после лайка соседа, когда
+ * счётчики общих лайков уже в кэше и меняются на месте.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class RecommendationBenchmark {
+
+    private static final int HOT_USERS = 1_000;
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"1000000"})
+    private int films;
+
+    @Param({"20"})
+    private int likesPerUser;
+
+    /**
+     * Кэш на одного пользователя: запрос случайного пользователя считается заново.
+     */
+    private FilmRecommender uncached;
+    private FilmRecommender cached;
+    private final LongHashSet[] hotLikes = new LongHashSet[HOT_USERS + 1];
+    private final SplittableRandom likes = new SplittableRandom(7);
+
+    @Setup
+    public void setup() {
+        uncached = new FilmRecommender(50, 0, new SimpleMeterRegistry());
+        cached = new FilmRecommender(50, Long.MAX_VALUE, new SimpleMeterRegistry());
+        Random random = new Random(42);
+        for (int userId = 1; userId <= users; userId++) {
+            LongHashSet liked = new LongHashSet();
+            while (liked.size() < likesPerUser) {
+                long filmId = film(random.nextDouble());
+                if (liked.add(filmId)) {
+                    uncached.update(filmId, userId, true);
+                    cached.update(filmId, userId, true);
+                }
+            }
+            if (userId <= HOT_USERS) {
+                hotLikes[userId] = liked;
+            }
+        }
+        for (long userId = 1; userId <= HOT_USERS; userId++) {
+            cached.recommend(userId, 10);
+        }
+    }
+
+    @Benchmark
+    public long[] computeFromScratch() {
+        return uncached.recommend(ThreadLocalRandom.current().nextLong(1, users + 1), 10);
+    }
+
+    @Benchmark
+    public long[] cachedHit() {
+        return cached.recommend(ThreadLocalRandom.current().nextLong(1, HOT_USERS + 1), 10);
+    }
+
+    /**
+     * Пользователь из кэша лайкает фильм, которого ещё не лайкал, и снимает лайк: его счётчики с лайкнувшими
+     * фильм меняются на месте, а список пересобирается без обхода всех его лайков.
+     */
+    @Benchmark
+    public long[] likeThenRecommend() {
+        return likeThenRecommend(cached);
+    }
+
+    /**
+     * То же без кэша: после лайка рекомендации считаются с нуля.
+     */
+    @Benchmark
+    public long[] likeThenRecompute() {
+        return likeThenRecommend(uncached);
+    }
+
+    private long[] likeThenRecommend(FilmRecommender recommender) {
+        int userId = likes.nextInt(1, HOT_USERS + 1);
+        long filmId;
+        do {
+            filmId = film(likes.nextDouble());
+        } while (hotLikes[userId].contains(filmId));
+        recommender.update(filmId, userId, true);
+        long[] recommended = recommender.recommend(userId, 10);
+        recommender.update(filmId, userId, false);
+        return recommended;
+    }
+
+    private long film(double uniform) {
+        // куб равномерного: около 1% лайков у первых 0,0001% фильмов
+        return 1 + (long) (films * uniform * uniform * uniform);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.controllers.JsonResponseCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ {@code GET /films} со страницей фильмов: сериализация на каждый запрос против готовых байтов из кэша.
+ * Выделение памяти на операцию показывает профилировщик {@code -prof gc} (метрика gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ResponseCacheBenchmark {
+
+    private static final int CATALOGUE_SIZE = 10_000;
+
+    @Param({"1", "100", "1000"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private InMemoryFilmStorage storage;
+    private JsonResponseCache cache;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        storage = Fixtures.filmStorage(CATALOGUE_SIZE);
+        cache = new JsonResponseCache(objectMapper, 64 * 1024 * 1024, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public byte[] serializeEachRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page());
+    }
+
+    @Benchmark
+    public byte[] cachedBytes() {
+        return cache.get("films?after=0&limit=" + pageSize, storage.version(), this::page);
+    }
+
+    private List<Film> page() {
+        return storage.findPage(0, pageSize);
+    }
+}
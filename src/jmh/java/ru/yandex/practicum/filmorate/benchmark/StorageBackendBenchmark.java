@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EmailIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пропускная способность хранилищ memory и jdbc на одном каталоге: чтение по id и по ключу страницы,
+ * одиночное и пакетное создание фильмов, создание пользователей с проверкой email. База jdbc - H2 в памяти
+ * с тем же пулом Hikari и кешем выражений, что в приложении, так что разница - цена SQL и JDBC, а не диска.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class StorageBackendBenchmark {
+
+    private static final int BATCH = 100;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @Param({"memory", "jdbc"})
+    private String backend;
+
+    @Param({"100000"})
+    private int size;
+
+    private FilmStorage films;
+    private UserStorage users;
+    private HikariDataSource dataSource;
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        if (backend.equals("jdbc")) {
+            dataSource = new HikariDataSource();
+            // своя база на итерацию: она исчезает, когда пул закрывает последнее соединение
+            dataSource.setJdbcUrl("jdbc:h2:mem:benchmark-" + DATABASES.incrementAndGet() + ";QUERY_CACHE_SIZE=64");
+            dataSource.setMaximumPoolSize(10);
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            films = new JdbcFilmStorage(dataSource, List.of(new FilmSearchIndex(), new FilmRangeIndex()));
+            users = new JdbcUserStorage(dataSource);
+        } else {
+            films = new InMemoryFilmStorage(JournalFactory.disabled(), List.of(new FilmSearchIndex(), new FilmRangeIndex()));
+            users = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+        }
+        for (int i = 0; i < size; i += BATCH) {
+            films.createAll(filmBatch(i));
+        }
+        for (int i = 0; i < size; i++) {
+            users.create(Fixtures.user(i));
+        }
+        emailSequence.set(size);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<Film> findById() {
+        return films.findById(ThreadLocalRandom.current().nextLong(1, size + 1));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<Film> findPage() {
+        return films.findPage(ThreadLocalRandom.current().nextLong(size), 100);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Film createFilm() {
+        return films.create(Fixtures.film(ThreadLocalRandom.current().nextLong(size)));
+    }
+
+    @Benchmark
+    public List<Film> createFilmBatch() {
+        return films.createAll(filmBatch(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User createUser() {
+        return users.create(Fixtures.user(emailSequence.getAndIncrement()));
+    }
+
+    private static List<Film> filmBatch(int seed) {
+        List<Film> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(Fixtures.film(seed + i));
+        }
+        return batch;
+    }
+}
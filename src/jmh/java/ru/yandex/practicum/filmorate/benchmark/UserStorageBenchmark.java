@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EmailIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Хранилище пользователей и индекс email под конкуренцией: создание с уникальными адресами
+ * и смена адреса, где часть попыток упирается в занятый email.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class UserStorageBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private InMemoryUserStorage storage;
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        storage = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+        for (int i = 0; i < size; i++) {
+            storage.create(Fixtures.user(i));
+        }
+        emailSequence.set(size);
+    }
+
+    @Benchmark
+    public Optional<User> findById() {
+        return storage.findById(ThreadLocalRandom.current().nextLong(1, size + 1));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User createContended() {
+        return storage.create(Fixtures.user(emailSequence.getAndIncrement()));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean changeEmailContended() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        User user = Fixtures.user(random.nextLong(size * 2L));
+        user.setId(random.nextLong(1, size + 1));
+        try {
+            storage.update(user);
+            return true;
+        } catch (DuplicateException e) {
+            return false;
+        }
+    }
+}
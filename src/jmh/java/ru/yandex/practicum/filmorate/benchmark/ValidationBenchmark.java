@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.validations.FilmReleaseDateValidator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка даты релиза отдельно и полная валидация каталога фильмов, как при пакетной загрузке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class ValidationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private final FilmReleaseDateValidator releaseDateValidator = new FilmReleaseDateValidator();
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private List<Film> films;
+    private LocalDate[] releaseDates;
+
+    @Setup
+    public void setup() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        films = new ArrayList<>(size);
+        releaseDates = new LocalDate[size];
+        for (int i = 0; i < size; i++) {
+            films.add(Fixtures.film(i));
+            // каждая сотая дата раньше допустимой
+            releaseDates[i] = i % 100 == 0 ? LocalDate.of(1890, 1, 1) : films.get(i).getReleaseDate();
+        }
+    }
+
+    @TearDown
+    public void close() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public int releaseDateValidator() {
+        int valid = 0;
+        for (LocalDate releaseDate : releaseDates) {
+            if (releaseDateValidator.isValid(releaseDate, null)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int validateCatalogue() {
+        int violations = 0;
+        for (Film film : films) {
+            Set<ConstraintViolation<Film>> result = validator.validate(film);
+            violations += result.size();
+        }
+        return violations;
+    }
+}
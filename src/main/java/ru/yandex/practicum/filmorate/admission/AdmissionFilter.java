@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import ru.yandex.practicum.filmorate.cluster.ClusterPeers;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.exceptions.TooManyRequestsException;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Допуск запросов до контроллеров. У каждого клиента две корзины токенов, на чтение и на запись,
+ * так что активный импорт не отнимает у того же клиента чтение. Сверх лимита клиент получает 429.
+ * Кроме того, число запросов в работе ограничено {@code filmorate.admission.max-in-flight}: когда сервер
+ * уже занят ими, лишние сразу получают 503, а не ждут в очереди и не растягивают задержку остальным.
+ * В обоих случаях есть {@code Retry-After}; тело ошибки собирает {@code GlobalExceptionHandler}.
+ * <p>
+ * Клиент определяется заголовком {@code filmorate.admission.client-header}, если он задан и пришёл, иначе адресом.
+ * Запросы от других узлов кластера ({@link ClusterPeers}) корзин не расходуют: их уже посчитал принявший узел.
+ * Заголовок пересылки без секрета кластера от лимита не освобождает. Actuator не ограничивается.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@ConditionalOnProperty(name = "filmorate.admission.enabled", havingValue = "true")
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final long OVERLOADED_RETRY_AFTER_SECONDS = 1;
+
+    private final ClientBuckets reads;
+    private final ClientBuckets writes;
+    private final int maxInFlight;
+    private final String clientHeader;
+    private final ClusterPeers peers;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AdmissionFilter(@Value("${filmorate.admission.read.rate}") double readRate,
+                           @Value("${filmorate.admission.read.burst}") int readBurst,
+                           @Value("${filmorate.admission.write.rate}") double writeRate,
+                           @Value("${filmorate.admission.write.burst}") int writeBurst,
+                           @Value("${filmorate.admission.max-clients}") int maxClients,
+                           @Value("${filmorate.admission.max-in-flight}") int maxInFlight,
+                           @Value("${filmorate.admission.client-header}") String clientHeader,
+                           ClusterPeers peers,
+                           @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+                           MeterRegistry registry) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Предел запросов в работе должен быть положительным: " + maxInFlight);
+        }
+        this.reads = new ClientBuckets(readRate, readBurst, maxClients, System::nanoTime);
+        this.writes = new ClientBuckets(writeRate, writeBurst, maxClients, System::nanoTime);
+        this.maxInFlight = maxInFlight;
+        this.clientHeader = clientHeader.isBlank() ? null : clientHeader;
+        this.peers = peers;
+        this.exceptionResolver = exceptionResolver;
+        Gauge.builder("filmorate.admission.in_flight", inFlight, AtomicInteger::get)
+                .description("Запросы в работе")
+                .register(registry);
+        Gauge.builder("filmorate.admission.clients", reads, ClientBuckets::size)
+                .description("Клиенты с корзиной токенов")
+                .tag("kind", "read")
+                .register(registry);
+        Gauge.builder("filmorate.admission.clients", writes, ClientBuckets::size)
+                .description("Клиенты с корзиной токенов")
+                .tag("kind", "write")
+                .register(registry);
+        log.info("Допуск запросов: чтение {}/с (до {} подряд), запись {}/с (до {} подряд), в работе до {}",
+                readRate, readBurst, writeRate, writeBurst, maxInFlight);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            reject(request, response, new OverloadedException("Сервер перегружен, повторите запрос позже",
+                    OVERLOADED_RETRY_AFTER_SECONDS));
+            return;
+        }
+        try {
+            long wait = !peers.isPeer(request) ? bucketsFor(request).tryAcquire(clientOf(request)) : 0;
+            if (wait > 0) {
+                reject(request, response, new TooManyRequestsException("Превышен лимит запросов клиента",
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1))));
+                return;
+            }
+            chain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private ClientBuckets bucketsFor(HttpServletRequest request) {
+        return READ_METHODS.contains(request.getMethod()) ? reads : writes;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String client = clientHeader == null ? null : request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, RuntimeException e) {
+        log.debug("Запрос {} {} отклонён: {}", request.getMethod(), request.getRequestURI(), e.getMessage());
+        exceptionResolver.resolveException(request, response, null, e);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Корзины токенов по клиентам. Корзина хранится одним числом - расчётным временем следующего запроса (GCRA):
+ * запрос проходит, если это время опережает текущее не больше чем на объём корзины, и сдвигает его на интервал
+ * между токенами. Поэтому проверка - одна операция CAS без блокировок.
+ * <p>
+ * Число клиентов ограничено {@code maxClients}. При переполнении удаляются полные корзины - их время
+ * уже прошло, и новая корзина ничем от них не отличается. Поиск полных корзин перебирает всю карту,
+ * поэтому запускается не чаще раза за интервал между токенами: быстрее ни одна корзина не наполнится
+ * на токен. Если свободного места нет, новые клиенты делят одну общую корзину, пока оно не освободится.
+ */
+final class ClientBuckets {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private volatile long nextEvictionNanos;
+
+    /**
+     * @param ratePerSecond скорость пополнения корзины
+     * @param burst         объём корзины: столько запросов подряд проходит у клиента, который долго молчал
+     */
+    ClientBuckets(double ratePerSecond, int burst, int maxClients, LongSupplier clock) {
+        if (ratePerSecond <= 0 || burst <= 0 || maxClients <= 0) {
+            throw new IllegalArgumentException("Скорость, объём корзины и число клиентов должны быть положительными");
+        }
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000 / ratePerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        this.maxClients = maxClients;
+        this.clock = clock;
+        // корзины, созданные позже, наполнятся не раньше чем через интервал
+        this.nextEvictionNanos = clock.getAsLong() + intervalNanos;
+    }
+
+    /**
+     * @return 0, если запрос проходит, иначе сколько наносекунд ждать до следующего токена
+     */
+    long tryAcquire(String client) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = bucket(client, now);
+        while (true) {
+            long current = bucket.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucket(String client, long now) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            evictFull(now);
+            if (buckets.size() >= maxClients) {
+                return overflow;
+            }
+        }
+        bucket = new AtomicLong(Long.MIN_VALUE);
+        AtomicLong existing = buckets.putIfAbsent(client, bucket);
+        return existing == null ? bucket : existing;
+    }
+
+    /**
+     * Чистит один поток, остальные тем временем пользуются общей корзиной. Клиент, чья корзина удалена
+     * между чтением и CAS, получит один лишний запрос - это дешевле блокировки.
+     */
+    private void evictFull(long now) {
+        if (now - nextEvictionNanos < 0 || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            nextEvictionNanos = now + intervalNanos;
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.exceptions.PeerUnavailableException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * HTTP-клиент для обращений к другим узлам кластера. Каждый запрос помечается заголовком
+ * {@link #FORWARDED_HEADER} с секретом кластера ({@link ClusterPeers}): узел-получатель обрабатывает его сам
+ * и дальше не пересылает.
+ * Нет ответа за {@code filmorate.cluster.timeout} - {@link PeerUnavailableException}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ClusterClient {
+
+    public static final String FORWARDED_HEADER = "X-Filmorate-Forwarded";
+    public static final String INTERNAL_PATH = "/internal/cluster";
+
+    // заголовки, которые HttpClient выставляет сам и не даёт задать
+    private static final Set<String> RESTRICTED_HEADERS =
+            Set.of("connection", "content-length", "expect", "host", "upgrade", "transfer-encoding");
+
+    private static final TypeReference<List<User>> USERS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<RankedFilm>> RANKED_FILMS = new TypeReference<>() {
+    };
+    private static final TypeReference<long[]> IDS = new TypeReference<>() {
+    };
+    private static final TypeReference<Boolean> FLAG = new TypeReference<>() {
+    };
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final String token;
+
+    public ClusterClient(ObjectMapper objectMapper, ClusterPeers peers,
+                         @Value("${filmorate.cluster.timeout}") Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.token = peers.token();
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Отправляет запрос узлу как есть, не разбирая ответ.
+     *
+     * @param pathAndQuery путь с параметрами, начинается с {@code /}
+     * @param headers      заголовки исходного запроса; служебные пропускаются
+     */
+    public CompletableFuture<HttpResponse<byte[]>> send(URI node, String method, String pathAndQuery,
+                                                        Map<String, List<String>> headers, byte[] body) {
+        return httpClient.sendAsync(request(node, method, pathAndQuery, headers, body),
+                HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Как {@link #send}, но тело ответа читается потоком по мере поступления. Поток нужно закрыть.
+     */
+    public CompletableFuture<HttpResponse<InputStream>> stream(URI node, String pathAndQuery,
+                                                               Map<String, List<String>> headers) {
+        return httpClient.sendAsync(request(node, "GET", pathAndQuery, headers, null),
+                HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * Ждёт ответа, превращая сбой связи в {@link PeerUnavailableException}.
+     */
+    public static <T> HttpResponse<T> await(URI node, CompletableFuture<HttpResponse<T>> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            log.warn("Узел {} недоступен: {}", node, e.getCause().toString());
+            throw new PeerUnavailableException("Узел кластера " + node + " недоступен", e.getCause());
+        }
+    }
+
+    public void reserveEmail(URI home, String email, long userId) {
+        HttpResponse<byte[]> response = call(home, "PUT", emailPath(email, userId));
+        if (response.statusCode() == HttpStatus.CONFLICT.value()) {
+            throw new DuplicateException("Email уже используется");
+        }
+        requireSuccess(home, response);
+    }
+
+    public void releaseEmail(URI home, String email, long userId) {
+        requireSuccess(home, call(home, "DELETE", emailPath(email, userId)));
+    }
+
+    public boolean isEmailTaken(URI home, String email) {
+        HttpResponse<byte[]> response = call(home, "GET",
+                INTERNAL_PATH + "/emails?email=" + URLEncoder.encode(email, StandardCharsets.UTF_8));
+        return read(home, response, FLAG);
+    }
+
+    /**
+     * Пользователи узла с заданными id; отсутствующие пропускаются.
+     */
+    public List<User> findUsers(URI owner, long[] ids) {
+        String joined = LongStream.of(ids).mapToObj(Long::toString).collect(Collectors.joining(","));
+        return read(owner, call(owner, "GET", INTERNAL_PATH + "/users?ids=" + joined), USERS);
+    }
+
+    public long[] findFriendIds(URI owner, long userId) {
+        return read(owner, call(owner, "GET", INTERNAL_PATH + "/users/" + userId + "/friends"), IDS);
+    }
+
+    /**
+     * Повторяет изменение дружбы на узле-владельце {@code userId}, чтобы его список друзей был полным.
+     */
+    public void mirrorFriendship(URI owner, long userId, long friendId, boolean added) {
+        requireSuccess(owner, call(owner, added ? "PUT" : "DELETE",
+                INTERNAL_PATH + "/users/" + userId + "/friends/" + friendId));
+    }
+
+    public CompletableFuture<HttpResponse<byte[]>> findRanked(URI node, String pathAndQuery) {
+        return send(node, "GET", INTERNAL_PATH + pathAndQuery, Map.of(), null);
+    }
+
+    public List<RankedFilm> readRanked(URI node, HttpResponse<byte[]> response) {
+        return read(node, response, RANKED_FILMS);
+    }
+
+    private HttpRequest request(URI node, String method, String pathAndQuery, Map<String, List<String>> headers,
+                                byte[] body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(node.resolve(pathAndQuery))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, token)
+                .method(method, body == null || body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach((name, values) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase()) && !name.equalsIgnoreCase(FORWARDED_HEADER)) {
+                values.forEach(value -> request.header(name, value));
+            }
+        });
+        return request.build();
+    }
+
+    private HttpResponse<byte[]> call(URI node, String method, String pathAndQuery) {
+        return await(node, send(node, method, pathAndQuery, Map.of(), null));
+    }
+
+    private <T> T read(URI node, HttpResponse<byte[]> response, TypeReference<T> type) {
+        requireSuccess(node, response);
+        try {
+            return objectMapper.readValue(response.body(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Некорректный ответ узла " + node, e);
+        }
+    }
+
+    private static void requireSuccess(URI node, HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new PeerUnavailableException("Узел кластера " + node + " ответил статусом " + response.statusCode());
+        }
+    }
+
+    private static String emailPath(String email, long userId) {
+        return INTERNAL_PATH + "/emails?email=" + URLEncoder.encode(email, StandardCharsets.UTF_8) + "&userId=" + userId;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.controllers.FilmController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Служебные запросы между узлами кластера. Отвечают только данными этого узла и дальше не обращаются.
+ * Запросы без секрета кластера сюда не доходят: их отклоняет {@link ClusterRoutingFilter}.
+ */
+@RestController
+@RequestMapping(ClusterClient.INTERNAL_PATH)
+@Validated
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    private static final int MAX_IDS = 1000;
+
+    private final ClusterEmailIndex emailIndex;
+    private final UserStorage userStorage;
+    private final FriendStorage friendStorage;
+    private final FilmStorage filmStorage;
+    private final LikeStorage likeStorage;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmService filmService;
+
+    @PutMapping("/emails")
+    public void reserveEmail(@RequestParam String email, @RequestParam long userId) {
+        emailIndex.reserveHere(email, userId);
+    }
+
+    @DeleteMapping("/emails")
+    public void releaseEmail(@RequestParam String email, @RequestParam long userId) {
+        emailIndex.releaseHere(email, userId);
+    }
+
+    @GetMapping("/emails")
+    public boolean isEmailTaken(@RequestParam String email) {
+        return emailIndex.isTakenHere(email);
+    }
+
+    @GetMapping("/users")
+    public List<User> findUsers(@RequestParam long[] ids) {
+        List<User> users = new ArrayList<>(Math.min(ids.length, MAX_IDS));
+        for (int i = 0; i < ids.length && i < MAX_IDS; i++) {
+            userStorage.findById(ids[i]).ifPresent(users::add);
+        }
+        return users;
+    }
+
+    @GetMapping("/users/{id}/friends")
+    public long[] findFriendIds(@PathVariable long id) {
+        return friendStorage.findFriendIds(id);
+    }
+
+    @PutMapping("/users/{id}/friends/{friendId}")
+    public void addFriend(@PathVariable long id, @PathVariable long friendId) {
+        friendStorage.addFriend(id, friendId);
+    }
+
+    @DeleteMapping("/users/{id}/friends/{friendId}")
+    public void removeFriend(@PathVariable long id, @PathVariable long friendId) {
+        friendStorage.removeFriend(id, friendId);
+    }
+
+    /**
+     * Популярные фильмы узла с числом лайков: лайки хранятся у владельца фильма.
+     */
+    @GetMapping("/films/popular")
+    public List<RankedFilm> getPopular(@RequestParam(defaultValue = FilmController.DEFAULT_POPULAR_COUNT)
+                                       @Positive @Max(FilmController.MAX_PAGE_SIZE) int count) {
+        List<Film> films = filmService.getPopular(count);
+        List<RankedFilm> ranked = new ArrayList<>(films.size());
+        for (Film film : films) {
+            ranked.add(new RankedFilm(likeStorage.countLikes(film.getId()), film));
+        }
+        return ranked;
+    }
+
+    @GetMapping("/films/search")
+    public List<RankedFilm> search(@RequestParam @NotBlank String q,
+                                   @RequestParam(defaultValue = FilmController.DEFAULT_SEARCH_LIMIT)
+                                   @Positive @Max(FilmController.MAX_PAGE_SIZE) int limit) {
+        List<RankedFilm> ranked = new ArrayList<>(limit);
+        filmSearchIndex.searchScored(q, limit).forEach((id, score) ->
+                filmStorage.findById(id).ifPresent(film -> ranked.add(new RankedFilm(score, film))));
+        return ranked;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.PeerUnavailableException;
+import ru.yandex.practicum.filmorate.storage.EmailIndex;
+
+/**
+ * Индекс email на весь кластер. Каждый адрес закреплён за своим узлом ({@link ClusterTopology#isEmailHome}),
+ * и только этот узел решает, свободен ли адрес, - так два узла не могут одновременно выдать один email.
+ * Чужие адреса резервируются запросом к их узлу, свои - в локальной таблице.
+ * <p>
+ * Неудачное освобождение только пишется в лог: изменение пользователя уже применено,
+ * а адрес останется занятым, пока его не освободят повторно.
+ */
+@Slf4j
+@Component
+@Primary
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ClusterEmailIndex extends EmailIndex {
+
+    private final ClusterTopology topology;
+    private final ClusterClient clusterClient;
+
+    public ClusterEmailIndex(ClusterTopology topology, ClusterClient clusterClient) {
+        this.topology = topology;
+        this.clusterClient = clusterClient;
+    }
+
+    @Override
+    public void reserve(String email, long userId) {
+        if (email == null || topology.isEmailHome(email)) {
+            super.reserve(email, userId);
+            return;
+        }
+        clusterClient.reserveEmail(topology.emailHomeOf(email), email, userId);
+    }
+
+    @Override
+    public void release(String email, long userId) {
+        if (topology.isEmailHome(email)) {
+            super.release(email, userId);
+            return;
+        }
+        try {
+            clusterClient.releaseEmail(topology.emailHomeOf(email), email, userId);
+        } catch (PeerUnavailableException e) {
+            log.warn("Email {} пользователя с id:{} не освобождён: {}", email, userId, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isTaken(String email) {
+        return topology.isEmailHome(email) ? super.isTaken(email)
+                : clusterClient.isEmailTaken(topology.emailHomeOf(email), email);
+    }
+
+    /**
+     * Резервирование по запросу другого узла: адрес принадлежит этому узлу.
+     */
+    public void reserveHere(String email, long userId) {
+        super.reserve(email, userId);
+    }
+
+    public void releaseHere(String email, long userId) {
+        super.release(email, userId);
+    }
+
+    public boolean isTakenHere(String email) {
+        return super.isTaken(email);
+    }
+}
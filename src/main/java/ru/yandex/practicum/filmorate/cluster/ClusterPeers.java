@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Опознаёт запросы других узлов кластера. Узлы передают общий секрет {@code filmorate.cluster.secret}
+ * в заголовке {@link ClusterClient#FORWARDED_HEADER}; заголовок с другим значением ничего не даёт,
+ * запрос обрабатывается как клиентский. При выключенном кластере других узлов нет и запросов от них тоже.
+ */
+@Component
+public class ClusterPeers {
+
+    private final String secret;
+    private final byte[] secretBytes;
+
+    public ClusterPeers(@Value("${filmorate.cluster.enabled}") boolean enabled,
+                        @Value("${filmorate.cluster.secret}") String secret) {
+        if (enabled && secret.isBlank()) {
+            throw new IllegalStateException("Для кластерного режима задайте filmorate.cluster.secret");
+        }
+        this.secret = enabled ? secret : null;
+        this.secretBytes = enabled ? secret.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    public boolean isPeer(HttpServletRequest request) {
+        if (secretBytes == null) {
+            return false;
+        }
+        String token = request.getHeader(ClusterClient.FORWARDED_HEADER);
+        // сравнение за постоянное время: по времени ответа секрет не подобрать
+        return token != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), secretBytes);
+    }
+
+    /**
+     * Значение заголовка для запросов к другим узлам.
+     */
+    String token() {
+        return secret;
+    }
+}
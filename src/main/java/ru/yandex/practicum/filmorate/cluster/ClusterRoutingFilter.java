@@ -0,0 +1,407 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.controllers.FilmController;
+import ru.yandex.practicum.filmorate.exceptions.ErrorResponse;
+import ru.yandex.practicum.filmorate.exceptions.PeerUnavailableException;
+import ru.yandex.practicum.filmorate.util.CachedBodyRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Маршрутизация запросов в кластере:
+ * <ul>
+ *     <li>запросы к сущности ({@code /films/{id}/...}, {@code /users/{id}/...}, {@code PUT} с id в теле)
+ *     пересылаются узлу-владельцу id;</li>
+ *     <li>списки ({@code GET /films}, {@code GET /users}, в том числе страницы, фильтры и NDJSON) запрашиваются
+ *     у всех узлов параллельно и сливаются по id;</li>
+ *     <li>популярные фильмы и поиск сливаются по оценке, которую узлы отдают служебными запросами;</li>
+ *     <li>создание выполняется на принявшем узле - id выдаются из его разделов.</li>
+ * </ul>
+ * Пересланный другим узлом запрос узел обрабатывает сам. Служебные пути {@link ClusterClient#INTERNAL_PATH}
+ * открыты только узлам ({@link ClusterPeers}); заголовок пересылки без секрета кластера не отключает маршрутизацию.
+ * Слитые списки отдаются без ETag: у кластера нет общей версии коллекции.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ClusterRoutingFilter extends OncePerRequestFilter {
+
+    private static final Pattern ENTITY_PATH = Pattern.compile("^/(?:films|users)/(\\d{1,18})(?:/.*)?$");
+    private static final Set<String> COLLECTION_PATHS = Set.of("/films", "/users");
+    private static final Set<String> BATCH_PATHS = Set.of("/films/batch", "/users/batch");
+    private static final String NDJSON = "application/x-ndjson";
+    // с любым из этих параметров контроллер отдаёт страницу, по умолчанию из DEFAULT_PAGE_SIZE элементов
+    private static final List<String> PAGE_PARAMS =
+            List.of("after", "limit", "releasedFrom", "releasedTo", "minDuration", "maxDuration");
+
+    // при слиянии ответ собирается заново, поэтому условия запроса к отдельным узлам не применяются
+    private static final Set<String> CONDITIONAL_HEADERS = Set.of("if-none-match", "if-modified-since");
+    private static final Set<String> SKIPPED_RESPONSE_HEADERS =
+            Set.of("connection", "content-length", "date", "keep-alive", "transfer-encoding");
+
+    private static final Comparator<RankedFilm> BY_RANK = Comparator.comparingLong(RankedFilm::rank).reversed()
+            .thenComparingLong(ranked -> ranked.film().getId());
+
+    private final ClusterTopology topology;
+    private final ClusterClient clusterClient;
+    private final ClusterPeers peers;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        if (peers.isPeer(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (path.startsWith(ClusterClient.INTERNAL_PATH)) {
+            writeError(response, HttpStatus.FORBIDDEN, "Служебные запросы доступны только узлам кластера");
+            return;
+        }
+        try {
+            dispatch(path, request, response, chain);
+        } catch (PeerUnavailableException e) {
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    private void dispatch(String path, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        Matcher entity = ENTITY_PATH.matcher(path);
+        if (entity.matches()) {
+            route(Long.parseLong(entity.group(1)), null, request, response, chain);
+        } else if (COLLECTION_PATHS.contains(path) && method.equals("GET")) {
+            mergeById(request, response);
+        } else if (COLLECTION_PATHS.contains(path) && method.equals("PUT")) {
+            byte[] body = request.getInputStream().readAllBytes();
+            JsonNode id = readTree(body).path("id");
+            if (id.isIntegralNumber()) {
+                route(id.asLong(), body, request, response, chain);
+            } else {
+                chain.doFilter(new CachedBodyRequest(request, body), response);
+            }
+        } else if (BATCH_PATHS.contains(path) && method.equals("PUT")) {
+            routeBatch(request, response, chain);
+        } else if (path.equals("/films/popular") && method.equals("GET")) {
+            mergeByRank(request, response, "count", FilmController.DEFAULT_POPULAR_COUNT);
+        } else if (path.equals("/films/search") && method.equals("GET")) {
+            mergeByRank(request, response, "limit", FilmController.DEFAULT_SEARCH_LIMIT);
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private void route(long id, byte[] body, HttpServletRequest request, HttpServletResponse response,
+                       FilterChain chain) throws ServletException, IOException {
+        if (topology.isLocal(id)) {
+            chain.doFilter(body == null ? request : new CachedBodyRequest(request, body), response);
+            return;
+        }
+        forward(topology.ownerOf(id), body == null ? request.getInputStream().readAllBytes() : body,
+                request, response);
+    }
+
+    /**
+     * Пакетное обновление пересылается, только если все его сущности у одного узла:
+     * пакет применяется атомарно, а атомарности между узлами нет.
+     */
+    private void routeBatch(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        byte[] body = request.getInputStream().readAllBytes();
+        Set<URI> owners = new LinkedHashSet<>();
+        for (JsonNode item : readTree(body)) {
+            JsonNode id = item.path("id");
+            if (id.isIntegralNumber()) {
+                owners.add(topology.isLocal(id.asLong()) ? null : topology.ownerOf(id.asLong()));
+            }
+        }
+        if (owners.size() > 1) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    "Пакет изменяет сущности разных узлов кластера, разделите его по владельцам");
+        } else if (owners.isEmpty() || owners.contains(null)) {
+            chain.doFilter(new CachedBodyRequest(request, body), response);
+        } else {
+            forward(owners.iterator().next(), body, request, response);
+        }
+    }
+
+    private void forward(URI owner, byte[] body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        log.debug("Запрос {} {} передан узлу {}", request.getMethod(), request.getRequestURI(), owner);
+        HttpResponse<byte[]> reply = ClusterClient.await(owner, clusterClient.send(owner, request.getMethod(),
+                target(request), headers(request, Set.of()), body));
+        copy(reply, response);
+    }
+
+    /**
+     * Сливает списки узлов по возрастанию id. У каждого узла запрашивается та же страница,
+     * поэтому первые {@code limit} id общего списка есть среди полученных. Слияние идёт потоком:
+     * в памяти держится по одному элементу от узла. Весь список узел отдаёт не по порядку id,
+     * поэтому без параметров он читается у узлов страницами, NDJSON узлы и так отдают по порядку.
+     * Если узел оборвёт ответ на середине, клиент получит оборванный ответ - статус к тому времени уже отправлен.
+     */
+    private void mergeById(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Map<String, List<String>> headers = headers(request, CONDITIONAL_HEADERS);
+        boolean whole = request.getQueryString() == null;
+        String target = whole ? pageTarget(request.getRequestURI(), 0) : target(request);
+        List<URI> nodes = topology.nodes();
+        List<HttpResponse<InputStream>> replies = askAll(node -> clusterClient.stream(node, target, headers));
+        List<NodeList> lists = new ArrayList<>(nodes.size());
+        try {
+            HttpResponse<InputStream> failed = firstFailed(replies);
+            if (failed != null) {
+                copy(failed, failed.body().readAllBytes(), response);
+                return;
+            }
+            String contentType = replies.get(0).headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                    .orElse(MediaType.APPLICATION_JSON_VALUE);
+            boolean ndjson = contentType.startsWith(NDJSON);
+            boolean paged = PAGE_PARAMS.stream().anyMatch(name -> request.getParameter(name) != null);
+            long limit = !paged ? Long.MAX_VALUE : request.getParameter("limit") == null
+                    ? FilmController.DEFAULT_PAGE_SIZE : Long.parseLong(request.getParameter("limit"));
+
+            PriorityQueue<NodeList> heads = new PriorityQueue<>(Comparator.comparingLong(NodeList::id));
+            for (int i = 0; i < nodes.size(); i++) {
+                NodeList list = new NodeList(nodes.get(i), request.getRequestURI(), headers, whole && !ndjson);
+                lists.add(list);
+                list.open(replies.get(i));
+                if (list.advance()) {
+                    heads.add(list);
+                }
+            }
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            try (JsonGenerator out = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                out.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                out.setRootValueSeparator(null);
+                if (!ndjson) {
+                    out.writeStartArray();
+                }
+                for (long written = 0; written < limit && !heads.isEmpty(); written++) {
+                    NodeList head = heads.poll();
+                    out.writeTree(head.item);
+                    if (ndjson) {
+                        out.writeRaw('\n');
+                    }
+                    if (head.advance()) {
+                        heads.add(head);
+                    }
+                }
+                if (!ndjson) {
+                    out.writeEndArray();
+                }
+            }
+        } finally {
+            for (HttpResponse<InputStream> reply : replies) {
+                reply.body().close();
+            }
+            for (NodeList list : lists) {
+                list.close();
+            }
+        }
+    }
+
+    private void mergeByRank(HttpServletRequest request, HttpServletResponse response,
+                             String limitParameter, String defaultLimit) throws IOException {
+        String target = target(request);
+        List<HttpResponse<byte[]>> replies = askAll(node -> clusterClient.findRanked(node, target));
+        HttpResponse<byte[]> failed = firstFailed(replies);
+        if (failed != null) {
+            copy(failed, response);
+            return;
+        }
+        List<RankedFilm> ranked = new ArrayList<>();
+        List<URI> nodes = topology.nodes();
+        for (int i = 0; i < replies.size(); i++) {
+            ranked.addAll(clusterClient.readRanked(nodes.get(i), replies.get(i)));
+        }
+        ranked.sort(BY_RANK);
+        String requested = request.getParameter(limitParameter);
+        int limit = Integer.parseInt(requested == null ? defaultLimit : requested);
+        write(response, HttpStatus.OK.value(), MediaType.APPLICATION_JSON_VALUE, objectMapper.writeValueAsBytes(
+                ranked.stream().limit(limit).map(RankedFilm::film).toList()));
+    }
+
+    private <T> List<HttpResponse<T>> askAll(Function<URI, CompletableFuture<HttpResponse<T>>> request) {
+        List<URI> nodes = topology.nodes();
+        List<CompletableFuture<HttpResponse<T>>> pending = new ArrayList<>(nodes.size());
+        for (URI node : nodes) {
+            pending.add(request.apply(node));
+        }
+        List<HttpResponse<T>> replies = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            replies.add(ClusterClient.await(nodes.get(i), pending.get(i)));
+        }
+        return replies;
+    }
+
+    private static <T> HttpResponse<T> firstFailed(List<HttpResponse<T>> replies) {
+        for (HttpResponse<T> reply : replies) {
+            if (reply.statusCode() != HttpStatus.OK.value()) {
+                return reply;
+            }
+        }
+        return null;
+    }
+
+    private JsonNode readTree(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            // некорректное тело отклонит контроллер
+            return objectMapper.missingNode();
+        }
+    }
+
+    private void copy(HttpResponse<byte[]> reply, HttpServletResponse response) throws IOException {
+        copy(reply, reply.body(), response);
+    }
+
+    private void copy(HttpResponse<?> reply, byte[] body, HttpServletResponse response) throws IOException {
+        reply.headers().map().forEach((name, values) -> {
+            if (!SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase())) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        write(response, reply.statusCode(), null, body);
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        write(response, status.value(), MediaType.APPLICATION_JSON_VALUE,
+                objectMapper.writeValueAsBytes(new ErrorResponse(message)));
+    }
+
+    private static void write(HttpServletResponse response, int status, String contentType, byte[] body)
+            throws IOException {
+        response.setStatus(status);
+        if (contentType != null) {
+            response.setContentType(contentType);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static String pageTarget(String path, long afterId) {
+        return path + "?after=" + afterId + "&limit=" + FilmController.MAX_PAGE_SIZE;
+    }
+
+    private static String target(HttpServletRequest request) {
+        return request.getRequestURI() + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+    }
+
+    private static Map<String, List<String>> headers(HttpServletRequest request, Set<String> skipped) {
+        Map<String, List<String>> headers = new HashMap<>();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!skipped.contains(name.toLowerCase())) {
+                headers.put(name, Collections.list(request.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Список одного узла при слиянии по id: текущий элемент и поток ответа. При постраничном чтении
+     * следующая страница запрашивается, когда кончилась полная предыдущая.
+     */
+    private final class NodeList implements Closeable {
+
+        private final URI node;
+        private final String path;
+        private final Map<String, List<String>> headers;
+        private final boolean paging;
+        private HttpResponse<InputStream> reply;
+        private MappingIterator<JsonNode> values;
+        private int pageSize;
+        private JsonNode item;
+
+        NodeList(URI node, String path, Map<String, List<String>> headers, boolean paging) {
+            this.node = node;
+            this.path = path;
+            this.headers = headers;
+            this.paging = paging;
+        }
+
+        void open(HttpResponse<InputStream> reply) throws IOException {
+            this.reply = reply;
+            pageSize = 0;
+            // массив верхнего уровня MappingIterator тоже разворачивает по элементам
+            values = objectMapper.readerFor(JsonNode.class).readValues(reply.body());
+        }
+
+        /**
+         * @return {@code false}, если список узла кончился
+         */
+        boolean advance() throws IOException {
+            if (!values.hasNextValue()) {
+                if (!paging || pageSize < FilmController.MAX_PAGE_SIZE) {
+                    return false;
+                }
+                reply.body().close();
+                HttpResponse<InputStream> next = ClusterClient.await(node,
+                        clusterClient.stream(node, pageTarget(path, id()), headers));
+                if (next.statusCode() != HttpStatus.OK.value()) {
+                    next.body().close();
+                    throw new PeerUnavailableException("Узел кластера " + node + " ответил статусом "
+                            + next.statusCode());
+                }
+                open(next);
+                if (!values.hasNextValue()) {
+                    return false;
+                }
+            }
+            item = values.nextValue();
+            pageSize++;
+            return true;
+        }
+
+        long id() {
+            return item.path("id").asLong();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (reply != null) {
+                reply.body().close();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.EmailIndex;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Раскладка данных по узлам. Пространство id делится на {@code filmorate.cluster.partitions} разделов
+ * по остатку от деления, разделы распределяются по узлам из {@code filmorate.cluster.nodes}
+ * кольцом согласованного хеширования. Узел выдаёт новым сущностям id только из своих разделов,
+ * поэтому владельца сущности можно вычислить по её id без обращения к другим узлам.
+ * Email принадлежит узлу, выбранному тем же кольцом по ключу {@link EmailIndex#normalize}:
+ * адреса, равные для индекса, попадают на один узел.
+ * <p>
+ * При {@code filmorate.cluster.enabled=false} узел один и владеет всем.
+ */
+@Slf4j
+@Component
+public class ClusterTopology {
+
+    private static final int POINTS_PER_NODE = 128;
+
+    private final boolean enabled;
+    private final List<URI> nodes;
+    private final int self;
+    private final int partitions;
+    private final int[] partitionOwners;
+    private final int[] ownedPartitions;
+    private final HashRing ring;
+
+    @Autowired
+    public ClusterTopology(@Value("${filmorate.cluster.enabled}") boolean enabled,
+                           @Value("${filmorate.cluster.nodes}") List<String> nodes,
+                           @Value("${filmorate.cluster.self}") String self,
+                           @Value("${filmorate.cluster.partitions}") int partitions,
+                           @Value("${filmorate.persistence.enabled}") boolean persistence) {
+        if (!enabled) {
+            nodes = List.of("local");
+            self = "local";
+            partitions = 1;
+        } else if (persistence) {
+            throw new IllegalStateException("Кластерный режим пока не совместим с журналом: "
+                    + "выключите filmorate.persistence.enabled");
+        }
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Число разделов должно быть положительным: " + partitions);
+        }
+        List<String> names = nodes.stream().map(ClusterTopology::normalize).toList();
+        this.self = names.indexOf(normalize(self));
+        if (this.self < 0) {
+            throw new IllegalArgumentException("Узел " + self + " отсутствует в списке узлов кластера " + nodes);
+        }
+        this.enabled = enabled;
+        this.nodes = enabled ? names.stream().map(URI::create).toList() : List.of();
+        this.partitions = partitions;
+        this.ring = new HashRing(names, POINTS_PER_NODE);
+        this.partitionOwners = IntStream.range(0, partitions).map(ring::nodeFor).toArray();
+        this.ownedPartitions = IntStream.range(0, partitions).filter(p -> partitionOwners[p] == this.self).toArray();
+        if (ownedPartitions.length == 0) {
+            throw new IllegalStateException("Узлу " + self + " не досталось ни одного раздела, увеличьте их число");
+        }
+        if (enabled) {
+            log.info("Узел {} кластера из {} узлов, своих разделов {} из {}",
+                    self, names.size(), ownedPartitions.length, partitions);
+        }
+    }
+
+    /**
+     * Раскладка для одного узла, для хранилищ, создаваемых вне контекста Spring.
+     */
+    public static ClusterTopology single() {
+        return new ClusterTopology(false, List.of(), "", 1, false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int partitionOf(long id) {
+        return (int) Math.floorMod(id, (long) partitions);
+    }
+
+    public boolean isLocal(long id) {
+        return partitionOwners[partitionOf(id)] == self;
+    }
+
+    /**
+     * Адрес узла-владельца; только в кластерном режиме.
+     */
+    public URI ownerOf(long id) {
+        return nodes.get(partitionOwners[partitionOf(id)]);
+    }
+
+    public boolean isEmailHome(String email) {
+        return !enabled || ring.nodeFor(EmailIndex.normalize(email)) == self;
+    }
+
+    public URI emailHomeOf(String email) {
+        return nodes.get(ring.nodeFor(EmailIndex.normalize(email)));
+    }
+
+    /**
+     * Все узлы кластера, включая этот.
+     */
+    public List<URI> nodes() {
+        return nodes;
+    }
+
+    public IdGenerator newIdGenerator() {
+        return new IdGenerator(partitions, ownedPartitions);
+    }
+
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кольцо согласованного хеширования. Каждый узел занимает на кольце {@code pointsPerNode} точек,
+ * ключ принадлежит узлу первой точки по часовой стрелке от хеша ключа. При добавлении узла
+ * к нему переходит примерно {@code 1/N} ключей, остальные остаются на своих местах.
+ */
+public final class HashRing {
+
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @param nodes имена узлов; номер узла в ответах {@link #nodeFor} - его позиция в списке
+     */
+    public HashRing(List<String> nodes, int pointsPerNode) {
+        if (nodes.isEmpty() || pointsPerNode <= 0) {
+            throw new IllegalArgumentException("Кольцу нужен хотя бы один узел и одна точка на узел");
+        }
+        int total = nodes.size() * pointsPerNode;
+        long[] unsorted = new long[total];
+        int[] unsortedOwners = new int[total];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int point = 0; point < pointsPerNode; point++) {
+                unsorted[node * pointsPerNode + point] = hash(nodes.get(node) + "#" + point);
+                unsortedOwners[node * pointsPerNode + point] = node;
+            }
+        }
+        Integer[] order = new Integer[total];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Long.compare(unsorted[a], unsorted[b]));
+        points = new long[total];
+        owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            points[i] = unsorted[order[i]];
+            owners[i] = unsortedOwners[order[i]];
+        }
+    }
+
+    public int nodeFor(long key) {
+        return ownerOf(mix(key));
+    }
+
+    public int nodeFor(String key) {
+        return ownerOf(hash(key));
+    }
+
+    private int ownerOf(long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * FNV-1a по байтам UTF-8 с перемешиванием результата.
+     */
+    static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Финальное перемешивание MurmurHash3: близкие ключи расходятся по всему кольцу.
+     */
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
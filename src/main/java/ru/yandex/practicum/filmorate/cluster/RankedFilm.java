@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Фильм с оценкой, по которой узел его отобрал: число лайков или совпадение с поисковым запросом.
+ * Нужна, чтобы слить ответы узлов в общий порядок.
+ */
+public record RankedFilm(long rank, Film film) {
+}
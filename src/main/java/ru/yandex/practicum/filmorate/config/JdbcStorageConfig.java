@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Пул соединений для {@code filmorate.storage.type=jdbc}, настройки Hikari - {@code filmorate.jdbc.pool.*}.
+ * Автонастройка источника данных Spring Boot отключена, чтобы в режиме memory не поднималась пустая встроенная база.
+ * Схема создаётся из {@code schema.sql} механизмом {@code spring.sql.init} до создания хранилищ.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcStorageConfig {
+
+    @Bean
+    @ConfigurationProperties("filmorate.jdbc.pool")
+    public HikariDataSource dataSource() {
+        return DataSourceBuilder.create().type(HikariDataSource.class).build();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прогрев горячих путей JSON: запись и разбор {@link Film} и {@link User}, поодиночке и списками, и их проверка
+ * валидатором. Первые вызовы Jackson и Hibernate Validator строят сериализаторы и метаданные классов - без прогрева
+ * это время достаётся первым запросам. Прогрев идёт после создания бинов, то есть до запуска веб-сервера и до
+ * готовности приложения, и попадает в обучающий запуск архива CDS профиля fast-startup.
+ */
+@Slf4j
+@Component
+public class JsonWarmup implements SmartInitializingSingleton {
+
+    private static final TypeReference<List<Film>> FILMS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<User>> USERS = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int iterations;
+
+    public JsonWarmup(ObjectMapper objectMapper, Validator validator,
+                      @Value("${filmorate.warmup.iterations}") int iterations) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (iterations <= 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        Film film = new Film();
+        film.setId(1L);
+        film.setName("Прогрев");
+        film.setDescription("Фильм для прогрева JSON");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        User user = new User(1L, "warmup@mail.ru", "warmup", "Прогрев", LocalDate.of(1990, 1, 1));
+        try {
+            for (int i = 0; i < iterations; i++) {
+                objectMapper.readValue(objectMapper.writeValueAsBytes(film), Film.class);
+                objectMapper.readValue(objectMapper.writeValueAsBytes(user), User.class);
+                objectMapper.readValue(objectMapper.writeValueAsBytes(List.of(film, film)), FILMS);
+                objectMapper.readValue(objectMapper.writeValueAsBytes(List.of(user, user)), USERS);
+                validator.validate(film);
+                validator.validate(user);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Прогрев JSON не удался", e);
+        }
+        log.info("JSON фильмов и пользователей прогрет за {} мс ({} итераций)",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), iterations);
+    }
+}
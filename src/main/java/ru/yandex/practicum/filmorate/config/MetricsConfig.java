@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Метрики приложения. Таймеры хранилищ и индексов задаются аннотацией {@code @Timed} на методах,
+ * размеры каталогов снимаются при каждом опросе.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder storageSizeMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        return registry -> {
+            Gauge.builder("filmorate.films.stored", filmStorage, FilmStorage::size)
+                    .description("Число сохранённых фильмов")
+                    .register(registry);
+            Gauge.builder("filmorate.users.stored", userStorage, UserStorage::size)
+                    .description("Число сохранённых пользователей")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.DumpSummary;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.CatalogueTransfer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Выгрузка и загрузка каталога. Файлы лежат только в каталоге {@code filmorate.admin.dump-dir}:
+ * имя файла не может содержать разделителей пути, поэтому выйти за пределы каталога нельзя.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,127}");
+
+    private final CatalogueTransfer catalogueTransfer;
+    private final ChangeFeeds changeFeeds;
+    private final Path dumpDir;
+
+    public AdminController(CatalogueTransfer catalogueTransfer, ChangeFeeds changeFeeds,
+                           @Value("${filmorate.admin.dump-dir}") Path dumpDir) {
+        this.catalogueTransfer = catalogueTransfer;
+        this.changeFeeds = changeFeeds;
+        this.dumpDir = dumpDir.toAbsolutePath().normalize();
+    }
+
+    @PostMapping("/export")
+    public DumpSummary export(@RequestParam String file) {
+        Path target = resolve(file);
+        log.info("Получен запрос на выгрузку каталога в {}", target);
+        try {
+            Files.createDirectories(dumpDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return catalogueTransfer.export(target);
+    }
+
+    @PostMapping("/import")
+    public DumpSummary load(@RequestParam String file) {
+        Path source = resolve(file);
+        log.info("Получен запрос на загрузку каталога из {}", source);
+        // загруженные записи попадают в ленты изменений так же, как созданные через API
+        return catalogueTransfer.load(source, new CatalogueTransfer.Listener() {
+            @Override
+            public void filmsSaved(List<Film> films) {
+                for (Film film : films) {
+                    changeFeeds.publishEntity(changeFeeds.films(), ChangeFeed.CREATED, film, film.getVersion());
+                }
+            }
+
+            @Override
+            public void usersSaved(List<User> users) {
+                for (User user : users) {
+                    changeFeeds.publishEntity(changeFeeds.users(), ChangeFeed.CREATED, user, user.getVersion());
+                }
+            }
+
+            @Override
+            public void liked(long filmId, long userId) {
+                changeFeeds.publishLike(ChangeFeed.LIKED, filmId, userId);
+            }
+        });
+    }
+
+    private Path resolve(String file) {
+        if (!FILE_NAME.matcher(file).matches() || file.endsWith(".tmp")) {
+            throw new ValidationException("Недопустимое имя файла выгрузки: " + file);
+        }
+        Path resolved = dumpDir.resolve(file).normalize();
+        if (!dumpDir.equals(resolved.getParent())) {
+            throw new ValidationException("Недопустимое имя файла выгрузки: " + file);
+        }
+        return resolved;
+    }
+}
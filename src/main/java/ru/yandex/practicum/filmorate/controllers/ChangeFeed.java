@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лента изменений одной коллекции для подписчиков SSE. События лежат в кольцевом буфере фиксированного размера
+ * под возрастающими номерами; номер - id события SSE, по нему клиент продолжает чтение с {@code Last-Event-ID}.
+ * Номера задают порядок публикации, а не порядок записи в хранилище - см. {@link ChangeFeeds}.
+ * Публикация только кладёт событие в буфер и будит рассылку, поэтому запрос на запись не ждёт подписчиков.
+ * Каждый отставший подписчик дочитывает буфер в своём виртуальном потоке: медленный задерживает только себя.
+ * Кадр события SSE собирается один раз при публикации, а накопившиеся события уходят подписчику одной записью.
+ * <p>
+ * Сама запись в ответ идёт в отдельном пуле потоков платформы: {@link ResponseBodyEmitter#send} синхронизирован,
+ * и блокирующая запись в сокет внутри монитора закрепила бы виртуальный поток рассылки за его потоком-носителем.
+ * Поток рассылки ждёт запись не дольше {@code writeTimeoutMillis}; не успевший подписчик отключается,
+ * а его ответ завершается в том же пуле, когда зависшая запись отпустит монитор.
+ * <p>
+ * Если он отстал больше чем на буфер, пропущенные события для него потеряны: он получает событие
+ * {@value #RESET} и должен перечитать коллекцию.
+ */
+@Slf4j
+final class ChangeFeed {
+
+    static final String CREATED = "created";
+    static final String UPDATED = "updated";
+    static final String LIKED = "liked";
+    static final String UNLIKED = "unliked";
+    static final String RESET = "reset";
+
+    private static final int MAX_FRAMES_PER_SEND = 256;
+    private static final MediaType FRAME_TYPE = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    private final String name;
+    private final AtomicReferenceArray<Event> ring;
+    private final int mask;
+    private final Executor executor;
+    private final ExecutorService writer;
+    private final long timeoutMillis;
+    private final long writeTimeoutMillis;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    // номер последнего опубликованного события, 0 - событий ещё не было
+    private volatile long published;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final LongAdder resets = new LongAdder();
+
+    /**
+     * @param capacity размер буфера, степень двойки
+     * @param executor потоки рассылки, по одной задаче на отстающего подписчика
+     * @param writer потоки платформы для записи в ответы подписчиков
+     */
+    ChangeFeed(String name, int capacity, Executor executor, ExecutorService writer,
+               long timeoutMillis, long writeTimeoutMillis) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Размер буфера ленты должен быть степенью двойки: " + capacity);
+        }
+        if (writeTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Таймаут записи в ленту должен быть положительным: " + writeTimeoutMillis);
+        }
+        this.name = name;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.executor = executor;
+        this.writer = writer;
+        this.timeoutMillis = timeoutMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    /**
+     * @param json данные события, уже сериализованные: подписчикам рассылается одна и та же строка
+     */
+    void publish(String type, String json) {
+        publishLock.lock();
+        try {
+            long seq = published + 1;
+            ring.set((int) (seq & mask), new Event(seq, frame(seq, type, json)));
+            published = seq;
+        } finally {
+            publishLock.unlock();
+        }
+        if (!subscribers.isEmpty() && dispatching.compareAndSet(false, true)) {
+            execute(this::dispatch);
+        }
+    }
+
+    /**
+     * @param lastEventId номер последнего полученного события; без него подписчик получает только новые события
+     */
+    SseEmitter subscribe(Long lastEventId) {
+        return subscribe(new SseEmitter(timeoutMillis), lastEventId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long lastEventId) {
+        try {
+            // без первой отправки ответ не начнётся, и клиент тихой ленты не дождётся даже заголовков
+            emitter.send(SseEmitter.event().comment(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Subscriber subscriber = new Subscriber(emitter, lastEventId == null ? published : Math.max(lastEventId, 0));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    int subscribers() {
+        return subscribers.size();
+    }
+
+    long resets() {
+        return resets.sum();
+    }
+
+    void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * Будит подписчиков, у которых есть непрочитанные события. Работает не больше одной рассылки сразу:
+     * публикации во время обхода подхватываются повторным обходом.
+     */
+    private void dispatch() {
+        long seen;
+        do {
+            seen = published;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.cursor < seen) {
+                    schedule(subscriber);
+                }
+            }
+            dispatching.set(false);
+        } while (published != seen && dispatching.compareAndSet(false, true));
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            execute(() -> drain(subscriber));
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // приложение останавливается, подписчики закрываются в close()
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                long head = published;
+                if (subscriber.cursor > head) {
+                    // номер из будущего: приложение перезапускалось, события до перезапуска не сохранились
+                    reset(subscriber, head);
+                }
+                while (subscriber.cursor < head) {
+                    long from = subscriber.cursor + 1;
+                    long to = Math.min(head, subscriber.cursor + MAX_FRAMES_PER_SEND);
+                    StringBuilder frames = new StringBuilder();
+                    long sent = subscriber.cursor;
+                    for (long seq = from; seq <= to; seq++) {
+                        Event event = ring.get((int) (seq & mask));
+                        if (event.seq != seq) {
+                            break;
+                        }
+                        frames.append(event.frame);
+                        sent = seq;
+                    }
+                    if (sent == subscriber.cursor) {
+                        // событие уже затёрто новыми: продолжаем с самого старого из оставшихся
+                        reset(subscriber, Math.max(published - ring.length(), subscriber.cursor));
+                        continue;
+                    }
+                    write(subscriber, frames.toString());
+                    subscriber.cursor = sent;
+                }
+                subscriber.scheduled.set(false);
+                // публикация могла прийти между последней проверкой и снятием флага
+            } while (subscriber.cursor < published && subscriber.scheduled.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            // ответ завершает контейнер, остаётся только забыть подписчика
+            log.debug("Подписчик ленты {} отключился: {}", name, e.getMessage());
+            subscribers.remove(subscriber);
+        } catch (TimeoutException e) {
+            log.debug("Подписчик ленты {} не принял события за {} мс, отключаем", name, writeTimeoutMillis);
+            drop(subscriber);
+        } catch (InterruptedException e) {
+            // пул рассылки останавливается вместе с приложением
+            Thread.currentThread().interrupt();
+            drop(subscriber);
+        }
+    }
+
+    private void reset(Subscriber subscriber, long cursor) throws IOException, TimeoutException, InterruptedException {
+        resets.increment();
+        write(subscriber, frame(cursor, RESET, "{}"));
+        subscriber.cursor = cursor;
+    }
+
+    /**
+     * Отправляет кадры в потоке платформы и ждёт отправку не дольше таймаута записи.
+     */
+    private void write(Subscriber subscriber, String text) throws IOException, TimeoutException, InterruptedException {
+        Future<?> sending;
+        try {
+            sending = writer.submit(() -> {
+                subscriber.emitter.send(frames(text));
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Лента " + name + " остановлена", e);
+        }
+        try {
+            sending.get(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException | InterruptedException e) {
+            sending.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Забывает подписчика и завершает его ответ. Завершение ждёт монитор эмиттера, который держит зависшая запись,
+     * поэтому тоже идёт в пуле записи, а не в потоке рассылки.
+     */
+    private void drop(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        try {
+            writer.execute(subscriber.emitter::complete);
+        } catch (RejectedExecutionException e) {
+            // приложение останавливается, подписчики закрываются в close()
+        }
+    }
+
+    private static String frame(long seq, String type, String json) {
+        return "id:" + seq + "\nevent:" + type + "\ndata:" + json + "\n\n";
+    }
+
+    /**
+     * Готовые кадры SSE отправляются как есть, без разбора на поля {@link SseEmitter#event()}.
+     */
+    private static Set<ResponseBodyEmitter.DataWithMediaType> frames(String text) {
+        return Set.of(new ResponseBodyEmitter.DataWithMediaType(text, FRAME_TYPE));
+    }
+
+    private record Event(long seq, String frame) {
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // пишется только потоком рассылки этого подписчика
+        private volatile long cursor;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
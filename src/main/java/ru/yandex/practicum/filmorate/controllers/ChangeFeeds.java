@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ленты изменений фильмов и пользователей. События публикуют контроллеры после успешной записи,
+ * в том числе загрузки каталога; данные сериализуются один раз при публикации. В событиях создания
+ * и изменения передаётся сущность целиком вместе с её версией - той же, что в ETag.
+ * <p>
+ * Публикация идёт уже после того, как хранилище отпустило блокировку, поэтому два параллельных изменения
+ * одной сущности могут попасть в ленту не в том порядке, в каком записаны. Порядок изменений сущности
+ * задаёт только её версия: событие с версией не новее уже известной клиент пропускает.
+ */
+@Component
+public class ChangeFeeds {
+
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // запись не дольше filmorate.changes.write-timeout, поэтому потоков не больше, чем зависших подписчиков
+    private final ExecutorService writer = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("change-feed-writer-", 0).daemon().factory());
+    private final ChangeFeed films;
+    private final ChangeFeed users;
+
+    public ChangeFeeds(ObjectMapper objectMapper,
+                       @Value("${filmorate.changes.buffer-size}") int bufferSize,
+                       @Value("${filmorate.changes.timeout}") Duration timeout,
+                       @Value("${filmorate.changes.write-timeout}") Duration writeTimeout,
+                       MeterRegistry registry) {
+        this.objectMapper = objectMapper;
+        this.films = new ChangeFeed("films", bufferSize, executor, writer, timeout.toMillis(), writeTimeout.toMillis());
+        this.users = new ChangeFeed("users", bufferSize, executor, writer, timeout.toMillis(), writeTimeout.toMillis());
+        register(registry, films, "films");
+        register(registry, users, "users");
+    }
+
+    ChangeFeed films() {
+        return films;
+    }
+
+    ChangeFeed users() {
+        return users;
+    }
+
+    void publishEntity(ChangeFeed feed, String type, Object entity, long version) {
+        ObjectNode node = objectMapper.valueToTree(entity);
+        node.put("version", version);
+        feed.publish(type, serialize(node));
+    }
+
+    void publishLike(String type, long filmId, long userId) {
+        films.publish(type, serialize(objectMapper.createObjectNode().put("filmId", filmId).put("userId", userId)));
+    }
+
+    /**
+     * Ленты закрываются до остановки веб-сервера, пока ответы подписчиков ещё можно завершить.
+     */
+    @EventListener(ContextClosedEvent.class)
+    void close() {
+        films.close();
+        users.close();
+        executor.shutdown();
+        writer.shutdown();
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void register(MeterRegistry registry, ChangeFeed feed, String name) {
+        Gauge.builder("filmorate.changes.subscribers", feed, ChangeFeed::subscribers)
+                .description("Подписчики ленты изменений")
+                .tag("feed", name)
+                .register(registry);
+        FunctionCounter.builder("filmorate.changes.resets", feed, ChangeFeed::resets)
+                .description("Пропуски событий у подписчиков, отставших больше чем на буфер ленты")
+                .tag("feed", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
+
+/**
+ * ETag коллекций и отдельных записей, построенные из версий хранилища.
+ * В тег входит случайная эпоха запуска: после перезапуска версии начинаются заново,
+ * и старые теги клиентов не должны с ними совпасть.
+ */
+@Component
+class EntityTags {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, Character.MAX_RADIX);
+
+    String collection(String kind, long version) {
+        return quote(kind + "-" + epoch + "-" + version);
+    }
+
+    String entity(String kind, long id, long version) {
+        return quote(kind + "-" + id + "-" + epoch + "-" + version);
+    }
+
+    /**
+     * Проверка версии по заголовку {@code If-Match}. Без заголовка и для {@code *} подходит любая версия,
+     * иначе только версии из сильных тегов этой записи, выданных текущим запуском.
+     */
+    LongPredicate ifMatch(String header, String kind, long id) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return version -> true;
+        }
+        String prefix = kind + "-" + id + "-" + epoch + "-";
+        Set<Long> versions = new HashSet<>();
+        for (String tag : header.split(",")) {
+            String value = tag.trim();
+            if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+                // слабые теги If-Match не принимает
+                continue;
+            }
+            value = value.substring(1, value.length() - 1);
+            if (value.startsWith(prefix)) {
+                try {
+                    versions.add(Long.parseLong(value.substring(prefix.length())));
+                } catch (NumberFormatException ignored) {
+                    // чужой тег ни с чем не совпадает
+                }
+            }
+        }
+        return versions::contains;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+}
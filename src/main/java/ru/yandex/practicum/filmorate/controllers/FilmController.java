@@ -1,44 +1,131 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import jakarta.validation.ValidationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.service.BatchProcessor;
+import ru.yandex.practicum.filmorate.service.FilmService;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.LocalDate;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/films")
+@Validated
+@RequiredArgsConstructor
 public class FilmController {
 
-    private final Map<Long, Film> films = new HashMap<>();
-    private final IdGenerator idGenerator = new IdGenerator();
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String DEFAULT_POPULAR_COUNT = "10";
+    public static final String DEFAULT_SEARCH_LIMIT = "10";
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final String TAG_KIND = "films";
+
+    private final FilmService filmService;
+    private final BatchProcessor batchProcessor;
+    private final ObjectMapper objectMapper;
+    private final EntityTags entityTags;
+    private final JsonResponseCache responseCache;
+    private final ChangeFeeds changeFeeds;
 
     @GetMapping
-    public Collection<Film> findAll() {
-        log.info("Получен запрос на вывод списка всех фильмов");
-        return films.values();
+    public ResponseEntity<byte[]> findAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                          @RequestParam(required = false) @Positive @Max(MAX_PAGE_SIZE) Integer limit,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                          LocalDate releasedFrom,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                          LocalDate releasedTo,
+                                          @RequestParam(required = false) @Positive Integer minDuration,
+                                          @RequestParam(required = false) @Positive Integer maxDuration,
+                                          WebRequest request) {
+        // версия читается до данных, поэтому тег и ключ кэша никогда не новее ответа
+        long version = filmService.version();
+        if (request.checkNotModified(entityTags.collection(TAG_KIND, version))) {
+            return null;
+        }
+        FilmFilter filter = new FilmFilter(releasedFrom, releasedTo, minDuration, maxDuration);
+        long afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (!filter.isEmpty()) {
+            log.info("Получен запрос на вывод фильмов по фильтру {} после id:{}", filter, after);
+            return responseCache.respond(TAG_KIND + "?after=" + afterId + "&limit=" + pageSize + "&" + filter,
+                    version, () -> filmService.findPage(filter, afterId, pageSize));
+        }
+        if (after == null && limit == null) {
+            log.info("Получен запрос на вывод списка всех фильмов");
+            return responseCache.respond(TAG_KIND, version, filmService::findAll);
+        }
+        log.info("Получен запрос на вывод страницы фильмов после id:{}", after);
+        return responseCache.respond(TAG_KIND + "?after=" + afterId + "&limit=" + pageSize,
+                version, () -> filmService.findPage(afterId, pageSize));
+    }
+
+    @GetMapping(produces = NdjsonResponses.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAll(WebRequest request) {
+        if (request.checkNotModified(entityTags.collection(TAG_KIND, filmService.version()))) {
+            return null;
+        }
+        log.info("Получен запрос на потоковый вывод всех фильмов");
+        return NdjsonResponses.stream(objectMapper, filmService::findPage, Film::getId);
+    }
+
+    /**
+     * Лента изменений в формате SSE: создание, изменение, лайки. С заголовком {@code Last-Event-ID}
+     * чтение продолжается после этого события, пока оно есть в буфере ленты.
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("Подписка на ленту изменений фильмов после события {}", lastEventId);
+        return changeFeeds.films().subscribe(lastEventId);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> findById(@PathVariable long id, WebRequest request) {
+        Film film = filmService.findById(id);
+        if (request.checkNotModified(entityTags.entity(TAG_KIND, id, film.getVersion()))) {
+            return null;
+        }
+        return responseCache.respond(TAG_KIND + "/" + id, film.getVersion(), () -> film);
     }
 
     @PostMapping
-    public Film create(@Valid @RequestBody Film newFilm) {
+    public ResponseEntity<Film> create(@Valid @RequestBody Film newFilm) {
         if (newFilm == null) {
             throw new ValidationException("Фильм не может быть null");
         }
 
-        newFilm.setId(idGenerator.getNextId(films.keySet()));
-        films.put(newFilm.getId(), newFilm);
-        return newFilm;
+        return published(ChangeFeed.CREATED, filmService.create(newFilm));
     }
 
+    /**
+     * С заголовком {@code If-Match} фильм заменяется, только если не изменился с момента получения тега.
+     */
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
+    public ResponseEntity<Film> update(@Valid @RequestBody Film film,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (film == null) {
             throw new ValidationException("Фильм не может быть null");
         }
@@ -47,11 +134,78 @@ public class FilmController {
             throw new ValidationException("Id фильма не может быть null");
         }
 
-        if (!films.containsKey(film.getId())) {
-            throw new NotFoundException("Фильм с id:" + film.getId() + " не найден");
+        return published(ChangeFeed.UPDATED,
+                filmService.update(film, entityTags.ifMatch(ifMatch, TAG_KIND, film.getId())));
+    }
+
+    /**
+     * Частичное изменение по JSON Merge Patch: переданные поля заменяются, null очищает поле.
+     */
+    @PatchMapping(path = "/{id}", consumes = {MergePatchRequests.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Film> patch(@PathVariable long id, @RequestBody ObjectNode patch,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Получен запрос на изменение полей {} фильма с id:{}", MergePatchRequests.fieldNames(patch), id);
+        return published(ChangeFeed.UPDATED, filmService.patch(id, patch, entityTags.ifMatch(ifMatch, TAG_KIND, id)));
+    }
+
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(@RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<Film> newFilms) {
+        log.info("Получен пакет из {} фильмов на добавление", newFilms.size());
+        return batchProcessor.process(newFilms, film -> null,
+                batch -> published(ChangeFeed.CREATED, filmService.createAll(batch)));
+    }
+
+    @PutMapping("/batch")
+    public List<BatchItemResult> updateAll(@RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<Film> films) {
+        log.info("Получен пакет из {} фильмов на обновление", films.size());
+        return batchProcessor.process(films,
+                film -> film.getId() == null ? "Id фильма не может быть null" : null,
+                batch -> published(ChangeFeed.UPDATED, filmService.updateAll(batch)));
+    }
+
+    @GetMapping("/popular")
+    public List<Film> getPopular(@RequestParam(defaultValue = DEFAULT_POPULAR_COUNT)
+                                 @Positive @Max(MAX_PAGE_SIZE) int count) {
+        log.info("Получен запрос на вывод {} популярных фильмов", count);
+        return filmService.getPopular(count);
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam @NotBlank String q,
+                             @RequestParam(defaultValue = DEFAULT_SEARCH_LIMIT) @Positive @Max(MAX_PAGE_SIZE) int limit) {
+        log.info("Получен запрос на поиск фильмов: {}", q);
+        return filmService.search(q, limit);
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public void addLike(@PathVariable long id, @PathVariable long userId) {
+        if (filmService.addLike(id, userId)) {
+            changeFeeds.publishLike(ChangeFeed.LIKED, id, userId);
+        }
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public void removeLike(@PathVariable long id, @PathVariable long userId) {
+        if (filmService.removeLike(id, userId)) {
+            changeFeeds.publishLike(ChangeFeed.UNLIKED, id, userId);
+        }
+    }
+
+    private ResponseEntity<Film> published(String type, Film film) {
+        changeFeeds.publishEntity(changeFeeds.films(), type, film, film.getVersion());
+        return withTag(film);
+    }
+
+    private List<Film> published(String type, List<Film> films) {
+        for (Film film : films) {
+            changeFeeds.publishEntity(changeFeeds.films(), type, film, film.getVersion());
         }
+        return films;
+    }
 
-        films.put(film.getId(), film);
-        return film;
+    private ResponseEntity<Film> withTag(Film film) {
+        return ResponseEntity.ok()
+                .eTag(entityTags.entity(TAG_KIND, film.getId(), film.getVersion()))
+                .body(film);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Кэш готовых JSON-ответов. Ключ запроса хранится вместе с версией данных, из которых собран ответ:
+ * после записи версия меняется, и старый ответ больше не выдаётся, а при следующем чтении заменяется новым.
+ * Объём ограничен суммарным размером ответов, при переполнении вытесняются давно не читанные.
+ */
+@Component
+public class JsonResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final Lock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             @Value("${filmorate.response-cache.max-bytes}") long maxBytes,
+                             MeterRegistry registry) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.hits = cacheCounter(registry, "hit");
+        this.misses = cacheCounter(registry, "miss");
+        Gauge.builder("filmorate.response.cache.bytes", this, JsonResponseCache::usedBytes)
+                .description("Объём закэшированных JSON-ответов")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * @param version версия данных, из которых собирается ответ; читается до самих данных
+     * @param body   данные ответа, запрашиваются только при промахе
+     */
+    public ResponseEntity<byte[]> respond(String key, long version, Supplier<?> body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(get(key, version, body));
+    }
+
+    public byte[] get(String key, long version, Supplier<?> body) {
+        byte[] json = lookup(key, version);
+        if (json != null) {
+            hits.increment();
+            return json;
+        }
+        misses.increment();
+        // сериализация вне блокировки: при гонке ответ соберут оба потока, сохранится один
+        json = serialize(body.get());
+        store(key, new Entry(version, json));
+        return json;
+    }
+
+    long usedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] lookup(String key, long version) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            return entry != null && entry.version == version ? entry.json : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(String key, Entry entry) {
+        if (entry.json.length > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            Entry previous = entries.get(key);
+            if (previous != null) {
+                // ответ, собранный по более старой версии, не вытесняет более свежий
+                if (previous.version > entry.version) {
+                    return;
+                }
+                usedBytes -= previous.json.length;
+            }
+            entries.put(key, entry);
+            usedBytes += entry.json.length;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (usedBytes > maxBytes) {
+                usedBytes -= eldest.next().getValue().json.length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Counter cacheCounter(MeterRegistry registry, String result) {
+        return Counter.builder("filmorate.response.cache")
+                .description("Обращения к кэшу JSON-ответов")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record Entry(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запросы PATCH в формате JSON Merge Patch (RFC 7386).
+ */
+final class MergePatchRequests {
+
+    static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private MergePatchRequests() {
+    }
+
+    static List<String> fieldNames(ObjectNode patch) {
+        List<String> names = new ArrayList<>(patch.size());
+        patch.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потоковая выдача коллекций в формате NDJSON: по одной сущности на строку.
+ * Данные читаются из хранилища страницами, поэтому в памяти держится не больше одной страницы.
+ * Тип содержимого задаётся явно: для {@link StreamingResponseBody} его не выставляют конвертеры сообщений.
+ */
+final class NdjsonResponses {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int PAGE_SIZE = 500;
+
+    private NdjsonResponses() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper,
+                                            BiFunction<Long, Integer, List<T>> pageLoader,
+                                            ToLongFunction<T> idExtractor) {
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            long afterId = 0;
+            List<T> page;
+            do {
+                page = pageLoader.apply(afterId, PAGE_SIZE);
+                for (T entity : page) {
+                    writer.writeValue(out, entity);
+                    out.write('\n');
+                    afterId = idExtractor.applyAsLong(entity);
+                }
+            } while (page.size() == PAGE_SIZE);
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(MEDIA_TYPE)).body(body);
+    }
+}
@@ -1,88 +1,214 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
-import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.recommendation.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.BatchProcessor;
+import ru.yandex.practicum.filmorate.service.UserService;
 
-import java.util.*;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/users")
+@Validated
+@RequiredArgsConstructor
 public class UserController {
 
-    private final Map<Long, User> users = new HashMap<>();
-    private final Set<String> userEmails = new HashSet<>();
-    private final IdGenerator idGenerator = new IdGenerator();
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final String TAG_KIND = "users";
+    private static final String DEFAULT_RECOMMENDATIONS = "10";
+
+    private final UserService userService;
+    private final BatchProcessor batchProcessor;
+    private final ObjectMapper objectMapper;
+    private final EntityTags entityTags;
+    private final JsonResponseCache responseCache;
+    private final ChangeFeeds changeFeeds;
 
     @GetMapping
-    public Collection<User> findAll() {
-        log.info("Получен запрос на вывод всех пользователей");
-        return users.values();
+    public ResponseEntity<byte[]> findAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                          @RequestParam(required = false) @Positive @Max(MAX_PAGE_SIZE) Integer limit,
+                                          WebRequest request) {
+        long version = userService.version();
+        if (request.checkNotModified(entityTags.collection(TAG_KIND, version))) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            log.info("Получен запрос на вывод всех пользователей");
+            return responseCache.respond(TAG_KIND, version, userService::findAll);
+        }
+        log.info("Получен запрос на вывод страницы пользователей после id:{}", after);
+        long afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        return responseCache.respond(TAG_KIND + "?after=" + afterId + "&limit=" + pageSize,
+                version, () -> userService.findPage(afterId, pageSize));
+    }
+
+    @GetMapping(produces = NdjsonResponses.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAll(WebRequest request) {
+        if (request.checkNotModified(entityTags.collection(TAG_KIND, userService.version()))) {
+            return null;
+        }
+        log.info("Получен запрос на потоковый вывод всех пользователей");
+        return NdjsonResponses.stream(objectMapper, userService::findPage, User::getId);
+    }
+
+    /**
+     * Лента изменений в формате SSE: создание и изменение пользователей. С заголовком {@code Last-Event-ID}
+     * чтение продолжается после этого события, пока оно есть в буфере ленты.
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("Подписка на ленту изменений пользователей после события {}", lastEventId);
+        return changeFeeds.users().subscribe(lastEventId);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> findById(@PathVariable long id, WebRequest request) {
+        User user = userService.findById(id);
+        if (request.checkNotModified(entityTags.entity(TAG_KIND, id, user.getVersion()))) {
+            return null;
+        }
+        return responseCache.respond(TAG_KIND + "/" + id, user.getVersion(), () -> user);
     }
 
     @PostMapping
-    public User create(@Valid @RequestBody User newUser) {
+    public ResponseEntity<User> create(@Valid @RequestBody User newUser) {
         if (newUser == null) {
             log.error("Попытка добавить null вместо пользователя");
             throw new ValidationException("Пользователь не может быть null");
         }
 
-        if (newUser.getName() == null || newUser.getName().isBlank()) {
-            newUser.setName(newUser.getLogin());
-        }
-
-        String emailLower = newUser.getEmail().toLowerCase();
-        checkEmailUniqueness(emailLower);
+        fillEmptyName(newUser);
 
-        newUser.setId(idGenerator.getNextId(users.keySet()));
-        users.put(newUser.getId(), newUser);
-        userEmails.add(emailLower); // добавляем только после успешного добавления
+        userService.create(newUser);
 
         log.info("Пользователь {} успешно добавлен", newUser.getName());
-        return newUser;
+        return published(ChangeFeed.CREATED, newUser);
     }
 
+    /**
+     * С заголовком {@code If-Match} пользователь заменяется, только если не изменился с момента получения тега.
+     */
     @PutMapping
-    public User update(@Valid @RequestBody User user) {
+    public ResponseEntity<User> update(@Valid @RequestBody User user,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (user == null) {
             log.error("Попытка обновить null вместо пользователя");
             throw new ValidationException("Пользователь не может быть null");
         }
 
-        if (!users.containsKey(user.getId())) {
-            log.error("Пользователь с id:{} не найден", user.getId());
-            throw new NotFoundException("Пользователь с заданным id не существует");
-        }
+        fillEmptyName(user);
 
-        final User oldUser = users.get(user.getId());
-        if (!oldUser.getEmail().equalsIgnoreCase(user.getEmail())) {
-            userEmails.remove(oldUser.getEmail().toLowerCase());
-            checkEmailUniqueness(user.getEmail());
-            userEmails.add(user.getEmail().toLowerCase());
-        }
+        userService.update(user, entityTags.ifMatch(ifMatch, TAG_KIND, user.getId() == null ? 0 : user.getId()));
+        log.info("Пользователь {} c id:{} успешно обновлен", user.getName(), user.getId());
+        return published(ChangeFeed.UPDATED, user);
+    }
 
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
-        }
+    /**
+     * Частичное изменение по JSON Merge Patch: переданные поля заменяются, null очищает поле.
+     * Пустое имя, как и при создании, заменяется логином.
+     */
+    @PatchMapping(path = "/{id}", consumes = {MergePatchRequests.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<User> patch(@PathVariable long id, @RequestBody ObjectNode patch,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Получен запрос на изменение полей {} пользователя с id:{}", MergePatchRequests.fieldNames(patch), id);
+        User user = userService.patch(id, patch, entityTags.ifMatch(ifMatch, TAG_KIND, id));
+        return published(ChangeFeed.UPDATED, user);
+    }
 
-        users.put(user.getId(), user);
-        log.info("Пользователь {} c id:{} успешно обновлен", user.getName(), user.getId());
-        return user;
+    @PostMapping("/batch")
+    public List<BatchItemResult> createAll(@RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<User> newUsers) {
+        log.info("Получен пакет из {} пользователей на добавление", newUsers.size());
+        return batchProcessor.process(newUsers, user -> null, batch -> {
+            batch.forEach(this::fillEmptyName);
+            return published(ChangeFeed.CREATED, userService.createAll(batch));
+        });
+    }
+
+    @PutMapping("/batch")
+    public List<BatchItemResult> updateAll(@RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<User> users) {
+        log.info("Получен пакет из {} пользователей на обновление", users.size());
+        return batchProcessor.process(users, user -> null, batch -> {
+            batch.forEach(this::fillEmptyName);
+            return published(ChangeFeed.UPDATED, userService.updateAll(batch));
+        });
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public void addFriend(@PathVariable long id, @PathVariable long friendId) {
+        userService.addFriend(id, friendId);
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public void removeFriend(@PathVariable long id, @PathVariable long friendId) {
+        userService.removeFriend(id, friendId);
+    }
+
+    @GetMapping("/{id}/friends")
+    public List<User> getFriends(@PathVariable long id) {
+        log.info("Получен запрос на вывод друзей пользователя с id:{}", id);
+        return userService.getFriends(id);
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public List<User> getCommonFriends(@PathVariable long id, @PathVariable long otherId) {
+        log.info("Получен запрос на вывод общих друзей пользователей с id:{} и id:{}", id, otherId);
+        return userService.getCommonFriends(id, otherId);
     }
 
-    private void checkEmailUniqueness(String email) {
-        if (email == null) {
-            throw new NullPointerException("Email не может быть null");
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable long id,
+                                         @RequestParam(defaultValue = DEFAULT_RECOMMENDATIONS)
+                                         @Positive @Max(FilmRecommender.MAX_COUNT) int count) {
+        log.info("Получен запрос на рекомендации фильмов для пользователя с id:{}", id);
+        return userService.getRecommendations(id, count);
+    }
+
+    private ResponseEntity<User> published(String type, User user) {
+        changeFeeds.publishEntity(changeFeeds.users(), type, user, user.getVersion());
+        return withTag(user);
+    }
+
+    private List<User> published(String type, List<User> users) {
+        for (User user : users) {
+            changeFeeds.publishEntity(changeFeeds.users(), type, user, user.getVersion());
         }
-        if (userEmails.contains(email.toLowerCase())) {
-            log.warn("Пользователь с email:{} уже был добавлен", email);
-            throw new DuplicateException("Email уже используется");
+        return users;
+    }
+
+    private ResponseEntity<User> withTag(User user) {
+        return ResponseEntity.ok()
+                .eTag(entityTags.entity(TAG_KIND, user.getId(), user.getVersion()))
+                .body(user);
+    }
+
+    private void fillEmptyName(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
         }
     }
-}
\ No newline at end of file
+}
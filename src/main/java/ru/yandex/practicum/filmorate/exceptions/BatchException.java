@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+import org.springframework.http.HttpStatus;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+
+import java.util.List;
+
+/**
+ * Пакет отклонён целиком; результаты содержат ошибку для каждого элемента.
+ */
+public class BatchException extends RuntimeException {
+    private final HttpStatus status;
+    private final List<BatchItemResult> results;
+
+    public BatchException(HttpStatus status, List<BatchItemResult> results) {
+        super("Пакет отклонён");
+        this.status = status;
+        this.results = results;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public List<BatchItemResult> getResults() {
+        return results;
+    }
+}
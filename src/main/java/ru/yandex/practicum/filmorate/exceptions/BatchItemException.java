@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+/**
+ * Ошибка одного элемента пакетной операции; {@link #getCause()} содержит исходное исключение.
+ */
+public class BatchItemException extends RuntimeException {
+    private final int index;
+
+    public BatchItemException(int index, RuntimeException cause) {
+        super(cause.getMessage(), cause);
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
@@ -1,32 +1,70 @@
 package ru.yandex.practicum.filmorate.exceptions;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ValidationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Каждая ветка считается в метрике {@code filmorate.errors} с тегом {@code type}.
+ */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final String ERRORS_METRIC = "filmorate.errors";
+
+    private final Counter notFound;
+    private final Counter validation;
+    private final Counter conflict;
+    private final Counter precondition;
+    private final Counter idempotencyKeyReused;
+    private final Counter batch;
+    private final Counter unavailable;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+    private final Counter unexpected;
+
+    public GlobalExceptionHandler(MeterRegistry registry) {
+        notFound = errorCounter(registry, "not_found");
+        validation = errorCounter(registry, "validation");
+        conflict = errorCounter(registry, "conflict");
+        precondition = errorCounter(registry, "precondition");
+        idempotencyKeyReused = errorCounter(registry, "idempotency_key_reused");
+        batch = errorCounter(registry, "batch");
+        unavailable = errorCounter(registry, "unavailable");
+        rateLimited = errorCounter(registry, "rate_limited");
+        overloaded = errorCounter(registry, "overloaded");
+        unexpected = errorCounter(registry, "unexpected");
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleNotFound(NotFoundException e) {
+        notFound.increment();
         return new ErrorResponse(e.getMessage());
     }
 
     @ExceptionHandler(ValidationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(ValidationException e) {
+        validation.increment();
         return new ErrorResponse(e.getMessage());
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleMethodArgumentNotValid(MethodArgumentNotValidException e) {
+        validation.increment();
         Map<String, String> errors = new HashMap<>();
         e.getBindingResult().getFieldErrors().forEach(error ->
                 errors.put(error.getField(), error.getDefaultMessage())
@@ -37,24 +75,77 @@ public class GlobalExceptionHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleConstraintViolation(jakarta.validation.ConstraintViolationException e) {
+        validation.increment();
         return new ErrorResponse("Ошибка валидации: " + e.getMessage());
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleHttpMessageNotReadable(HttpMessageNotReadableException e) {
+        validation.increment();
         return new ErrorResponse("Тело запроса не может быть пустым или некорректным");
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse handleDuplicate(DuplicateException e) {
+        conflict.increment();
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ErrorResponse handlePreconditionFailed(PreconditionFailedException e) {
+        precondition.increment();
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ErrorResponse handleIdempotencyKeyReused(IdempotencyKeyReusedException e) {
+        idempotencyKeyReused.increment();
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<List<BatchItemResult>> handleBatch(BatchException e) {
+        batch.increment();
+        return ResponseEntity.status(e.getStatus()).body(e.getResults());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handlePeerUnavailable(PeerUnavailableException e) {
+        unavailable.increment();
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleTooManyRequests(TooManyRequestsException e) {
+        rateLimited.increment();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleOverloaded(OverloadedException e) {
+        overloaded.increment();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(new ErrorResponse(e.getMessage()));
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleOthers(Throwable e) {
+        unexpected.increment();
         return new ErrorResponse("Произошла непредвиденная ошибка: " + e.getMessage());
     }
+
+    private static Counter errorCounter(MeterRegistry registry, String type) {
+        return Counter.builder(ERRORS_METRIC)
+                .tag("type", type)
+                .register(registry);
+    }
 }
\ No newline at end of file
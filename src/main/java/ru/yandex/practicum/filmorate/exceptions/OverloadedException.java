@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+/**
+ * Сервер уже обрабатывает предельное число запросов и новый не принимает.
+ */
+public class OverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public OverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+/**
+ * Другой узел кластера не ответил или ответил ошибкой, поэтому запрос нельзя выполнить целиком.
+ */
+public class PeerUnavailableException extends RuntimeException {
+    public PeerUnavailableException(String message) {
+        super(message);
+    }
+
+    public PeerUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+/**
+ * Клиент исчерпал свой лимит запросов; повторить можно через {@link #getRetryAfterSeconds()} секунд.
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.idempotency;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Ответы по ключам идемпотентности. Запись создаётся до выполнения запроса и хранит будущий ответ,
+ * поэтому повтор, пришедший во время выполнения, ждёт его, а не выполняет запрос второй раз.
+ * <p>
+ * Записи живут {@code ttl} с момента создания, их не больше {@code maxKeys}. Очередь хранит записи в порядке
+ * создания, то есть по возрасту: вытеснение снимает записи с её головы, пока голова просрочена или записей
+ * в очереди больше предела, и не перебирает карту. Снятые и заменённые записи остаются в очереди до своей
+ * очереди на вытеснение и учитываются в пределе, поэтому очередь не растёт сверх него.
+ */
+final class IdempotencyCache {
+
+    private final int maxKeys;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> byAge = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    IdempotencyCache(int maxKeys, Duration ttl, LongSupplier clock) {
+        if (maxKeys <= 0 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Число ключей и время жизни должны быть положительными");
+        }
+        this.maxKeys = maxKeys;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Закрепляет ключ за новым запросом, если ключа нет или его запись просрочена.
+     * Иначе возвращает запись запроса, пришедшего с этим ключом раньше.
+     */
+    Claim claim(String key, byte[] fingerprint) {
+        long now = clock.getAsLong();
+        Entry candidate = new Entry(key, fingerprint, now);
+        Entry entry = entries.compute(key, (k, current) ->
+                current != null && now - current.createdNanos < ttlNanos ? current : candidate);
+        if (entry != candidate) {
+            return new Claim(entry, false);
+        }
+        byAge.add(candidate);
+        queued.incrementAndGet();
+        evict(now);
+        return new Claim(candidate, true);
+    }
+
+    /**
+     * Снимает запись, ответ которой повторять нельзя: следующий запрос с этим ключом выполнится заново.
+     */
+    void release(Entry entry) {
+        entries.remove(entry.key, entry);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int queuedSize() {
+        return queued.get();
+    }
+
+    /**
+     * Чистит один поток; запись, ещё ждущая ответа, вытесняется наравне с остальными - её ожидающие
+     * получат ответ, а новый повтор выполнится заново.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Entry eldest;
+            while ((eldest = byAge.peek()) != null
+                    && (now - eldest.createdNanos >= ttlNanos || queued.get() > maxKeys)) {
+                byAge.poll();
+                queued.decrementAndGet();
+                entries.remove(eldest.key, eldest);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    static final class Entry {
+
+        final String key;
+        final byte[] fingerprint;
+        final long createdNanos;
+        /**
+         * Ответ первого запроса или null, если его нельзя повторить.
+         */
+        final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(String key, byte[] fingerprint, long createdNanos) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    /**
+     * @param first true, если запрос с этим ключом выполняет вызывающий
+     */
+    record Claim(Entry entry, boolean first) {
+    }
+
+    record StoredResponse(int status, String contentType, String etag, byte[] body) {
+    }
+}
@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.yandex.practicum.filmorate.cluster.ClusterPeers;
+import ru.yandex.practicum.filmorate.exceptions.IdempotencyKeyReusedException;
+import ru.yandex.practicum.filmorate.idempotency.IdempotencyCache.Claim;
+import ru.yandex.practicum.filmorate.idempotency.IdempotencyCache.Entry;
+import ru.yandex.practicum.filmorate.idempotency.IdempotencyCache.StoredResponse;
+import ru.yandex.practicum.filmorate.util.CachedBodyRequest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Заголовок {@code Idempotency-Key} для {@code POST /films} и {@code POST /users}: повтор запроса с тем же ключом
+ * получает сохранённый ответ первого (с заголовком {@code Idempotent-Replayed: true}) и ничего не создаёт.
+ * Повтор, пришедший, пока первый ещё выполняется, ждёт его ответа. Тот же ключ с другим телом - 422.
+ * <p>
+ * Сохраняются все ответы, кроме 5xx и 429: с ними следующий запрос с этим ключом выполнится заново,
+ * как и ожидавшие повторы. Ключи общие для всех клиентов, поэтому ключ должен быть уникальным, например UUID.
+ * Запросы от других узлов кластера ({@link ClusterPeers}) не проверяются: ключ уже учёл узел, принявший запрос.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 7)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> PATHS = Set.of("/films", "/users");
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyCache cache;
+    private final ClusterPeers peers;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final Counter executed;
+    private final Counter replayed;
+
+    public IdempotencyFilter(@Value("${filmorate.idempotency.max-keys}") int maxKeys,
+                             @Value("${filmorate.idempotency.ttl}") Duration ttl,
+                             ClusterPeers peers,
+                             @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+                             MeterRegistry registry) {
+        this.cache = new IdempotencyCache(maxKeys, ttl, System::nanoTime);
+        this.peers = peers;
+        this.exceptionResolver = exceptionResolver;
+        this.executed = requestCounter(registry, "executed");
+        this.replayed = requestCounter(registry, "replayed");
+        Gauge.builder("filmorate.idempotency.keys", cache, IdempotencyCache::size)
+                .description("Сохранённые ключи идемпотентности")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !PATHS.contains(request.getRequestURI())
+                || request.getHeader(KEY_HEADER) == null
+                || peers.isPeer(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(KEY_HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            exceptionResolver.resolveException(request, response, null, new ValidationException(
+                    "Заголовок " + KEY_HEADER + " должен быть непустым и не длиннее " + MAX_KEY_LENGTH + " символов"));
+            return;
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        byte[] fingerprint = sha256(body);
+        while (true) {
+            Claim claim = cache.claim(request.getRequestURI() + " " + key, fingerprint);
+            if (claim.first()) {
+                execute(new CachedBodyRequest(request, body), response, chain, claim.entry());
+                return;
+            }
+            if (!Arrays.equals(claim.entry().fingerprint, fingerprint)) {
+                log.warn("Ключ идемпотентности {} повторно использован с другим телом запроса", key);
+                exceptionResolver.resolveException(request, response, null, new IdempotencyKeyReusedException(
+                        "Ключ " + KEY_HEADER + " уже использован для другого запроса"));
+                return;
+            }
+            StoredResponse stored = await(claim.entry());
+            if (stored != null) {
+                log.debug("Запрос {} {} с ключом {} повторён из кэша", request.getMethod(), request.getRequestURI(), key);
+                replayed.increment();
+                replay(stored, response);
+                return;
+            }
+            // первый запрос не дал ответа, который можно повторить: ключ снят, запрос выполнится заново
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain, Entry entry)
+            throws ServletException, IOException {
+        executed.increment();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse stored = null;
+        try {
+            chain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                stored = new StoredResponse(status, wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                        wrapper.getContentAsByteArray());
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            if (stored == null) {
+                cache.release(entry);
+            }
+            entry.response.complete(stored);
+        }
+    }
+
+    private static StoredResponse await(Entry entry) throws IOException {
+        try {
+            return entry.response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание ответа по ключу идемпотентности прервано");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.etag() != null) {
+            response.setHeader(HttpHeaders.ETAG, stored.etag());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String result) {
+        return Counter.builder("filmorate.idempotency.requests")
+                .description("Запросы с ключом идемпотентности")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+/**
+ * Результат обработки одного элемента пакета. В {@code body} лежит сохранённая сущность
+ * либо тело ошибки в том же виде, что отдаёт {@code GlobalExceptionHandler}.
+ */
+@Value
+public class BatchItemResult {
+    int index;
+    int status;
+    Object body;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+/**
+ * Итог выгрузки или загрузки каталога: число фильмов, пользователей, лайков, пар друзей и размер файла в байтах.
+ */
+@Value
+public class DumpSummary {
+    long films;
+    long users;
+    long likes;
+    long friendships;
+    long bytes;
+}
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.model;
 
 import jakarta.validation.constraints.*;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import ru.yandex.practicum.filmorate.validations.FilmReleaseDateConstraint;
@@ -30,4 +31,10 @@ public class Film {
     @Positive(message = "Продолжительность фильма должна быть положительной")
     private Integer duration;
 
+    /**
+     * Версия фильма в хранилище, растёт при каждом изменении. Клиенту передаётся только в ETag.
+     */
+    @JsonIgnore
+    private long version;
+
 }
\ No newline at end of file
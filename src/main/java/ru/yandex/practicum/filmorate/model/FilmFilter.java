@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Фильтр списка фильмов по дате релиза и продолжительности. Границы включаются, null - граница не задана.
+ */
+@Value
+public class FilmFilter {
+    LocalDate releasedFrom;
+    LocalDate releasedTo;
+    Integer minDuration;
+    Integer maxDuration;
+
+    public boolean isEmpty() {
+        return !hasReleaseRange() && !hasDurationRange();
+    }
+
+    public boolean hasReleaseRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    public boolean hasDurationRange() {
+        return minDuration != null || maxDuration != null;
+    }
+
+    public boolean matches(Film film) {
+        LocalDate releaseDate = film.getReleaseDate();
+        if (hasReleaseRange() && (releaseDate == null
+                || releasedFrom != null && releaseDate.isBefore(releasedFrom)
+                || releasedTo != null && releaseDate.isAfter(releasedTo))) {
+            return false;
+        }
+        Integer duration = film.getDuration();
+        return !hasDurationRange() || duration != null
+                && (minDuration == null || duration >= minDuration)
+                && (maxDuration == null || duration <= maxDuration);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
 import jakarta.validation.constraints.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -27,6 +28,12 @@ public class User {
     @PastOrPresent(message = "Дата рождения не может быть в будущем")
     private LocalDate birthday;
 
+    /**
+     * Версия пользователя в хранилище, растёт при каждом изменении. Клиенту передаётся только в ETag.
+     */
+    @JsonIgnore
+    private long version;
+
     public String getName() {
         return (name == null || name.isBlank()) ? login : name;
     }
@@ -0,0 +1,355 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рекомендации фильмов по схожести вкусов. Лайки хранятся разреженной матрицей в обе стороны:
+ * пользователь → фильмы и фильм → пользователи, строки - {@link LongHashSet}. Схожесть двух пользователей -
+ * число общих лайков. Рекомендуются фильмы {@code neighbours} самых схожих пользователей, которые
+ * пользователь ещё не лайкнул; оценка фильма - сумма схожести лайкнувших его соседей.
+ * <p>
+ * Для пользователя в кэше хранятся счётчики общих лайков со всеми схожими пользователями и готовый список.
+ * Первый запрос считает счётчики параллельным обходом {@link OverlapTask}, дальше они меняются на каждом
+ * лайке: лайк фильма f пользователем v сдвигает на единицу счётчики v с остальными лайкнувшими f.
+ * Список пересобирается из счётчиков при следующем запросе, если изменились счётчики или фильмы
+ * кого-то из соседей; соседи при этом выбираются среди прежних соседей и тех, чей счётчик вырос.
+ * Объём кэша ограничен суммарным числом счётчиков, вытесняются рассчитанные раньше.
+ * <p>
+ * Лайки меняют матрицу и кэш под блокировкой записи, расчёт идёт под блокировкой чтения. Расчёт сохраняется,
+ * только если за время расчёта не было лайков, иначе отдаётся без сохранения и повторится при следующем запросе.
+ * В кластере учитываются лайки фильмов узла, которому принадлежит пользователь.
+ */
+@Component
+public class FilmRecommender implements LikeIndex {
+
+    public static final int MAX_COUNT = 100;
+
+    /**
+     * Вершина очереди - кандидат, которого вытеснят первым: меньшая оценка, при равенстве больший id.
+     */
+    private static final Comparator<Scored> WEAKEST_FIRST = (first, second) -> first.score() != second.score()
+            ? Long.compare(first.score(), second.score()) : Long.compare(second.id(), first.id());
+
+    private final int neighbours;
+    private final long maxCachedOverlaps;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, LongHashSet> filmsByUser = new HashMap<>();
+    private final Map<Long, LongHashSet> usersByFilm = new HashMap<>();
+    /**
+     * Порядок вставки: первыми вытесняются рассчитанные раньше. Чтение не меняет порядок, поэтому
+     * поиск под блокировкой чтения безопасен.
+     */
+    private final LinkedHashMap<Long, Entry> cache = new LinkedHashMap<>();
+    /**
+     * Пользователь → пользователи из кэша, у которых он среди соседей.
+     */
+    private final Map<Long, LongHashSet> watchers = new HashMap<>();
+    private long cachedOverlaps;
+    private long modifications;
+    private final Counter hits;
+    private final Counter reranked;
+    private final Counter computed;
+
+    public FilmRecommender(@Value("${filmorate.recommendations.neighbours}") int neighbours,
+                           @Value("${filmorate.recommendations.cache.max-overlaps}") long maxCachedOverlaps,
+                           MeterRegistry registry) {
+        this.neighbours = neighbours;
+        this.maxCachedOverlaps = maxCachedOverlaps;
+        this.hits = requestCounter(registry, "hit");
+        this.reranked = requestCounter(registry, "reranked");
+        this.computed = requestCounter(registry, "computed");
+    }
+
+    /**
+     * @return id фильмов по убыванию оценки, при равенстве по возрастанию id; не больше {@code count}
+     */
+    public long[] recommend(long userId, int count) {
+        Entry entry;
+        LongIntHashMap overlaps;
+        Ranking ranking;
+        long seen;
+        lock.readLock().lock();
+        try {
+            entry = cache.get(userId);
+            if (entry != null && entry.films != null) {
+                hits.increment();
+                return head(entry.films, count);
+            }
+            seen = modifications;
+            if (entry != null) {
+                reranked.increment();
+                overlaps = entry.overlaps;
+            } else {
+                computed.increment();
+                overlaps = overlaps(userId);
+            }
+            ranking = rank(userId, entry, overlaps);
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (modifications == seen && cache.get(userId) == entry) {
+                store(userId, entry == null ? new Entry(overlaps) : entry, ranking);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return head(ranking.films(), count);
+    }
+
+    @Override
+    public void update(long filmId, long userId, boolean added) {
+        lock.writeLock().lock();
+        try {
+            modifications++;
+            LongHashSet likers;
+            if (added) {
+                likers = addCell(usersByFilm, filmId, userId);
+                addCell(filmsByUser, userId, filmId);
+            } else {
+                likers = removeCell(usersByFilm, filmId, userId);
+                removeCell(filmsByUser, userId, filmId);
+            }
+            if (cache.isEmpty()) {
+                return;
+            }
+            int delta = added ? 1 : -1;
+            Entry own = cache.get(userId);
+            if (likers != null) {
+                if (own != null) {
+                    likers.forEach(other -> {
+                        if (other != userId) {
+                            changeOverlap(own, other, delta);
+                        }
+                    });
+                }
+                // лайкнувших популярный фильм может быть больше, чем пользователей в кэше
+                if (likers.size() <= cache.size()) {
+                    likers.forEach(other -> {
+                        Entry entry = other == userId ? null : cache.get(other);
+                        if (entry != null) {
+                            changeOverlap(entry, userId, delta);
+                        }
+                    });
+                } else {
+                    cache.forEach((cachedId, entry) -> {
+                        if (cachedId != userId && likers.contains(cachedId)) {
+                            changeOverlap(entry, userId, delta);
+                        }
+                    });
+                }
+            }
+            if (own != null) {
+                own.films = null;
+            }
+            // фильмы пользователя изменились - списки тех, у кого он в соседях, устарели
+            LongHashSet watching = watchers.get(userId);
+            if (watching != null) {
+                watching.forEach(watcher -> cache.get(watcher).films = null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private LongIntHashMap overlaps(long userId) {
+        LongHashSet liked = filmsByUser.get(userId);
+        if (liked == null) {
+            return new LongIntHashMap();
+        }
+        return ForkJoinPool.commonPool().invoke(OverlapTask.of(userId, liked.toSortedArray(), usersByFilm::get));
+    }
+
+    /**
+     * @param entry запись кэша или null; если в ней не сказано иное, соседи выбираются только среди прежних
+     *              соседей и пользователей, чей счётчик с тех пор вырос
+     */
+    private Ranking rank(long userId, Entry entry, LongIntHashMap overlaps) {
+        PriorityQueue<Scored> nearest = new PriorityQueue<>(neighbours + 1, WEAKEST_FIRST);
+        if (entry == null || entry.rescan) {
+            overlaps.forEach((other, common) -> offer(nearest, neighbours, other, common));
+        } else {
+            entry.neighbours.forEach(other -> offer(nearest, neighbours, other, overlaps.get(other)));
+            entry.grown.forEach(other -> {
+                if (!entry.neighbours.contains(other)) {
+                    offer(nearest, neighbours, other, overlaps.get(other));
+                }
+            });
+        }
+        LongHashSet liked = filmsByUser.get(userId);
+        LongIntHashMap scores = new LongIntHashMap();
+        LongHashSet neighbourIds = new LongHashSet();
+        for (Scored neighbour : nearest) {
+            neighbourIds.add(neighbour.id());
+            filmsByUser.get(neighbour.id()).forEach(filmId -> {
+                if (liked == null || !liked.contains(filmId)) {
+                    scores.addTo(filmId, (int) neighbour.score());
+                }
+            });
+        }
+        PriorityQueue<Scored> best = new PriorityQueue<>(MAX_COUNT + 1, WEAKEST_FIRST);
+        scores.forEach((filmId, score) -> offer(best, MAX_COUNT, filmId, score));
+        long[] films = new long[best.size()];
+        for (int j = films.length - 1; j >= 0; j--) {
+            films[j] = best.remove().id();
+        }
+        return new Ranking(neighbourIds, films);
+    }
+
+    /**
+     * Добавляет кандидата в очередь из {@code limit} лучших. Слабее вершины полной очереди - большинство
+     * кандидатов, их отсекает сравнение без создания объекта.
+     */
+    private static void offer(PriorityQueue<Scored> top, int limit, long id, long score) {
+        if (score <= 0) {
+            return;
+        }
+        if (top.size() == limit) {
+            Scored weakest = top.peek();
+            if (limit == 0 || score < weakest.score() || score == weakest.score() && id > weakest.id()) {
+                return;
+            }
+            top.remove();
+        }
+        top.add(new Scored(id, score));
+    }
+
+    private void store(long userId, Entry entry, Ranking ranking) {
+        setWatching(userId, entry.neighbours, false);
+        entry.neighbours = ranking.neighbours();
+        entry.films = ranking.films();
+        entry.grown = new LongHashSet();
+        entry.rescan = false;
+        setWatching(userId, entry.neighbours, true);
+        if (cache.putIfAbsent(userId, entry) == null) {
+            cachedOverlaps += entry.overlaps.size();
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Long, Entry>> eldest = cache.entrySet().iterator();
+        while (cachedOverlaps > maxCachedOverlaps && cache.size() > 1) {
+            Map.Entry<Long, Entry> evicted = eldest.next();
+            eldest.remove();
+            cachedOverlaps -= evicted.getValue().overlaps.size();
+            setWatching(evicted.getKey(), evicted.getValue().neighbours, false);
+        }
+    }
+
+    /**
+     * Выросший счётчик может ввести пользователя в соседи, поэтому запоминается. Упавший счётчик соседа
+     * может вывести его из соседей, и тогда заменить его можно только полным перебором.
+     */
+    private void changeOverlap(Entry entry, long other, int delta) {
+        int before = entry.overlaps.size();
+        entry.overlaps.addTo(other, delta);
+        cachedOverlaps += entry.overlaps.size() - before;
+        entry.films = null;
+        if (entry.rescan) {
+            return;
+        }
+        if (entry.neighbours.contains(other)) {
+            if (delta < 0) {
+                entry.rescan = true;
+            }
+        } else if (delta > 0 && entry.grown.add(other) && entry.grown.size() * 4 > entry.overlaps.size()) {
+            entry.rescan = true;
+        }
+    }
+
+    private void setWatching(long userId, LongHashSet neighbourIds, boolean watching) {
+        neighbourIds.forEach(neighbourId -> {
+            if (watching) {
+                addCell(watchers, neighbourId, userId);
+            } else {
+                removeCell(watchers, neighbourId, userId);
+            }
+        });
+    }
+
+    /**
+     * @return строка после изменения
+     */
+    private static LongHashSet addCell(Map<Long, LongHashSet> rows, long row, long column) {
+        LongHashSet values = rows.computeIfAbsent(row, key -> new LongHashSet());
+        values.add(column);
+        return values;
+    }
+
+    /**
+     * @return строка после изменения или null, если она опустела
+     */
+    private static LongHashSet removeCell(Map<Long, LongHashSet> rows, long row, long column) {
+        LongHashSet values = rows.get(row);
+        if (values == null) {
+            return null;
+        }
+        values.remove(column);
+        if (values.isEmpty()) {
+            rows.remove(row);
+            return null;
+        }
+        return values;
+    }
+
+    private static long[] head(long[] films, int count) {
+        return films.length <= count ? films : Arrays.copyOf(films, count);
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String result) {
+        return Counter.builder("filmorate.recommendations.requests")
+                .description("Запросы рекомендаций: из кэша, пересобранные из счётчиков, рассчитанные заново")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Меняется только под блокировкой записи.
+     */
+    private static final class Entry {
+
+        private final LongIntHashMap overlaps;
+        private LongHashSet neighbours = new LongHashSet();
+        /**
+         * Не соседи, чьи счётчики выросли после выбора соседей.
+         */
+        private LongHashSet grown = new LongHashSet();
+        /**
+         * Соседей нужно выбрать заново из всех счётчиков.
+         */
+        private boolean rescan = true;
+        /**
+         * Готовый список или null, если он устарел.
+         */
+        private long[] films;
+
+        private Entry(LongIntHashMap overlaps) {
+            this.overlaps = overlaps;
+        }
+    }
+
+    private record Scored(long id, long score) {
+    }
+
+    private record Ranking(LongHashSet neighbours, long[] films) {
+    }
+}
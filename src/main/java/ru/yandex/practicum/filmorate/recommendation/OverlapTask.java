@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * Число общих лайков пользователя с каждым, кто лайкнул хотя бы один из его фильмов: обход обратного
+ * индекса фильм → пользователи. Фильмы делятся пополам, пока на часть приходится больше
+ * {@link #MIN_WORK} лайков; счётчики частей сливаются меньший в больший.
+ * Индекс во время обхода не меняется: вызывающий держит блокировку чтения.
+ */
+final class OverlapTask extends RecursiveTask<LongIntHashMap> {
+
+    static final int MIN_WORK = 16_384;
+
+    private final long userId;
+    private final long[] films;
+    /**
+     * {@code work[i]} - сумма лайков фильмов {@code films[0..i)}.
+     */
+    private final long[] work;
+    private final LongFunction<LongHashSet> likers;
+    private final int from;
+    private final int to;
+
+    private OverlapTask(long userId, long[] films, long[] work, LongFunction<LongHashSet> likers, int from, int to) {
+        this.userId = userId;
+        this.films = films;
+        this.work = work;
+        this.likers = likers;
+        this.from = from;
+        this.to = to;
+    }
+
+    static OverlapTask of(long userId, long[] films, LongFunction<LongHashSet> likers) {
+        long[] work = new long[films.length + 1];
+        for (int i = 0; i < films.length; i++) {
+            work[i + 1] = work[i] + likers.apply(films[i]).size();
+        }
+        return new OverlapTask(userId, films, work, likers, 0, films.length);
+    }
+
+    @Override
+    protected LongIntHashMap compute() {
+        if (to - from > 1 && work[to] - work[from] > MIN_WORK) {
+            int middle = (from + to) >>> 1;
+            OverlapTask left = new OverlapTask(userId, films, work, likers, from, middle);
+            left.fork();
+            LongIntHashMap right = new OverlapTask(userId, films, work, likers, middle, to).compute();
+            LongIntHashMap merged = left.join();
+            if (merged.size() < right.size()) {
+                right.addAll(merged);
+                return right;
+            }
+            merged.addAll(right);
+            return merged;
+        }
+        LongIntHashMap overlaps = new LongIntHashMap((int) Math.min(work[to] - work[from], MIN_WORK));
+        for (int i = from; i < to; i++) {
+            likers.apply(films[i]).forEach(other -> {
+                if (other != userId) {
+                    overlaps.addTo(other, 1);
+                }
+            });
+        }
+        return overlaps;
+    }
+}
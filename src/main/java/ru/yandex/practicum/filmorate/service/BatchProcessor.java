@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.BatchException;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.exceptions.ErrorResponse;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Пакетная обработка: все элементы проверяются за один проход, затем пакет применяется целиком.
+ * Если хотя бы один элемент не прошёл, не сохраняется ни один.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchProcessor {
+
+    private static final String NOT_APPLIED = "Элемент не сохранён из-за ошибок в других элементах пакета";
+
+    private final Validator validator;
+
+    /**
+     * @param itemCheck дополнительная проверка элемента, возвращает текст ошибки или null
+     * @param writer    атомарная запись пакета; ошибки отдельных элементов сообщает через {@link BatchItemException}
+     */
+    public <T> List<BatchItemResult> process(List<T> items,
+                                             Function<T, String> itemCheck,
+                                             UnaryOperator<List<T>> writer) {
+        Map<Integer, Object> errors = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (item == null) {
+                errors.put(i, new ErrorResponse("Элемент пакета не может быть null"));
+                continue;
+            }
+            Map<String, String> fieldErrors = validate(item);
+            if (!fieldErrors.isEmpty()) {
+                errors.put(i, fieldErrors);
+                continue;
+            }
+            String error = itemCheck.apply(item);
+            if (error != null) {
+                errors.put(i, new ErrorResponse(error));
+            }
+        }
+        if (!errors.isEmpty()) {
+            log.warn("Пакет из {} элементов отклонён: ошибки валидации в {} элементах", items.size(), errors.size());
+            throw new BatchException(HttpStatus.BAD_REQUEST, rejected(items.size(), HttpStatus.BAD_REQUEST, errors));
+        }
+
+        List<T> saved;
+        try {
+            saved = writer.apply(items);
+        } catch (BatchItemException e) {
+            HttpStatus status = statusOf(e.getCause());
+            log.warn("Пакет из {} элементов отклонён: элемент {} - {}", items.size(), e.getIndex(), e.getMessage());
+            throw new BatchException(status,
+                    rejected(items.size(), status, Map.of(e.getIndex(), new ErrorResponse(e.getMessage()))));
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            results.add(new BatchItemResult(i, HttpStatus.OK.value(), saved.get(i)));
+        }
+        return results;
+    }
+
+    private <T> Map<String, String> validate(T item) {
+        Map<String, String> fieldErrors = new HashMap<>();
+        for (ConstraintViolation<T> violation : validator.validate(item)) {
+            fieldErrors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return fieldErrors;
+    }
+
+    private static List<BatchItemResult> rejected(int size, HttpStatus status, Map<Integer, Object> errors) {
+        List<BatchItemResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Object error = errors.get(i);
+            results.add(error != null
+                    ? new BatchItemResult(i, status.value(), error)
+                    : new BatchItemResult(i, HttpStatus.FAILED_DEPENDENCY.value(), new ErrorResponse(NOT_APPLIED)));
+        }
+        return results;
+    }
+
+    private static HttpStatus statusOf(Throwable cause) {
+        if (cause instanceof NotFoundException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (cause instanceof DuplicateException) {
+            return HttpStatus.CONFLICT;
+        }
+        return HttpStatus.BAD_REQUEST;
+    }
+}
@@ -0,0 +1,358 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.DumpSummary;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.dump.DumpFormatException;
+import ru.yandex.practicum.filmorate.storage.dump.DumpReader;
+import ru.yandex.practicum.filmorate.storage.dump.DumpWriter;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.LongIntHashMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Выгрузка всего каталога в файл и загрузка из него, минуя HTTP: фильмы, пользователи, лайки и дружба.
+ * Загрузка идёт в два прохода. Первый читает файл целиком, сверяет контрольную сумму, проверяет ограничения
+ * {@link Film} и {@link User}, уникальность email в файле и в хранилище и то, что лайки и дружба ссылаются
+ * на записи выше в файле. Второй сохраняет записи пакетами, поэтому повреждённый или невалидный файл
+ * не загружается совсем. Записи получают новые id в порядке файла, лайки и дружба переводятся на новые id.
+ * Загрузка останется частичной, только если email займёт параллельный запрос между проходами:
+ * она остановится на пакете с этим email, и ошибка сообщит, сколько записей уже сохранено.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogueTransfer {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeStorage likeStorage;
+    private final FriendStorage friendStorage;
+    private final Validator validator;
+
+    /**
+     * Пишет каталог во временный файл и заменяет им {@code file}, так что старая выгрузка не портится при сбое.
+     * Лайки и дружба пишутся только между выгруженными записями: созданные во время выгрузки в неё не попадут.
+     */
+    public DumpSummary export(Path file) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            DumpSummary summary;
+            try (DumpWriter writer = DumpWriter.create(temporary)) {
+                LongHashSet filmIds = new LongHashSet();
+                List<Film> films;
+                long afterId = 0;
+                do {
+                    films = filmStorage.findPage(afterId, PAGE_SIZE);
+                    for (Film film : films) {
+                        writer.write(film);
+                        filmIds.add(film.getId());
+                        afterId = film.getId();
+                    }
+                } while (films.size() == PAGE_SIZE);
+                LongHashSet userIds = new LongHashSet();
+                List<User> users;
+                afterId = 0;
+                do {
+                    users = userStorage.findPage(afterId, PAGE_SIZE);
+                    for (User user : users) {
+                        writer.write(user);
+                        userIds.add(user.getId());
+                        afterId = user.getId();
+                    }
+                } while (users.size() == PAGE_SIZE);
+                for (long filmId : filmIds.toSortedArray()) {
+                    for (long userId : likeStorage.findUserIds(filmId)) {
+                        if (userIds.contains(userId)) {
+                            writer.writeLike(filmId, userId);
+                        }
+                    }
+                }
+                for (long userId : userIds.toSortedArray()) {
+                    for (long friendId : friendStorage.findFriendIds(userId)) {
+                        if (friendId > userId && userIds.contains(friendId)) {
+                            writer.writeFriendship(userId, friendId);
+                        }
+                    }
+                }
+                summary = new DumpSummary(writer.films(), writer.users(), writer.likes(), writer.friendships(),
+                        writer.finish());
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Каталог выгружен в {}: {} фильмов, {} пользователей, {} лайков, {} пар друзей", file,
+                    summary.getFilms(), summary.getUsers(), summary.getLikes(), summary.getFriendships());
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось выгрузить каталог в " + file, e);
+        }
+    }
+
+    public DumpSummary load(Path file) {
+        return load(file, new Listener() {
+        });
+    }
+
+    /**
+     * @param listener получает сохранённые записи с новыми id сразу после сохранения каждого пакета
+     */
+    public DumpSummary load(Path file, Listener listener) {
+        try {
+            Check check = validate(file);
+            return save(file, check, listener);
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException("Файл выгрузки " + file.getFileName() + " не найден");
+        } catch (DumpFormatException e) {
+            throw new ValidationException(e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать выгрузку " + file, e);
+        }
+    }
+
+    private Check validate(Path file) throws IOException {
+        Check check = new Check();
+        try (DumpReader reader = DumpReader.open(file)) {
+            reader.read(check::film, check::user, check::like, check::friendship);
+        }
+        if (check.invalid > 0) {
+            log.warn("Выгрузка {} отклонена: {} записей не прошли проверку", file, check.invalid);
+            throw new ValidationException("Записей с ошибками: " + check.invalid + ". "
+                    + String.join("; ", check.errors));
+        }
+        if (check.takenEmail != null) {
+            log.warn("Выгрузка {} отклонена: {}", file, check.takenEmail);
+            throw new DuplicateException("Email уже используется: " + check.takenEmail);
+        }
+        return check;
+    }
+
+    private DumpSummary save(Path file, Check check, Listener listener) throws IOException {
+        Batch<Film> films = new Batch<>(filmStorage::createAll, Film::getId, listener::filmsSaved,
+                check.films, "фильма");
+        Batch<User> users = new Batch<>(userStorage::createAll, User::getId, listener::usersSaved,
+                check.users, "пользователя");
+        DumpSummary summary;
+        try (DumpReader reader = DumpReader.open(file)) {
+            summary = reader.read(film -> {
+                film.setId(null);
+                films.add(film);
+            }, user -> {
+                user.setId(null);
+                // как при создании через API: пустое имя заменяется логином
+                user.setName(user.getName());
+                users.add(user);
+            }, (filmId, userId) -> {
+                // лайки и дружба ссылаются на записи выше в файле: их пакеты сохраняются до первой связи
+                films.flush();
+                users.flush();
+                long newFilmId = films.newId(check.filmPositions.get(filmId));
+                long newUserId = users.newId(check.userPositions.get(userId));
+                if (likeStorage.addLike(newFilmId, newUserId)) {
+                    listener.liked(newFilmId, newUserId);
+                }
+            }, (userId, friendId) -> {
+                users.flush();
+                friendStorage.addFriend(users.newId(check.userPositions.get(userId)),
+                        users.newId(check.userPositions.get(friendId)));
+            });
+        }
+        films.flush();
+        users.flush();
+        log.info("Каталог загружен из {}: {} фильмов, {} пользователей, {} лайков, {} пар друзей", file,
+                summary.getFilms(), summary.getUsers(), summary.getLikes(), summary.getFriendships());
+        return summary;
+    }
+
+    /**
+     * Получатель записей, сохранённых загрузкой. Дружба не передаётся: у неё нет ленты изменений.
+     */
+    public interface Listener {
+
+        default void filmsSaved(List<Film> films) {
+        }
+
+        default void usersSaved(List<User> users) {
+        }
+
+        default void liked(long filmId, long userId) {
+        }
+    }
+
+    /**
+     * Первый проход загрузки: ошибки записей и позиции id в файле, по которым второй проход
+     * переводит лайки и дружбу на новые id. Позиция хранится с единицы: ноль означает, что id в файле нет.
+     */
+    private final class Check {
+
+        private final LongIntHashMap filmPositions = new LongIntHashMap();
+        private final LongIntHashMap userPositions = new LongIntHashMap();
+        private final Set<String> emails = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        private final List<String> errors = new ArrayList<>();
+        private int films;
+        private int users;
+        private long likes;
+        private long friendships;
+        private long invalid;
+        private String takenEmail;
+
+        void film(Film film) {
+            List<String> messages = violations(film);
+            addPosition(filmPositions, film.getId(), ++films, messages);
+            report("фильма", films - 1, messages);
+        }
+
+        void user(User user) {
+            List<String> messages = violations(user);
+            addPosition(userPositions, user.getId(), ++users, messages);
+            if (user.getEmail() != null) {
+                if (!emails.add(user.getEmail())) {
+                    messages.add("email " + user.getEmail() + " повторяется в выгрузке");
+                } else if (takenEmail == null && userStorage.isEmailTaken(user.getEmail())) {
+                    takenEmail = user.getEmail() + " (запись пользователя " + (users - 1) + ")";
+                }
+            }
+            report("пользователя", users - 1, messages);
+        }
+
+        void like(long filmId, long userId) {
+            List<String> messages = new ArrayList<>(2);
+            if (filmPositions.get(filmId) == 0) {
+                messages.add("фильма с id:" + filmId + " нет выше в выгрузке");
+            }
+            if (userPositions.get(userId) == 0) {
+                messages.add("пользователя с id:" + userId + " нет выше в выгрузке");
+            }
+            report("лайка", likes++, messages);
+        }
+
+        void friendship(long userId, long friendId) {
+            List<String> messages = new ArrayList<>(2);
+            if (userId == friendId) {
+                messages.add("пользователь не может дружить сам с собой");
+            }
+            for (long id : new long[]{userId, friendId}) {
+                if (userPositions.get(id) == 0) {
+                    messages.add("пользователя с id:" + id + " нет выше в выгрузке");
+                }
+            }
+            report("дружбы", friendships++, messages);
+        }
+
+        private <T> List<String> violations(T entity) {
+            List<String> messages = new ArrayList<>();
+            for (ConstraintViolation<T> violation : validator.validate(entity)) {
+                messages.add(violation.getPropertyPath() + ": " + violation.getMessage());
+            }
+            return messages;
+        }
+
+        private void addPosition(LongIntHashMap positions, long id, int position, List<String> messages) {
+            if (id <= 0) {
+                messages.add("некорректный id " + id);
+            } else if (positions.get(id) != 0) {
+                messages.add("id " + id + " повторяется в выгрузке");
+            } else {
+                positions.addTo(id, position);
+            }
+        }
+
+        private void report(String kind, long index, List<String> messages) {
+            if (!messages.isEmpty()) {
+                invalid++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("запись " + kind + " " + index + " - " + String.join(", ", messages));
+                }
+            }
+        }
+    }
+
+    /**
+     * Накопитель записей для пакетного сохранения. Запоминает новые id по позиции записи в файле.
+     */
+    private static final class Batch<T> {
+
+        private final Function<List<T>, List<T>> writer;
+        private final ToLongFunction<T> idOf;
+        private final Consumer<List<T>> onSaved;
+        private final long[] newIds;
+        private final String kind;
+        private List<T> pending = new ArrayList<>(PAGE_SIZE);
+        private int saved;
+
+        Batch(Function<List<T>, List<T>> writer, ToLongFunction<T> idOf, Consumer<List<T>> onSaved, int total,
+              String kind) {
+            this.writer = writer;
+            this.idOf = idOf;
+            this.onSaved = onSaved;
+            this.newIds = new long[total];
+            this.kind = kind;
+        }
+
+        void add(T entity) {
+            if (saved + pending.size() == newIds.length) {
+                throw new ValidationException("Файл выгрузки изменился во время загрузки");
+            }
+            pending.add(entity);
+            if (pending.size() == PAGE_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * @param position позиция записи в файле, с единицы
+         */
+        long newId(int position) {
+            return newIds[position - 1];
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<T> created;
+            try {
+                created = writer.apply(pending);
+            } catch (BatchItemException e) {
+                String message = "Запись " + kind + " " + (saved + e.getIndex()) + ": " + e.getMessage()
+                        + ". Загрузка прервана, сохранено записей " + kind + " до неё: " + saved;
+                if (e.getCause() instanceof DuplicateException) {
+                    throw new DuplicateException(message);
+                }
+                throw new ValidationException(message);
+            }
+            for (T entity : created) {
+                newIds[saved++] = idOf.applyAsLong(entity);
+            }
+            onSaved.accept(created);
+            pending = new ArrayList<>(PAGE_SIZE);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmRangeIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilmService {
+
+    private final FilmStorage filmStorage;
+    private final LikeStorage likeStorage;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmRangeIndex filmRangeIndex;
+    private final MergePatcher mergePatcher;
+    private final UserDirectory userDirectory;
+
+    public Collection<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    public List<Film> findPage(long afterId, int limit) {
+        return filmStorage.findPage(afterId, limit);
+    }
+
+    /**
+     * Страница фильмов, подходящих под фильтр, в порядке id. Кандидаты берутся из индекса,
+     * каждый фильм перепроверяется целиком: индекс мог выбрать только один из диапазонов.
+     */
+    public List<Film> findPage(FilmFilter filter, long afterId, int limit) {
+        PrimitiveIterator.OfLong candidates = filmRangeIndex.findCandidates(filter, afterId);
+        List<Film> page = new ArrayList<>();
+        while (candidates.hasNext() && page.size() < limit) {
+            filmStorage.findById(candidates.nextLong())
+                    .filter(filter::matches)
+                    .ifPresent(page::add);
+        }
+        return page;
+    }
+
+    public Film findById(long id) {
+        return filmStorage.findById(id)
+                .orElseThrow(() -> new NotFoundException("Фильм с id:" + id + " не найден"));
+    }
+
+    public long version() {
+        return filmStorage.version();
+    }
+
+    public Film create(Film film) {
+        return filmStorage.create(film);
+    }
+
+    public Film update(Film film) {
+        return filmStorage.update(film);
+    }
+
+    public Film update(Film film, LongPredicate expectedVersion) {
+        return filmStorage.update(film, expectedVersion);
+    }
+
+    /**
+     * Применяет JSON Merge Patch к фильму, проверяя только изменённые поля.
+     */
+    public Film patch(long id, ObjectNode patch, LongPredicate expectedVersion) {
+        return filmStorage.patch(id, mergePatcher.changes(patch, Film.class, id), expectedVersion);
+    }
+
+    public List<Film> createAll(List<Film> films) {
+        return filmStorage.createAll(films);
+    }
+
+    public List<Film> updateAll(List<Film> films) {
+        return filmStorage.updateAll(films);
+    }
+
+    /**
+     * Поиск по словам названия и описания, лучшие совпадения первыми.
+     */
+    public List<Film> search(String query, int limit) {
+        List<Film> found = new ArrayList<>(limit);
+        for (Long filmId : filmSearchIndex.search(query, limit)) {
+            filmStorage.findById(filmId).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    /**
+     * @return {@code false}, если лайк уже стоял
+     */
+    public boolean addLike(long filmId, long userId) {
+        checkFilmAndUser(filmId, userId);
+        if (!likeStorage.addLike(filmId, userId)) {
+            return false;
+        }
+        log.info("Пользователь с id:{} поставил лайк фильму с id:{}", userId, filmId);
+        return true;
+    }
+
+    /**
+     * @return {@code false}, если лайка не было
+     */
+    public boolean removeLike(long filmId, long userId) {
+        checkFilmAndUser(filmId, userId);
+        if (!likeStorage.removeLike(filmId, userId)) {
+            return false;
+        }
+        log.info("Пользователь с id:{} убрал лайк с фильма с id:{}", userId, filmId);
+        return true;
+    }
+
+    /**
+     * Самые популярные фильмы. Если фильмов с лайками меньше {@code count},
+     * список дополняется фильмами без лайков в порядке id.
+     */
+    public List<Film> getPopular(int count) {
+        List<Film> popular = new ArrayList<>(count);
+        Set<Long> included = new HashSet<>();
+        for (Long filmId : likeStorage.findMostLiked(count)) {
+            filmStorage.findById(filmId).ifPresent(film -> {
+                popular.add(film);
+                included.add(filmId);
+            });
+        }
+        long afterId = 0;
+        while (popular.size() < count) {
+            List<Film> page = filmStorage.findPage(afterId, count);
+            for (Film film : page) {
+                if (popular.size() == count) {
+                    break;
+                }
+                if (!included.contains(film.getId()) && likeStorage.countLikes(film.getId()) == 0) {
+                    popular.add(film);
+                }
+            }
+            if (page.size() < count) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        return popular;
+    }
+
+    private void checkFilmAndUser(long filmId, long userId) {
+        if (!filmStorage.exists(filmId)) {
+            throw new NotFoundException("Фильм с id:" + filmId + " не найден");
+        }
+        if (!userDirectory.exists(userId)) {
+            throw new NotFoundException("Пользователь с id:" + userId + " не найден");
+        }
+    }
+}
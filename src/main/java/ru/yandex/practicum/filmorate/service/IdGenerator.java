@@ -1,13 +1,96 @@
 package ru.yandex.practicum.filmorate.service;
 
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Последовательность идентификаторов для одного типа сущностей.
+ * Выдача id не зависит от размера хранилища и безопасна при параллельных вызовах.
+ * <p>
+ * Раздел id - остаток от деления на число разделов. Генератор выдаёт id только из своих разделов,
+ * по возрастанию: внутри хранится порядковый номер среди своих id, а id вычисляется из него.
+ * Если свои все разделы, номер и id совпадают.
+ */
 public class IdGenerator {
-    public Long getNextId(Collection<Long> ids) {
-        long currentMaxId = ids.stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
-    }
-}
\ No newline at end of file
+
+    private final AtomicLong currentRank = new AtomicLong();
+    private final int partitions;
+    private final int[] ownedPartitions;
+
+    public IdGenerator() {
+        this(1, new int[]{0});
+    }
+
+    /**
+     * @param ownedPartitions свои разделы по возрастанию
+     */
+    public IdGenerator(int partitions, int[] ownedPartitions) {
+        if (ownedPartitions.length == 0) {
+            throw new IllegalArgumentException("Генератору нужен хотя бы один раздел");
+        }
+        for (int i = 0; i < ownedPartitions.length; i++) {
+            if (ownedPartitions[i] < 0 || ownedPartitions[i] >= partitions
+                    || i > 0 && ownedPartitions[i] <= ownedPartitions[i - 1]) {
+                throw new IllegalArgumentException("Разделы должны идти по возрастанию в пределах [0, "
+                        + partitions + "): " + Arrays.toString(ownedPartitions));
+            }
+        }
+        this.partitions = partitions;
+        this.ownedPartitions = ownedPartitions.clone();
+    }
+
+    public long getNextId() {
+        return toId(currentRank.incrementAndGet());
+    }
+
+    /**
+     * Резервирует непрерывный блок из {@code count} идентификаторов.
+     * Остальные id блока выдаёт {@link #idAt}.
+     *
+     * @return первый id блока
+     */
+    public long reserveBlock(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным");
+        }
+        return toId(currentRank.getAndAdd(count) + 1);
+    }
+
+    /**
+     * Id блока, начатого {@code firstId}, со смещением {@code offset}.
+     */
+    public long idAt(long firstId, int offset) {
+        return toId(toRank(firstId) + offset);
+    }
+
+    /**
+     * Сдвигает последовательность так, чтобы следующий id был больше {@code usedId}.
+     * Используется при загрузке уже существующих данных.
+     */
+    public void seed(long usedId) {
+        currentRank.accumulateAndGet(toRank(usedId), Math::max);
+    }
+
+    public long getCurrentId() {
+        return toId(currentRank.get());
+    }
+
+    private long toId(long rank) {
+        if (ownedPartitions.length == partitions) {
+            return rank;
+        }
+        return rank / ownedPartitions.length * partitions + ownedPartitions[(int) (rank % ownedPartitions.length)];
+    }
+
+    /**
+     * Номер наибольшего своего id, не превышающего {@code id}.
+     */
+    private long toRank(long id) {
+        if (ownedPartitions.length == partitions) {
+            return id;
+        }
+        int index = Arrays.binarySearch(ownedPartitions, (int) (id % partitions));
+        int ownedUpTo = index >= 0 ? index + 1 : -index - 1;
+        return id / partitions * ownedPartitions.length + ownedUpTo - 1;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * Частичное изменение сущности по JSON Merge Patch (RFC 7386): поле из патча заменяет текущее значение,
+ * null очищает его, отсутствующие поля не меняются. Проверяются только изменённые поля,
+ * поэтому правка одного поля не упирается в старые значения остальных.
+ */
+@Component
+@RequiredArgsConstructor
+public class MergePatcher {
+
+    private static final String ID = "id";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    /**
+     * Проверяет форму патча сразу, а возвращает функцию, которую хранилище применяет к текущей сущности
+     * под своей блокировкой. Функция не меняет переданный объект, а собирает новый.
+     */
+    public <T> UnaryOperator<T> changes(ObjectNode patch, Class<T> type, long id) {
+        JsonNode patchId = patch.get(ID);
+        if (patchId != null && !(patchId.canConvertToLong() && patchId.asLong() == id)) {
+            throw new ValidationException("Id в теле запроса не совпадает с id в пути: " + patchId);
+        }
+        return current -> apply(current, patch, type);
+    }
+
+    private <T> T apply(T current, ObjectNode patch, Class<T> type) {
+        ObjectNode merged = objectMapper.valueToTree(current);
+        Set<String> changed = new TreeSet<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            if (name.equals(ID)) {
+                continue;
+            }
+            if (!merged.has(name)) {
+                throw new ValidationException("Неизвестное поле: " + name);
+            }
+            if (!field.getValue().equals(merged.get(name))) {
+                merged.set(name, field.getValue());
+                changed.add(name);
+            }
+        }
+
+        T patched;
+        try {
+            patched = objectMapper.treeToValue(merged, type);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new ValidationException("Некорректное значение в полях " + changed);
+        }
+        List<String> errors = new ArrayList<>();
+        for (String name : changed) {
+            for (ConstraintViolation<T> violation : validator.validateProperty(patched, name)) {
+                errors.add(name + ": " + violation.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException(String.join("; ", errors));
+        }
+        return patched;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cluster.ClusterClient;
+import ru.yandex.practicum.filmorate.cluster.ClusterTopology;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пользователи и их друзья во всём кластере: свои берутся из хранилищ, чужие запрашиваются
+ * у узла-владельца. Вне кластера - тонкая обёртка над хранилищами.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserDirectory {
+
+    private final UserStorage userStorage;
+    private final FriendStorage friendStorage;
+    private final ClusterTopology topology;
+    private final ObjectProvider<ClusterClient> clusterClient;
+
+    public boolean exists(long id) {
+        if (topology.isLocal(id)) {
+            return userStorage.exists(id);
+        }
+        return !clusterClient.getObject().findUsers(topology.ownerOf(id), new long[]{id}).isEmpty();
+    }
+
+    /**
+     * Пользователи в порядке {@code ids}; отсутствующие пропускаются. Чужие запрашиваются одним вызовом на узел.
+     */
+    public List<User> findAll(long[] ids) {
+        Map<URI, List<Long>> remote = new LinkedHashMap<>();
+        Map<Long, User> found = new HashMap<>();
+        for (long id : ids) {
+            if (topology.isLocal(id)) {
+                userStorage.findById(id).ifPresent(user -> found.put(id, user));
+            } else {
+                remote.computeIfAbsent(topology.ownerOf(id), owner -> new ArrayList<>()).add(id);
+            }
+        }
+        remote.forEach((owner, ownerIds) -> clusterClient.getObject()
+                .findUsers(owner, ownerIds.stream().mapToLong(Long::longValue).toArray())
+                .forEach(user -> found.put(user.getId(), user)));
+        List<User> users = new ArrayList<>(found.size());
+        for (long id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    public long[] findCommonFriendIds(long userId, long otherId) {
+        if (topology.isLocal(userId) && topology.isLocal(otherId)) {
+            return friendStorage.findCommonFriendIds(userId, otherId);
+        }
+        return SortedLongArrays.intersect(findFriendIds(userId), findFriendIds(otherId));
+    }
+
+    /**
+     * Повторяет изменение дружбы на узле второго пользователя, если он чужой.
+     * Дружба хранится у владельцев обоих пользователей, поэтому каждый видит полный список своих друзей.
+     */
+    public void mirrorFriendship(long userId, long friendId, boolean added) {
+        if (!topology.isLocal(friendId)) {
+            clusterClient.getObject().mirrorFriendship(topology.ownerOf(friendId), friendId, userId, added);
+        }
+    }
+
+    private long[] findFriendIds(long userId) {
+        if (topology.isLocal(userId)) {
+            return friendStorage.findFriendIds(userId);
+        }
+        return clusterClient.getObject().findFriendIds(topology.ownerOf(userId), userId);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendation.FilmRecommender;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserService {
+
+    private final UserStorage userStorage;
+    private final FriendStorage friendStorage;
+    private final MergePatcher mergePatcher;
+    private final UserDirectory userDirectory;
+    private final FilmStorage filmStorage;
+    private final FilmRecommender filmRecommender;
+
+    public Collection<User> findAll() {
+        return userStorage.findAll();
+    }
+
+    public List<User> findPage(long afterId, int limit) {
+        return userStorage.findPage(afterId, limit);
+    }
+
+    public User findById(long id) {
+        return userStorage.findById(id)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id:" + id + " не найден"));
+    }
+
+    public long version() {
+        return userStorage.version();
+    }
+
+    public User create(User user) {
+        return userStorage.create(user);
+    }
+
+    public User update(User user) {
+        return userStorage.update(user);
+    }
+
+    public User update(User user, LongPredicate expectedVersion) {
+        return userStorage.update(user, expectedVersion);
+    }
+
+    /**
+     * Применяет JSON Merge Patch к пользователю, проверяя только изменённые поля.
+     */
+    public User patch(long id, ObjectNode patch, LongPredicate expectedVersion) {
+        UnaryOperator<User> change = mergePatcher.changes(patch, User.class, id);
+        return userStorage.patch(id, current -> {
+            User user = change.apply(current);
+            // как при создании: очищенное имя заменяется логином, уже с учётом нового логина
+            user.setName(user.getName());
+            return user;
+        }, expectedVersion);
+    }
+
+    public List<User> createAll(List<User> users) {
+        return userStorage.createAll(users);
+    }
+
+    public List<User> updateAll(List<User> users) {
+        return userStorage.updateAll(users);
+    }
+
+    public void addFriend(long userId, long friendId) {
+        checkFriendPair(userId, friendId);
+        if (friendStorage.addFriend(userId, friendId)) {
+            try {
+                userDirectory.mirrorFriendship(userId, friendId, true);
+            } catch (RuntimeException e) {
+                friendStorage.removeFriend(userId, friendId);
+                throw e;
+            }
+            log.info("Пользователи с id:{} и id:{} стали друзьями", userId, friendId);
+        }
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        checkFriendPair(userId, friendId);
+        if (friendStorage.removeFriend(userId, friendId)) {
+            try {
+                userDirectory.mirrorFriendship(userId, friendId, false);
+            } catch (RuntimeException e) {
+                friendStorage.addFriend(userId, friendId);
+                throw e;
+            }
+            log.info("Пользователи с id:{} и id:{} больше не друзья", userId, friendId);
+        }
+    }
+
+    public List<User> getFriends(long userId) {
+        checkUserExists(userId);
+        return userDirectory.findAll(friendStorage.findFriendIds(userId));
+    }
+
+    public List<User> getCommonFriends(long userId, long otherId) {
+        checkUserExists(userId);
+        checkUserExists(otherId);
+        return userDirectory.findAll(userDirectory.findCommonFriendIds(userId, otherId));
+    }
+
+    /**
+     * Фильмы, которые лайкали пользователи со схожими вкусами, а сам пользователь - нет.
+     */
+    public List<Film> getRecommendations(long userId, int count) {
+        checkUserExists(userId);
+        List<Film> films = new ArrayList<>(count);
+        for (long filmId : filmRecommender.recommend(userId, count)) {
+            filmStorage.findById(filmId).ifPresent(films::add);
+        }
+        return films;
+    }
+
+    private void checkFriendPair(long userId, long friendId) {
+        if (userId == friendId) {
+            throw new ValidationException("Пользователь не может добавить в друзья самого себя");
+        }
+        checkUserExists(userId);
+        checkUserExists(friendId);
+    }
+
+    private void checkUserExists(long userId) {
+        if (!userDirectory.exists(userId)) {
+            log.error("Пользователь с id:{} не найден", userId);
+            throw new NotFoundException("Пользователь с id:" + userId + " не найден");
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cluster.ClusterTopology;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.index.FilmIndex;
+import ru.yandex.practicum.filmorate.storage.persistence.EntityJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+import ru.yandex.practicum.filmorate.util.Utf8Arena;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище фильмов в колонках примитивов: номер строки - id фильма, дата релиза - день эпохи,
+ * название и описание - ссылки на UTF-8 в {@link Utf8Arena}. Объекты {@link Film} собираются только при чтении,
+ * поэтому на фильм уходит несколько десятков байт плюс текст вместо нескольких сотен в {@link InMemoryFilmStorage}.
+ * <p>
+ * Запись берёт общую блокировку {@link StampedLock}, журнал и индексы обновляются под ней.
+ * Изменение, которое не удалось записать в журнал, откатывается под той же блокировкой.
+ * Чтение оптимистичное: колонки читаются без блокировки и перечитываются под блокировкой чтения,
+ * только если между делом прошла запись. Текст декодируется уже после проверки - строки в арене не меняются.
+ * Включается свойством {@code filmorate.storage.film-layout=columnar}.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${filmorate.storage.type:memory}' == 'memory'"
+        + " and '${filmorate.storage.film-layout:objects}' == 'columnar'")
+public class ColumnarFilmStorage implements FilmStorage {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final long MIN_GARBAGE_TO_COMPACT = 1 << 20;
+
+    private final StampedLock lock = new StampedLock();
+    private final IdGenerator idGenerator;
+    private final AtomicLong version = new AtomicLong();
+    private final List<FilmIndex> indexes;
+    private final EntityJournal<Film> journal;
+
+    // колонки меняются только под блокировкой записи; версия 0 - фильма с таким id нет
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int[] releaseDays = new int[INITIAL_CAPACITY];
+    private int[] durations = new int[INITIAL_CAPACITY];
+    private long[] names = new long[INITIAL_CAPACITY];
+    private long[] descriptions = new long[INITIAL_CAPACITY];
+    private Utf8Arena strings = new Utf8Arena();
+    private long garbageBytes;
+    private volatile int count;
+    private volatile long maxId;
+
+    public ColumnarFilmStorage(JournalFactory journalFactory, List<FilmIndex> indexes) {
+        this(journalFactory, indexes, ClusterTopology.single());
+    }
+
+    @Autowired
+    public ColumnarFilmStorage(JournalFactory journalFactory, List<FilmIndex> indexes, ClusterTopology topology) {
+        this.indexes = List.copyOf(indexes);
+        this.idGenerator = topology.newIdGenerator();
+        this.journal = journalFactory.open("films", Film.class, this::restore);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Collection<Film> findAll() {
+        return toFilms(read(() -> rows(0, Integer.MAX_VALUE)));
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> findPage(long afterId, int limit) {
+        return toFilms(read(() -> rows(afterId, limit)));
+    }
+
+    @Override
+    public Optional<Film> findById(long id) {
+        return Optional.ofNullable(read(() -> row(id))).map(Row::toFilm);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film create(Film film) {
+        film.setId(idGenerator.getNextId());
+        List<Change> written = new ArrayList<>(1);
+        long stamp = lock.writeLock();
+        try {
+            insert(film, written);
+            version.incrementAndGet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        awaitAll(written);
+        log.debug("Фильм с id:{} сохранён", film.getId());
+        return film;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film update(Film film) {
+        return update(film, anyVersion -> true);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film update(Film film, LongPredicate expectedVersion) {
+        if (film.getId() == null) {
+            throw new NotFoundException("Фильм с id:" + film.getId() + " не найден");
+        }
+        return patch(film.getId(), current -> film, expectedVersion);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film patch(long id, UnaryOperator<Film> change, LongPredicate expectedVersion) {
+        List<Change> written = new ArrayList<>(1);
+        Film film;
+        long stamp = lock.writeLock();
+        try {
+            if (!replace(id, change, expectedVersion, written)) {
+                throw new NotFoundException("Фильм с id:" + id + " не найден");
+            }
+            film = written.get(0).film();
+            version.incrementAndGet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        awaitAll(written);
+        log.debug("Фильм с id:{} обновлён", id);
+        return film;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> createAll(List<Film> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        long firstId = idGenerator.reserveBlock(batch.size());
+        List<Change> written = new ArrayList<>(batch.size());
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Film film = batch.get(i);
+                film.setId(idGenerator.idAt(firstId, i));
+                film.setVersion(1);
+                ensureCapacity(film.getId());
+            }
+            CompletableFuture<Void> batchWritten = journal.appendAll(batch, Film::getId);
+            batch.forEach(film -> apply(new Change(null, film, batchWritten), written));
+            version.incrementAndGet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        awaitAll(written);
+        log.debug("Сохранён пакет из {} фильмов", batch.size());
+        return batch;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> updateAll(List<Film> batch) {
+        List<Change> written = new ArrayList<>(batch.size());
+        long stamp = lock.writeLock();
+        try {
+            List<Film> oldFilms = new ArrayList<>(batch.size());
+            Set<Long> batchIds = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Long id = batch.get(i).getId();
+                if (id == null || versionOf(id) == 0) {
+                    throw new BatchItemException(i, new NotFoundException("Фильм с id:" + id + " не найден"));
+                }
+                if (!batchIds.add(id)) {
+                    throw new BatchItemException(i, new ValidationException("Фильм с id:" + id
+                            + " встречается в пакете несколько раз"));
+                }
+                oldFilms.add(row(id).toFilm());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setVersion(oldFilms.get(i).getVersion() + 1);
+            }
+            CompletableFuture<Void> batchWritten = journal.appendAll(batch, Film::getId);
+            for (int i = 0; i < batch.size(); i++) {
+                apply(new Change(oldFilms.get(i), batch.get(i), batchWritten), written);
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        awaitAll(written);
+        log.debug("Обновлён пакет из {} фильмов", batch.size());
+        return batch;
+    }
+
+    @Override
+    public boolean exists(long id) {
+        return read(() -> versionOf(id)) != 0;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    private void insert(Film film, List<Change> written) {
+        ensureCapacity(film.getId());
+        film.setVersion(1);
+        apply(new Change(null, film, journal.append(film.getId(), film)), written);
+    }
+
+    private boolean replace(long id, UnaryOperator<Film> change, LongPredicate expectedVersion,
+                            List<Change> written) {
+        long currentVersion = versionOf(id);
+        if (currentVersion == 0) {
+            return false;
+        }
+        if (!expectedVersion.test(currentVersion)) {
+            throw new PreconditionFailedException("Фильм с id:" + id + " уже изменён другим запросом");
+        }
+        // собранный из колонок фильм - отдельный объект, изменение его не затронет хранилище
+        Film oldFilm = row(id).toFilm();
+        Film film = change.apply(oldFilm);
+        film.setId(id);
+        film.setVersion(currentVersion + 1);
+        apply(new Change(oldFilm, film, journal.append(id, film)), written);
+        return true;
+    }
+
+    /**
+     * Записывает в колонки и индексы изменение, уже поставленное в журнал. Место под строку выделено заранее.
+     */
+    private void apply(Change change, List<Change> written) {
+        Film film = change.film();
+        int row = film.getId().intValue();
+        written.add(change);
+        if (change.previous() != null) {
+            garbageBytes += Utf8Arena.length(names[row]) + Utf8Arena.length(descriptions[row]);
+        }
+        write(row, film);
+        indexes.forEach(index -> index.update(change.previous(), film));
+        if (change.previous() != null) {
+            compactIfWasteful();
+        }
+    }
+
+    /**
+     * Возвращает строку к состоянию до изменения. После ошибки журнал отклоняет все записи,
+     * поэтому более поздние изменения того же фильма тоже откатываются, и порядок откатов не важен:
+     * если в строке уже более ранняя версия, раньше выполнился откат предыдущего изменения.
+     */
+    private void undo(Change change) {
+        long id = change.film().getId();
+        if (versionOf(id) < change.film().getVersion()) {
+            return;
+        }
+        int row = (int) id;
+        Film current = row(id).toFilm();
+        Film previous = change.previous();
+        garbageBytes += Utf8Arena.length(names[row]) + Utf8Arena.length(descriptions[row]);
+        if (previous == null) {
+            versions[row] = 0;
+            count--;
+        } else {
+            write(row, previous);
+        }
+        indexes.forEach(index -> index.update(current, previous));
+        log.warn("Изменение фильма с id:{} не записано в журнал и откачено", id);
+    }
+
+    private void restore(Film film) {
+        int row = ensureCapacity(film.getId());
+        long oldVersion = versions[row];
+        Film oldFilm = oldVersion == 0 || indexes.isEmpty() ? null : row(film.getId()).toFilm();
+        if (oldVersion != 0) {
+            garbageBytes += Utf8Arena.length(names[row]) + Utf8Arena.length(descriptions[row]);
+        }
+        film.setVersion(oldVersion + 1);
+        write(row, film);
+        indexes.forEach(index -> index.update(oldFilm, film));
+        idGenerator.seed(film.getId());
+        compactIfWasteful();
+    }
+
+    private void write(int row, Film film) {
+        boolean added = versions[row] == 0;
+        releaseDays[row] = film.getReleaseDate() == null ? NO_VALUE : (int) film.getReleaseDate().toEpochDay();
+        durations[row] = film.getDuration() == null ? NO_VALUE : film.getDuration();
+        names[row] = strings.add(film.getName());
+        descriptions[row] = strings.add(film.getDescription());
+        versions[row] = film.getVersion();
+        if (added) {
+            count++;
+            maxId = Math.max(maxId, row);
+        }
+    }
+
+    private int ensureCapacity(long id) {
+        if (id >= Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Id фильма " + id + " не помещается в колоночное хранилище");
+        }
+        int row = (int) id;
+        if (row >= versions.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(row + 1L, versions.length * 2L));
+            versions = Arrays.copyOf(versions, capacity);
+            releaseDays = Arrays.copyOf(releaseDays, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            names = Arrays.copyOf(names, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        return row;
+    }
+
+    /**
+     * Старые строки остаются в арене после замены. Когда мусора больше, чем живого текста,
+     * живые строки переписываются в новую арену; читатели дочитывают старую по своим ссылкам.
+     */
+    private void compactIfWasteful() {
+        long allocated = strings.allocatedBytes();
+        if (garbageBytes < MIN_GARBAGE_TO_COMPACT || garbageBytes * 2 < allocated) {
+            return;
+        }
+        Utf8Arena compacted = new Utf8Arena();
+        for (int row = 1; row <= maxId; row++) {
+            if (versions[row] != 0) {
+                names[row] = compacted.copyFrom(strings, names[row]);
+                descriptions[row] = compacted.copyFrom(strings, descriptions[row]);
+            }
+        }
+        strings = compacted;
+        garbageBytes = 0;
+        log.debug("Арена строк фильмов сжата: {} -> {} байт", allocated, compacted.allocatedBytes());
+    }
+
+    private long versionOf(long id) {
+        long[] column = versions;
+        return id > 0 && id < column.length ? column[(int) id] : 0;
+    }
+
+    /**
+     * Читает колонки оптимистично, при параллельной записи - повторно под блокировкой чтения.
+     * Чтение колонок без блокировки может увидеть их в промежуточном состоянии, поэтому все индексы проверяются.
+     */
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            T result = reader.get();
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Row row(long id) {
+        long[] versionColumn = versions;
+        int[] releaseColumn = releaseDays;
+        int[] durationColumn = durations;
+        long[] nameColumn = names;
+        long[] descriptionColumn = descriptions;
+        if (id <= 0 || id >= Math.min(Math.min(versionColumn.length, releaseColumn.length),
+                Math.min(durationColumn.length, Math.min(nameColumn.length, descriptionColumn.length)))) {
+            return null;
+        }
+        int row = (int) id;
+        long rowVersion = versionColumn[row];
+        if (rowVersion == 0) {
+            return null;
+        }
+        return new Row(id, rowVersion, releaseColumn[row], durationColumn[row],
+                nameColumn[row], descriptionColumn[row], strings);
+    }
+
+    private List<Row> rows(long afterId, int limit) {
+        long last = maxId;
+        List<Row> page = new ArrayList<>(Math.min(limit, count));
+        for (long id = Math.max(afterId, 0) + 1; id <= last && page.size() < limit; id++) {
+            Row row = row(id);
+            if (row != null) {
+                page.add(row);
+            }
+        }
+        return page;
+    }
+
+    private static List<Film> toFilms(List<Row> rows) {
+        List<Film> films = new ArrayList<>(rows.size());
+        rows.forEach(row -> films.add(row.toFilm()));
+        return films;
+    }
+
+    /**
+     * Ждёт записи изменений на диск. Изменения, которые записать не удалось, откатываются в обратном порядке.
+     */
+    private void awaitAll(List<Change> written) {
+        try {
+            CompletableFuture.allOf(written.stream().map(Change::written).toArray(CompletableFuture[]::new)).join();
+        } catch (RuntimeException e) {
+            long stamp = lock.writeLock();
+            try {
+                for (int i = written.size() - 1; i >= 0; i--) {
+                    if (written.get(i).written().isCompletedExceptionally()) {
+                        undo(written.get(i));
+                    }
+                }
+                version.incrementAndGet();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Снимок строки таблицы; текст декодируется из арены, действовавшей на момент снимка.
+     */
+    private record Row(long id, long version, int releaseDay, int duration,
+                       long name, long description, Utf8Arena strings) {
+
+        Film toFilm() {
+            Film film = new Film();
+            film.setId(id);
+            film.setName(strings.get(name));
+            film.setDescription(strings.get(description));
+            film.setReleaseDate(releaseDay == NO_VALUE ? null : LocalDate.ofEpochDay(releaseDay));
+            film.setDuration(duration == NO_VALUE ? null : duration);
+            film.setVersion(version);
+            return film;
+        }
+    }
+
+    /**
+     * Изменение, поставленное в журнал: прежнее состояние (null для нового фильма) и новое.
+     */
+    private record Change(Film previous, Film film, CompletableFuture<Void> written) {
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Индекс занятых email: email - id владельца. Сравнение идёт без учёта регистра
+ * посимвольно через {@link String#CASE_INSENSITIVE_ORDER}, поэтому ни поиск, ни запись
+ * не создают строк в нижнем регистре. Все операции атомарны относительно друг друга.
+ */
+@Slf4j
+@Component
+public class EmailIndex {
+
+    private final ConcurrentNavigableMap<String, Long> owners =
+            new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Закрепляет email за пользователем. Повторное резервирование тем же владельцем допустимо.
+     *
+     * @throws DuplicateException если email занят другим пользователем
+     */
+    public void reserve(String email, long userId) {
+        if (email == null) {
+            throw new NullPointerException("Email не может быть null");
+        }
+        Long owner = owners.putIfAbsent(email, userId);
+        if (owner != null && owner != userId) {
+            log.warn("Пользователь с email:{} уже был добавлен", email);
+            throw new DuplicateException("Email уже используется");
+        }
+    }
+
+    /**
+     * Переводит пользователя на новый email: сначала резервирует новый, затем освобождает старый.
+     * Если новый занят, старый остаётся за пользователем.
+     */
+    public void swap(String oldEmail, String newEmail, long userId) {
+        if (oldEmail != null && oldEmail.equalsIgnoreCase(newEmail)) {
+            return;
+        }
+        reserve(newEmail, userId);
+        if (oldEmail != null) {
+            release(oldEmail, userId);
+        }
+    }
+
+    /**
+     * Освобождает email, только если он принадлежит указанному пользователю.
+     */
+    public void release(String email, long userId) {
+        owners.remove(email, userId);
+    }
+
+    public boolean isTaken(String email) {
+        return owners.containsKey(email);
+    }
+
+    public int size() {
+        return owners.size();
+    }
+
+    /**
+     * Ключ, одинаковый для адресов, которые индекс считает равными: каждый символ приводится так же,
+     * как при сравнении {@link String#CASE_INSENSITIVE_ORDER}. {@link String#toLowerCase} для этого не годится:
+     * он зависит от контекста и для некоторых символов (например, İ) меняет длину строки.
+     */
+    public static String normalize(String email) {
+        StringBuilder key = new StringBuilder(email.length());
+        email.codePoints().forEach(ch -> key.appendCodePoint(Character.toLowerCase(Character.toUpperCase(ch))));
+        return key.toString();
+    }
+}
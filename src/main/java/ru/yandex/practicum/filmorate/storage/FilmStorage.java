@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+public interface FilmStorage {
+
+    Collection<Film> findAll();
+
+    /**
+     * Страница по возрастанию id: до {@code limit} записей с id больше {@code afterId}.
+     */
+    List<Film> findPage(long afterId, int limit);
+
+    Optional<Film> findById(long id);
+
+    /**
+     * Присваивает фильму новый id и сохраняет его.
+     */
+    Film create(Film film);
+
+    /**
+     * Заменяет существующий фильм.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.NotFoundException если фильма с таким id нет
+     */
+    Film update(Film film);
+
+    /**
+     * Заменяет существующий фильм, если его текущая версия проходит проверку. Проверка и замена атомарны.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException если версия не подошла
+     */
+    Film update(Film film, LongPredicate expectedVersion);
+
+    /**
+     * Частично меняет фильм: {@code change} получает текущий фильм и возвращает новый, не меняя переданный.
+     * Чтение, изменение и запись идут под блокировкой фильма, поэтому параллельные правки разных полей не теряются.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.NotFoundException если фильма с таким id нет
+     * @throws ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException если версия не подошла
+     */
+    Film patch(long id, UnaryOperator<Film> change, LongPredicate expectedVersion);
+
+    /**
+     * Сохраняет пакет новых фильмов с непрерывным блоком id.
+     */
+    List<Film> createAll(List<Film> films);
+
+    /**
+     * Атомарно заменяет пакет существующих фильмов: если хотя бы одного нет, не меняется ни один.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.BatchItemException если элемент не найден
+     */
+    List<Film> updateAll(List<Film> films);
+
+    boolean exists(long id);
+
+    int size();
+
+    /**
+     * Версия всей коллекции: растёт при каждом создании и изменении фильма.
+     */
+    long version();
+}
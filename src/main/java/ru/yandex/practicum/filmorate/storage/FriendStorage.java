@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Дружба взаимна: добавление и удаление меняют списки обоих пользователей.
+ */
+public interface FriendStorage {
+
+    /**
+     * @return true, если пользователи ещё не были друзьями
+     */
+    boolean addFriend(long userId, long friendId);
+
+    /**
+     * @return true, если пользователи были друзьями
+     */
+    boolean removeFriend(long userId, long friendId);
+
+    /**
+     * @return id друзей по возрастанию
+     */
+    long[] findFriendIds(long userId);
+
+    /**
+     * @return id общих друзей по возрастанию
+     */
+    long[] findCommonFriendIds(long userId, long otherId);
+}
@@ -0,0 +1,336 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cluster.ClusterTopology;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.index.FilmIndex;
+import ru.yandex.practicum.filmorate.storage.persistence.EntityJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище фильмов в памяти. Чтение не берёт блокировок,
+ * одиночная запись берёт общую блокировку чтения и блокировку из полосы, выбранной по id фильма,
+ * пакетная - эксклюзивную, поэтому пакет не перемешивается с другими записями и меняет версию коллекции один раз.
+ * Изменения пишутся в журнал и во вторичные индексы под той же блокировкой, поэтому порядок изменений
+ * одного фильма в журнале и индексах совпадает с порядком в памяти; ответ возвращается после сохранения на диск.
+ * Изменение, которое записать не удалось, откатывается в памяти и в индексах под эксклюзивной блокировкой.
+ * Блокировки - {@link java.util.concurrent.locks.ReentrantLock}, а не корзины {@link ConcurrentHashMap#compute},
+ * чтобы запрос на виртуальном потоке не закреплял поток-носитель.
+ * Используется по умолчанию ({@code filmorate.storage.type=memory}, {@code filmorate.storage.film-layout=objects}).
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${filmorate.storage.type:memory}' == 'memory'"
+        + " and '${filmorate.storage.film-layout:objects}' == 'objects'")
+public class InMemoryFilmStorage implements FilmStorage {
+
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> orderedIds = new ConcurrentSkipListSet<>();
+    private final IdGenerator idGenerator;
+    private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final StripedLocks writeLocks = new StripedLocks(256);
+    private final AtomicLong version = new AtomicLong();
+    private final List<FilmIndex> indexes;
+    private final EntityJournal<Film> journal;
+
+    public InMemoryFilmStorage(JournalFactory journalFactory, List<FilmIndex> indexes) {
+        this(journalFactory, indexes, ClusterTopology.single());
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(JournalFactory journalFactory, List<FilmIndex> indexes, ClusterTopology topology) {
+        this.indexes = List.copyOf(indexes);
+        this.idGenerator = topology.newIdGenerator();
+        this.journal = journalFactory.open("films", Film.class, this::restore);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return Collections.unmodifiableCollection(films.values());
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> findPage(long afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, films.size()));
+        for (Long id : orderedIds.tailSet(afterId, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            Film film = films.get(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Optional<Film> findById(long id) {
+        return Optional.ofNullable(films.get(id));
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film create(Film film) {
+        film.setId(idGenerator.getNextId());
+        List<Change> written = new ArrayList<>(1);
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        Lock filmLock = writeLocks.get(film.getId());
+        filmLock.lock();
+        try {
+            insert(film, written);
+            version.incrementAndGet();
+        } finally {
+            filmLock.unlock();
+            lock.unlock();
+        }
+        awaitAll(written);
+        log.debug("Фильм с id:{} сохранён", film.getId());
+        return film;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film update(Film film) {
+        return update(film, anyVersion -> true);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film update(Film film, LongPredicate expectedVersion) {
+        if (film.getId() == null) {
+            throw new NotFoundException("Фильм с id:" + film.getId() + " не найден");
+        }
+        return patch(film.getId(), current -> film, expectedVersion);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film patch(long id, UnaryOperator<Film> change, LongPredicate expectedVersion) {
+        List<Change> written = new ArrayList<>(1);
+        Film film;
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        Lock filmLock = writeLocks.get(id);
+        filmLock.lock();
+        try {
+            if (!replace(id, change, expectedVersion, written)) {
+                throw new NotFoundException("Фильм с id:" + id + " не найден");
+            }
+            film = written.get(0).film();
+            version.incrementAndGet();
+        } finally {
+            filmLock.unlock();
+            lock.unlock();
+        }
+        awaitAll(written);
+        log.debug("Фильм с id:{} обновлён", id);
+        return film;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> createAll(List<Film> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        long firstId = idGenerator.reserveBlock(batch.size());
+        List<Change> written = new ArrayList<>(batch.size());
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(idGenerator.idAt(firstId, i));
+                batch.get(i).setVersion(1);
+            }
+            CompletableFuture<Void> batchWritten = journal.appendAll(batch, Film::getId);
+            batch.forEach(film -> apply(new Change(null, film, batchWritten), written));
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        awaitAll(written);
+        log.debug("Сохранён пакет из {} фильмов", batch.size());
+        return batch;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> updateAll(List<Film> batch) {
+        List<Change> written = new ArrayList<>(batch.size());
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            List<Film> oldFilms = new ArrayList<>(batch.size());
+            Set<Long> batchIds = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Long id = batch.get(i).getId();
+                Film oldFilm = id == null ? null : films.get(id);
+                if (oldFilm == null) {
+                    throw new BatchItemException(i, new NotFoundException("Фильм с id:" + id + " не найден"));
+                }
+                if (!batchIds.add(id)) {
+                    throw new BatchItemException(i, new ValidationException("Фильм с id:" + id
+                            + " встречается в пакете несколько раз"));
+                }
+                oldFilms.add(oldFilm);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setVersion(oldFilms.get(i).getVersion() + 1);
+            }
+            CompletableFuture<Void> batchWritten = journal.appendAll(batch, Film::getId);
+            for (int i = 0; i < batch.size(); i++) {
+                apply(new Change(oldFilms.get(i), batch.get(i), batchWritten), written);
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        awaitAll(written);
+        log.debug("Обновлён пакет из {} фильмов", batch.size());
+        return batch;
+    }
+
+    @Override
+    public boolean exists(long id) {
+        return films.containsKey(id);
+    }
+
+    @Override
+    public int size() {
+        return films.size();
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Вызывается под блокировкой; версию коллекции поднимает вызывающий после записи: ETag, прочитанный
+     * до неё, не выдаст новые данные за старые, а прочитанный после - видит фильм и в списке, и по id.
+     */
+    private void insert(Film film, List<Change> written) {
+        film.setVersion(1);
+        apply(new Change(null, film, journal.append(film.getId(), film)), written);
+    }
+
+    private boolean replace(long id, UnaryOperator<Film> change, LongPredicate expectedVersion,
+                            List<Change> written) {
+        Film oldFilm = films.get(id);
+        if (oldFilm == null) {
+            return false;
+        }
+        if (!expectedVersion.test(oldFilm.getVersion())) {
+            throw new PreconditionFailedException("Фильм с id:" + id + " уже изменён другим запросом");
+        }
+        Film film = change.apply(oldFilm);
+        film.setId(id);
+        film.setVersion(oldFilm.getVersion() + 1);
+        apply(new Change(oldFilm, film, journal.append(film.getId(), film)), written);
+        return true;
+    }
+
+    /**
+     * Применяет в памяти и в индексах изменение, уже поставленное в журнал.
+     */
+    private void apply(Change change, List<Change> written) {
+        Film film = change.film();
+        written.add(change);
+        films.put(film.getId(), film);
+        if (change.previous() == null) {
+            orderedIds.add(film.getId());
+        }
+        indexes.forEach(index -> index.update(change.previous(), film));
+    }
+
+    private void restore(Film film) {
+        Film oldFilm = films.put(film.getId(), film);
+        film.setVersion(oldFilm == null ? 1 : oldFilm.getVersion() + 1);
+        indexes.forEach(index -> index.update(oldFilm, film));
+        orderedIds.add(film.getId());
+        idGenerator.seed(film.getId());
+    }
+
+    /**
+     * Ждёт записи изменений на диск. Изменения, которые записать не удалось, откатываются в обратном порядке.
+     */
+    private void awaitAll(List<Change> written) {
+        try {
+            CompletableFuture.allOf(written.stream().map(Change::written).toArray(CompletableFuture[]::new)).join();
+        } catch (RuntimeException e) {
+            Lock lock = batchLock.writeLock();
+            lock.lock();
+            try {
+                for (int i = written.size() - 1; i >= 0; i--) {
+                    if (written.get(i).written().isCompletedExceptionally()) {
+                        undo(written.get(i));
+                    }
+                }
+                version.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает фильм к состоянию до изменения. После ошибки журнал отклоняет все записи,
+     * поэтому более поздние изменения того же фильма тоже откатываются, и порядок откатов не важен:
+     * если в памяти уже более ранняя версия, раньше выполнился откат предыдущего изменения.
+     */
+    private void undo(Change change) {
+        long id = change.film().getId();
+        Film current = films.get(id);
+        if (current == null || current.getVersion() < change.film().getVersion()) {
+            return;
+        }
+        Film previous = change.previous();
+        if (previous == null) {
+            films.remove(id);
+            orderedIds.remove(id);
+        } else {
+            films.put(id, previous);
+        }
+        indexes.forEach(index -> index.update(current, previous));
+        log.warn("Изменение фильма с id:{} не записано в журнал и откачено", id);
+    }
+
+    /**
+     * Изменение, поставленное в журнал: прежнее состояние (null для нового фильма) и новое.
+     */
+    private record Change(Film previous, Film film, CompletableFuture<Void> written) {
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Списки друзей хранятся как отсортированные массивы id без упаковки. Массив не изменяется после публикации,
+ * поэтому чтение и поиск общих друзей слиянием идут без блокировок.
+ * Изменение дружбы берёт блокировку из полосы, выбранной по паре id, - так добавление и удаление
+ * одной пары не перемешиваются и обе стороны всегда согласованы.
+ */
+@Component
+public class InMemoryFriendStorage implements FriendStorage {
+
+    private final Map<Long, long[]> friends = new ConcurrentHashMap<>();
+    private final StripedLocks pairLocks = new StripedLocks(64);
+
+    @Override
+    @Timed("filmorate.storage")
+    public boolean addFriend(long userId, long friendId) {
+        Lock lock = lockFor(userId, friendId);
+        lock.lock();
+        try {
+            if (SortedLongArrays.contains(findFriendIds(userId), friendId)) {
+                return false;
+            }
+            friends.merge(userId, new long[]{friendId}, (ids, added) -> SortedLongArrays.insert(ids, friendId));
+            friends.merge(friendId, new long[]{userId}, (ids, added) -> SortedLongArrays.insert(ids, userId));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public boolean removeFriend(long userId, long friendId) {
+        Lock lock = lockFor(userId, friendId);
+        lock.lock();
+        try {
+            if (!SortedLongArrays.contains(findFriendIds(userId), friendId)) {
+                return false;
+            }
+            friends.computeIfPresent(userId, (id, ids) -> emptyToNull(SortedLongArrays.remove(ids, friendId)));
+            friends.computeIfPresent(friendId, (id, ids) -> emptyToNull(SortedLongArrays.remove(ids, userId)));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long[] findFriendIds(long userId) {
+        return friends.getOrDefault(userId, SortedLongArrays.EMPTY);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public long[] findCommonFriendIds(long userId, long otherId) {
+        return SortedLongArrays.intersect(findFriendIds(userId), findFriendIds(otherId));
+    }
+
+    private Lock lockFor(long userId, long friendId) {
+        return pairLocks.get(Math.min(userId, friendId) * 31 + Math.max(userId, friendId));
+    }
+
+    private static long[] emptyToNull(long[] ids) {
+        return ids.length == 0 ? null : ids;
+    }
+}
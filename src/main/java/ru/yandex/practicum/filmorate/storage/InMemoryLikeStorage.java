@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Лайки хранятся как {@link LongHashSet} id пользователей на фильм.
+ * Рейтинг популярности - упорядоченное множество пар (число лайков, id фильма), которое
+ * обновляется при каждом лайке внутри compute для фильма, так что запрос топа не сортирует каталог.
+ * Там же вызываются индексы лайков.
+ */
+@Component
+public class InMemoryLikeStorage implements LikeStorage {
+
+    private static final Comparator<Rank> BY_LIKES_DESC = Comparator.comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final Map<Long, FilmLikes> likes = new ConcurrentHashMap<>();
+    private final NavigableSet<Rank> ranking = new ConcurrentSkipListSet<>(BY_LIKES_DESC);
+    private final List<LikeIndex> indexes;
+
+    public InMemoryLikeStorage(List<LikeIndex> indexes) {
+        this.indexes = indexes;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public boolean addLike(long filmId, long userId) {
+        boolean[] added = new boolean[1];
+        likes.compute(filmId, (id, filmLikes) -> {
+            FilmLikes current = filmLikes == null ? new FilmLikes() : filmLikes;
+            added[0] = current.users.add(userId);
+            if (added[0]) {
+                rerank(filmId, current);
+                indexes.forEach(index -> index.update(filmId, userId, true));
+            }
+            return current;
+        });
+        return added[0];
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public boolean removeLike(long filmId, long userId) {
+        boolean[] removed = new boolean[1];
+        likes.computeIfPresent(filmId, (id, filmLikes) -> {
+            removed[0] = filmLikes.users.remove(userId);
+            if (removed[0]) {
+                rerank(filmId, filmLikes);
+                indexes.forEach(index -> index.update(filmId, userId, false));
+            }
+            return filmLikes.users.isEmpty() ? null : filmLikes;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public int countLikes(long filmId) {
+        FilmLikes filmLikes = likes.get(filmId);
+        return filmLikes == null ? 0 : filmLikes.count;
+    }
+
+    @Override
+    public long[] findUserIds(long filmId) {
+        long[][] userIds = {SortedLongArrays.EMPTY};
+        // множество меняется внутри compute, поэтому и копируется там же
+        likes.computeIfPresent(filmId, (id, filmLikes) -> {
+            userIds[0] = filmLikes.users.toSortedArray();
+            return filmLikes;
+        });
+        return userIds[0];
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Long> findMostLiked(int count) {
+        List<Long> filmIds = new ArrayList<>(Math.min(count, ranking.size()));
+        for (Rank rank : ranking) {
+            if (filmIds.size() == count) {
+                break;
+            }
+            filmIds.add(rank.filmId());
+        }
+        return filmIds;
+    }
+
+    private void rerank(long filmId, FilmLikes filmLikes) {
+        if (filmLikes.count > 0) {
+            ranking.remove(new Rank(filmLikes.count, filmId));
+        }
+        filmLikes.count = filmLikes.users.size();
+        if (filmLikes.count > 0) {
+            ranking.add(new Rank(filmLikes.count, filmId));
+        }
+    }
+
+    /**
+     * Меняется только внутри compute; счётчик продублирован в volatile-поле для чтения без блокировки.
+     */
+    private static final class FilmLikes {
+        private final LongHashSet users = new LongHashSet();
+        private volatile int count;
+    }
+
+    private record Rank(int likes, long filmId) {
+    }
+}
@@ -0,0 +1,421 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cluster.ClusterTopology;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.persistence.EntityJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище пользователей в памяти. Уникальность email обеспечивает {@link EmailIndex}:
+ * резервирование адреса одновременно является проверкой. В кластере индекс может обращаться к другому узлу,
+ * поэтому адреса резервируются и освобождаются вне блокировок хранилища; изменение применяется, только если
+ * пользователь не изменился, пока шло резервирование, иначе резерв снимается и попытка повторяется.
+ * Одиночные записи идут под общей блокировкой чтения, пакетные - под эксклюзивной,
+ * чтобы пакет видел и менял email всех своих пользователей согласованно и поднимал версию коллекции один раз.
+ * Чтение данных блокировок не берёт.
+ * Старый email освобождается только после постановки изменения в журнал: тот, кто займёт адрес,
+ * окажется в журнале позже, и восстановление не встретит конфликта.
+ * Если запись в журнал не удалась, изменение откатывается под эксклюзивной блокировкой, а адреса - после неё:
+ * после первой ошибки журнал отклоняет все записи, поэтому откат до сохранённого состояния однозначен.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryUserStorage implements UserStorage {
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> orderedIds = new ConcurrentSkipListSet<>();
+    private final EmailIndex emailIndex;
+    private final IdGenerator idGenerator;
+    private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final StripedLocks writeLocks = new StripedLocks(256);
+    private final AtomicLong version = new AtomicLong();
+
+    private final EntityJournal<User> journal;
+
+    public InMemoryUserStorage(EmailIndex emailIndex, JournalFactory journalFactory) {
+        this(emailIndex, journalFactory, ClusterTopology.single());
+    }
+
+    @Autowired
+    public InMemoryUserStorage(EmailIndex emailIndex, JournalFactory journalFactory, ClusterTopology topology) {
+        this.emailIndex = emailIndex;
+        this.idGenerator = topology.newIdGenerator();
+        this.journal = journalFactory.open("users", User.class, this::restore);
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<User> findPage(long afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, users.size()));
+        for (Long id : orderedIds.tailSet(afterId, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            User user = users.get(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public User create(User user) {
+        long id = idGenerator.getNextId();
+        // в кластере резервирование - запрос к другому узлу, поэтому оно идёт до блокировок хранилища
+        emailIndex.reserve(user.getEmail(), id);
+        user.setId(id);
+        user.setVersion(1);
+        Change written = null;
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        try {
+            written = new Change(null, user, journal.append(id, user));
+            users.put(user.getId(), user);
+            orderedIds.add(user.getId());
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+            if (written == null) {
+                // пользователь не сохранён: адрес не должен остаться занятым до перезапуска
+                emailIndex.release(user.getEmail(), id);
+            }
+        }
+        awaitAll(List.of(written));
+        log.debug("Пользователь с id:{} сохранён", user.getId());
+        return user;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<User> createAll(List<User> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        long firstId = idGenerator.reserveBlock(batch.size());
+        IntToLongFunction ownerId = i -> idGenerator.idAt(firstId, i);
+        reserveEmails(batch, ownerId, i -> true);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(ownerId.applyAsLong(i));
+            batch.get(i).setVersion(1);
+        }
+        List<Change> written = new ArrayList<>(batch.size());
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            CompletableFuture<Void> batchWritten = journal.appendAll(batch, User::getId);
+            for (User user : batch) {
+                written.add(new Change(null, user, batchWritten));
+                users.put(user.getId(), user);
+                orderedIds.add(user.getId());
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+            if (written.isEmpty()) {
+                // пакет не поставлен в журнал, в памяти ничего не изменено
+                releaseEmails(batch, batch.size(), ownerId, i -> true);
+            }
+        }
+        awaitAll(written);
+        log.debug("Сохранён пакет из {} пользователей", batch.size());
+        return batch;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public User update(User user) {
+        return update(user, anyVersion -> true);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public User update(User user, LongPredicate expectedVersion) {
+        if (user.getId() == null) {
+            throw new NotFoundException("Пользователь с заданным id не существует");
+        }
+        return patch(user.getId(), current -> user, expectedVersion);
+    }
+
+    /**
+     * Новый email резервируется до блокировок: в кластере это запрос к другому узлу. Если пока шло
+     * резервирование пользователя успели изменить, резерв снимается и изменение вычисляется заново.
+     */
+    @Override
+    @Timed("filmorate.storage")
+    public User patch(long id, UnaryOperator<User> change, LongPredicate expectedVersion) {
+        while (true) {
+            User oldUser = users.get(id);
+            if (oldUser == null) {
+                throw new NotFoundException("Пользователь с заданным id не существует");
+            }
+            if (!expectedVersion.test(oldUser.getVersion())) {
+                throw new PreconditionFailedException("Пользователь с id:" + id + " уже изменён другим запросом");
+            }
+            User user = change.apply(oldUser);
+            user.setId(id);
+            user.setVersion(oldUser.getVersion() + 1);
+            boolean emailChanged = !oldUser.getEmail().equalsIgnoreCase(user.getEmail());
+            if (emailChanged) {
+                emailIndex.reserve(user.getEmail(), id);
+            }
+            Change written = null;
+            Lock lock = batchLock.readLock();
+            lock.lock();
+            // блокировка id сериализует обновления одного пользователя, поэтому смена email не гоняется сама с собой
+            Lock userLock = writeLocks.get(id);
+            userLock.lock();
+            try {
+                if (users.get(id) == oldUser) {
+                    written = new Change(oldUser, user, journal.append(id, user));
+                    users.put(id, user);
+                    version.incrementAndGet();
+                }
+            } finally {
+                userLock.unlock();
+                lock.unlock();
+                if (emailChanged) {
+                    // старый адрес освобождается после постановки в журнал, новый - если изменение не принято
+                    emailIndex.release(written != null ? oldUser.getEmail() : user.getEmail(), id);
+                }
+            }
+            if (written != null) {
+                awaitAll(List.of(written));
+                log.debug("Пользователь с id:{} обновлён", id);
+                return user;
+            }
+        }
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<User> updateAll(List<User> batch) {
+        while (true) {
+            List<User> oldUsers = new ArrayList<>(batch.size());
+            Set<Long> batchIds = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Long id = batch.get(i).getId();
+                User oldUser = id == null ? null : users.get(id);
+                if (oldUser == null) {
+                    throw new BatchItemException(i, new NotFoundException("Пользователь с id:" + id + " не существует"));
+                }
+                if (!batchIds.add(id)) {
+                    throw new BatchItemException(i, new ValidationException("Пользователь с id:" + id
+                            + " встречается в пакете несколько раз"));
+                }
+                oldUsers.add(oldUser);
+            }
+            IntToLongFunction ownerId = i -> batch.get(i).getId();
+            IntPredicate emailChanged = i -> !oldUsers.get(i).getEmail().equalsIgnoreCase(batch.get(i).getEmail());
+            reserveEmails(batch, ownerId, emailChanged);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setVersion(oldUsers.get(i).getVersion() + 1);
+            }
+            List<Change> written = new ArrayList<>(batch.size());
+            Lock lock = batchLock.writeLock();
+            lock.lock();
+            try {
+                if (unchanged(oldUsers)) {
+                    CompletableFuture<Void> batchWritten = journal.appendAll(batch, User::getId);
+                    for (int i = 0; i < batch.size(); i++) {
+                        written.add(new Change(oldUsers.get(i), batch.get(i), batchWritten));
+                        users.put(batch.get(i).getId(), batch.get(i));
+                    }
+                    version.incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+                if (written.isEmpty()) {
+                    releaseEmails(batch, batch.size(), ownerId, emailChanged);
+                } else {
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (emailChanged.test(i)) {
+                            emailIndex.release(oldUsers.get(i).getEmail(), batch.get(i).getId());
+                        }
+                    }
+                }
+            }
+            if (!written.isEmpty() || batch.isEmpty()) {
+                awaitAll(written);
+                log.debug("Обновлён пакет из {} пользователей", batch.size());
+                return batch;
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(long id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public boolean isEmailTaken(String email) {
+        return emailIndex.isTaken(email);
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    private void restore(User user) {
+        User oldUser = users.put(user.getId(), user);
+        user.setVersion(oldUser == null ? 1 : oldUser.getVersion() + 1);
+        if (oldUser == null) {
+            emailIndex.reserve(user.getEmail(), user.getId());
+        } else {
+            emailIndex.swap(oldUser.getEmail(), user.getEmail(), user.getId());
+        }
+        orderedIds.add(user.getId());
+        idGenerator.seed(user.getId());
+    }
+
+    /**
+     * Ждёт записи изменений на диск. Изменения, которые записать не удалось, откатываются в обратном порядке.
+     */
+    private void awaitAll(List<Change> written) {
+        try {
+            CompletableFuture.allOf(written.stream().map(Change::written).toArray(CompletableFuture[]::new)).join();
+        } catch (RuntimeException e) {
+            List<Runnable> emailUpdates = new ArrayList<>();
+            Lock lock = batchLock.writeLock();
+            lock.lock();
+            try {
+                for (int i = written.size() - 1; i >= 0; i--) {
+                    if (written.get(i).written().isCompletedExceptionally()) {
+                        undo(written.get(i), emailUpdates);
+                    }
+                }
+                version.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+            emailUpdates.forEach(Runnable::run);
+            throw e;
+        }
+    }
+
+    private boolean unchanged(List<User> oldUsers) {
+        for (User oldUser : oldUsers) {
+            if (users.get(oldUser.getId()) != oldUser) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает пользователя к состоянию до изменения. Более поздние изменения того же пользователя
+     * тоже не записаны: журнал после ошибки отклоняет всё, поэтому откатываются и они, в каком бы порядке
+     * ни шли откаты. Если в памяти уже более ранняя версия, раньше выполнился откат предыдущего изменения.
+     * Адреса возвращаются в {@code emailUpdates}, которые вызывающий выполняет после снятия блокировки.
+     */
+    private void undo(Change change, List<Runnable> emailUpdates) {
+        long id = change.user().getId();
+        User current = users.get(id);
+        if (current == null || current.getVersion() < change.user().getVersion()) {
+            return;
+        }
+        User previous = change.previous();
+        if (previous == null) {
+            users.remove(id);
+            orderedIds.remove(id);
+            emailUpdates.add(() -> emailIndex.release(current.getEmail(), id));
+            log.warn("Пользователь с id:{} не записан в журнал и удалён из памяти", id);
+            return;
+        }
+        users.put(id, previous);
+        if (!current.getEmail().equalsIgnoreCase(previous.getEmail())) {
+            emailUpdates.add(() -> {
+                emailIndex.release(current.getEmail(), id);
+                try {
+                    emailIndex.reserve(previous.getEmail(), id);
+                } catch (RuntimeException e) {
+                    log.warn("Пользователь с id:{}: не удалось вернуть email {} после отката", id, previous.getEmail(), e);
+                }
+            });
+        }
+        log.warn("Изменение пользователя с id:{} не записано в журнал и откачено до версии {}",
+                id, previous.getVersion());
+    }
+
+    /**
+     * Резервирует email выбранных элементов пакета: либо все, либо ни одного.
+     */
+    private void reserveEmails(List<User> batch, IntToLongFunction ownerId, IntPredicate needsReservation) {
+        int reserved = 0;
+        try {
+            for (; reserved < batch.size(); reserved++) {
+                if (needsReservation.test(reserved)) {
+                    emailIndex.reserve(batch.get(reserved).getEmail(), ownerId.applyAsLong(reserved));
+                }
+            }
+        } catch (RuntimeException e) {
+            releaseEmails(batch, reserved, ownerId, needsReservation);
+            throw new BatchItemException(reserved, e);
+        }
+    }
+
+    private void releaseEmails(List<User> batch, int upTo, IntToLongFunction ownerId, IntPredicate reserved) {
+        for (int i = 0; i < upTo; i++) {
+            if (reserved.test(i)) {
+                emailIndex.release(batch.get(i).getEmail(), ownerId.applyAsLong(i));
+            }
+        }
+    }
+
+    /**
+     * Изменение, поставленное в журнал: прежнее состояние (null для нового пользователя) и новое.
+     */
+    private record Change(User previous, User user, CompletableFuture<Void> written) {
+    }
+}
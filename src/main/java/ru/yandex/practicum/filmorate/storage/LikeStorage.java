@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+
+public interface LikeStorage {
+
+    /**
+     * @return true, если лайк поставлен впервые
+     */
+    boolean addLike(long filmId, long userId);
+
+    /**
+     * @return true, если лайк был и снят
+     */
+    boolean removeLike(long filmId, long userId);
+
+    int countLikes(long filmId);
+
+    /**
+     * Id пользователей, лайкнувших фильм, по возрастанию.
+     */
+    long[] findUserIds(long filmId);
+
+    /**
+     * Id фильмов с хотя бы одним лайком: по убыванию числа лайков, при равенстве по возрастанию id.
+     */
+    List<Long> findMostLiked(int count);
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+public interface UserStorage {
+
+    Collection<User> findAll();
+
+    /**
+     * Страница по возрастанию id: до {@code limit} записей с id больше {@code afterId}.
+     */
+    List<User> findPage(long afterId, int limit);
+
+    Optional<User> findById(long id);
+
+    /**
+     * Присваивает пользователю новый id и сохраняет его.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.DuplicateException если email уже занят
+     */
+    User create(User user);
+
+    /**
+     * Заменяет существующего пользователя.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.NotFoundException если пользователя с таким id нет
+     * @throws ru.yandex.practicum.filmorate.exceptions.DuplicateException если новый email занят другим пользователем
+     */
+    User update(User user);
+
+    /**
+     * Заменяет существующего пользователя, если его текущая версия проходит проверку. Проверка и замена атомарны.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException если версия не подошла
+     */
+    User update(User user, LongPredicate expectedVersion);
+
+    /**
+     * Частично меняет пользователя: {@code change} получает текущего пользователя и возвращает нового,
+     * не меняя переданного. Чтение, изменение и запись идут под блокировкой пользователя.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.NotFoundException если пользователя с таким id нет
+     * @throws ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException если версия не подошла
+     * @throws ru.yandex.practicum.filmorate.exceptions.DuplicateException если новый email занят другим пользователем
+     */
+    User patch(long id, UnaryOperator<User> change, LongPredicate expectedVersion);
+
+    /**
+     * Атомарно сохраняет пакет новых пользователей с непрерывным блоком id.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.BatchItemException если email одного из элементов занят
+     */
+    List<User> createAll(List<User> users);
+
+    /**
+     * Атомарно заменяет пакет существующих пользователей.
+     *
+     * @throws ru.yandex.practicum.filmorate.exceptions.BatchItemException если элемент не найден или его email занят
+     */
+    List<User> updateAll(List<User> users);
+
+    boolean exists(long id);
+
+    /**
+     * Занят ли email без учёта регистра, по тем же правилам, что и при сохранении.
+     */
+    boolean isEmailTaken(String email);
+
+    int size();
+
+    /**
+     * Версия всей коллекции: растёт при каждом создании и изменении пользователя.
+     */
+    long version();
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage.dump;
+
+/**
+ * Двоичный формат выгрузки каталога:
+ * <pre>
+ * [int MAGIC][int VERSION]
+ * записи: [byte FILM][long id][str name][str description][int день релиза][int продолжительность]
+ *         [byte USER][long id][str email][str login][str name][int день рождения]
+ *         [byte LIKE][long id фильма][long id пользователя]
+ *         [byte FRIENDSHIP][long id пользователя][long id друга]
+ * [byte END][long число фильмов][long число пользователей][long число лайков][long число пар друзей]
+ * [int crc32c всего, что до неё]
+ * </pre>
+ * Строка - [int длина в байтах UTF-8, -1 для null][байты]; пустые дата и число - {@link #NO_VALUE}.
+ * Лайки и дружба ссылаются на id фильмов и пользователей этого же файла; каждая пара друзей записана один раз.
+ * В версии 1 лайков и дружбы нет, и в END только два счётчика.
+ */
+final class DumpFormat {
+
+    static final int MAGIC = 0x464C4D44;
+    static final int VERSION = 2;
+    static final int VERSION_WITHOUT_LINKS = 1;
+
+    static final byte END = 0;
+    static final byte FILM = 1;
+    static final byte USER = 2;
+    static final byte LIKE = 3;
+    static final byte FRIENDSHIP = 4;
+
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private DumpFormat() {
+    }
+}
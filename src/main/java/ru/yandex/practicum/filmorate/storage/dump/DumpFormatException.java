@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.storage.dump;
+
+import java.io.IOException;
+
+/**
+ * Файл не является целой выгрузкой каталога.
+ */
+public class DumpFormatException extends IOException {
+
+    public DumpFormatException(String message) {
+        super(message);
+    }
+}
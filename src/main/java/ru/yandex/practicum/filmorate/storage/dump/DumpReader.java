@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.storage.dump;
+
+import ru.yandex.practicum.filmorate.model.DumpSummary;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Чтение выгрузки каталога через {@link FileChannel} и прямой буфер. Записи передаются получателям по мере чтения,
+ * поэтому в памяти держится не больше буфера. Контрольная сумма и число записей сверяются в конце файла:
+ * чтобы не загрузить повреждённый файл наполовину, его стоит сначала прочитать целиком без сохранения.
+ */
+public final class DumpReader implements Closeable {
+
+    private static final int MAX_STRING_BYTES = 64 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(DumpFormat.BUFFER_SIZE).flip();
+    private final CRC32C checksum = new CRC32C();
+    // байты буфера до этой позиции уже учтены в контрольной сумме
+    private int checksummed;
+
+    private DumpReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static DumpReader open(Path file) throws IOException {
+        return new DumpReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Читает только фильмы и пользователей, пропуская лайки и дружбу.
+     *
+     * @throws DumpFormatException если файл не выгрузка, оборван или повреждён
+     */
+    public DumpSummary read(Consumer<Film> films, Consumer<User> users) throws IOException {
+        return read(films, users, (filmId, userId) -> {
+        }, (userId, friendId) -> {
+        });
+    }
+
+    /**
+     * @throws DumpFormatException если файл не выгрузка, оборван или повреждён
+     */
+    public DumpSummary read(Consumer<Film> films, Consumer<User> users,
+                            LinkConsumer likes, LinkConsumer friendships) throws IOException {
+        require(Integer.BYTES * 2);
+        if (buffer.getInt() != DumpFormat.MAGIC) {
+            throw new DumpFormatException("Файл не является выгрузкой каталога");
+        }
+        int version = buffer.getInt();
+        if (version != DumpFormat.VERSION && version != DumpFormat.VERSION_WITHOUT_LINKS) {
+            throw new DumpFormatException("Неподдерживаемая версия выгрузки: " + version);
+        }
+        boolean withLinks = version != DumpFormat.VERSION_WITHOUT_LINKS;
+        long[] counts = new long[4];
+        while (true) {
+            require(1);
+            byte kind = buffer.get();
+            switch (kind) {
+                case DumpFormat.FILM -> {
+                    films.accept(readFilm());
+                    counts[0]++;
+                }
+                case DumpFormat.USER -> {
+                    users.accept(readUser());
+                    counts[1]++;
+                }
+                case DumpFormat.LIKE, DumpFormat.FRIENDSHIP -> {
+                    if (!withLinks) {
+                        throw new DumpFormatException("Неизвестный тип записи: " + kind);
+                    }
+                    require(Long.BYTES * 2);
+                    long from = buffer.getLong();
+                    long to = buffer.getLong();
+                    if (kind == DumpFormat.LIKE) {
+                        likes.accept(from, to);
+                        counts[2]++;
+                    } else {
+                        friendships.accept(from, to);
+                        counts[3]++;
+                    }
+                }
+                case DumpFormat.END -> {
+                    checkEnd(counts, withLinks);
+                    return new DumpSummary(counts[0], counts[1], counts[2], counts[3], channel.size());
+                }
+                default -> throw new DumpFormatException("Неизвестный тип записи: " + kind);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Film readFilm() throws IOException {
+        require(Long.BYTES);
+        Film film = new Film();
+        film.setId(buffer.getLong());
+        film.setName(readString());
+        film.setDescription(readString());
+        require(Integer.BYTES * 2);
+        film.setReleaseDate(toDate(buffer.getInt()));
+        int duration = buffer.getInt();
+        film.setDuration(duration == DumpFormat.NO_VALUE ? null : duration);
+        return film;
+    }
+
+    private User readUser() throws IOException {
+        require(Long.BYTES);
+        long id = buffer.getLong();
+        String email = readString();
+        String login = readString();
+        String name = readString();
+        require(Integer.BYTES);
+        return new User(id, email, login, name, toDate(buffer.getInt()));
+    }
+
+    private void checkEnd(long[] counts, boolean withLinks) throws IOException {
+        int counters = withLinks ? 4 : 2;
+        require(Long.BYTES * counters);
+        long[] expected = new long[counts.length];
+        for (int i = 0; i < counters; i++) {
+            expected[i] = buffer.getLong();
+        }
+        updateChecksum();
+        require(Integer.BYTES);
+        if (buffer.getInt() != (int) checksum.getValue()) {
+            throw new DumpFormatException("Контрольная сумма выгрузки не совпадает");
+        }
+        if (!Arrays.equals(expected, counts)) {
+            throw new DumpFormatException("Число записей не совпадает с заявленным в конце файла");
+        }
+        if (buffer.hasRemaining() || channel.position() < channel.size()) {
+            throw new DumpFormatException("После конца выгрузки есть лишние данные");
+        }
+    }
+
+    private String readString() throws IOException {
+        require(Integer.BYTES);
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new DumpFormatException("Некорректная длина строки: " + length);
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        // строка длиннее буфера читается частями
+        while (offset < length) {
+            int chunk = Math.min(length - offset, buffer.capacity());
+            require(chunk);
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        updateChecksum();
+        buffer.compact();
+        while (buffer.position() < bytes && channel.read(buffer) >= 0) {
+            // дочитываем, пока не наберётся нужное число байт или не кончится файл
+        }
+        buffer.flip();
+        checksummed = 0;
+        if (buffer.remaining() < bytes) {
+            throw new DumpFormatException("Файл выгрузки оборван");
+        }
+    }
+
+    private void updateChecksum() {
+        checksum.update(buffer.slice(checksummed, buffer.position() - checksummed));
+        checksummed = buffer.position();
+    }
+
+    private static LocalDate toDate(int day) {
+        return day == DumpFormat.NO_VALUE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Получатель лайка (id фильма, id пользователя) или пары друзей (id пользователя, id друга).
+     */
+    @FunctionalInterface
+    public interface LinkConsumer {
+        void accept(long from, long to);
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.dump;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Запись выгрузки каталога через {@link FileChannel} и прямой буфер. Формат описан в {@link DumpFormat}.
+ * Файл считается целым только после {@link #finish()}: без завершающей записи чтение его отклонит.
+ */
+public final class DumpWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(DumpFormat.BUFFER_SIZE);
+    private final CRC32C checksum = new CRC32C();
+    private long films;
+    private long users;
+    private long likes;
+    private long friendships;
+    private long written;
+
+    private DumpWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static DumpWriter create(Path file) throws IOException {
+        DumpWriter writer = new DumpWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        writer.buffer.putInt(DumpFormat.MAGIC).putInt(DumpFormat.VERSION);
+        return writer;
+    }
+
+    public void write(Film film) throws IOException {
+        ensure(1 + Long.BYTES);
+        buffer.put(DumpFormat.FILM).putLong(film.getId());
+        putString(film.getName());
+        putString(film.getDescription());
+        ensure(Integer.BYTES * 2);
+        buffer.putInt(toDay(film.getReleaseDate()));
+        buffer.putInt(film.getDuration() == null ? DumpFormat.NO_VALUE : film.getDuration());
+        films++;
+    }
+
+    public void write(User user) throws IOException {
+        ensure(1 + Long.BYTES);
+        buffer.put(DumpFormat.USER).putLong(user.getId());
+        putString(user.getEmail());
+        putString(user.getLogin());
+        putString(user.getName());
+        ensure(Integer.BYTES);
+        buffer.putInt(toDay(user.getBirthday()));
+        users++;
+    }
+
+    public void writeLike(long filmId, long userId) throws IOException {
+        ensure(1 + Long.BYTES * 2);
+        buffer.put(DumpFormat.LIKE).putLong(filmId).putLong(userId);
+        likes++;
+    }
+
+    /**
+     * Пара друзей пишется один раз: дружба взаимна и восстанавливается с обеих сторон.
+     */
+    public void writeFriendship(long userId, long friendId) throws IOException {
+        ensure(1 + Long.BYTES * 2);
+        buffer.put(DumpFormat.FRIENDSHIP).putLong(userId).putLong(friendId);
+        friendships++;
+    }
+
+    /**
+     * Дописывает завершающую запись с числом записей и контрольной суммой и сбрасывает файл на диск.
+     *
+     * @return размер файла в байтах
+     */
+    public long finish() throws IOException {
+        ensure(1 + Long.BYTES * 4);
+        buffer.put(DumpFormat.END).putLong(films).putLong(users).putLong(likes).putLong(friendships);
+        flush();
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+        drain();
+        channel.force(true);
+        return written;
+    }
+
+    public long films() {
+        return films;
+    }
+
+    public long users() {
+        return users;
+    }
+
+    public long likes() {
+        return likes;
+    }
+
+    public long friendships() {
+        return friendships;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void putString(String value) throws IOException {
+        if (value == null) {
+            ensure(Integer.BYTES);
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(Integer.BYTES);
+        buffer.putInt(bytes.length);
+        int offset = 0;
+        // строка длиннее буфера пишется частями
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        drain();
+    }
+
+    private void drain() throws IOException {
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int toDay(LocalDate date) {
+        return date == null ? DumpFormat.NO_VALUE : Math.toIntExact(date.toEpochDay());
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Вторичный индекс фильмов. Хранилище вызывает его при каждом изменении фильма,
+ * включая восстановление из журнала, внутри критической секции этого фильма:
+ * изменения одного фильма приходят по порядку, разных - параллельно.
+ */
+public interface FilmIndex {
+
+    /**
+     * @param previous прежнее состояние или null, если фильм новый
+     * @param current  новое состояние или null, если фильм удалён (откат несохранённого создания)
+     */
+    void update(Film previous, Film current);
+}
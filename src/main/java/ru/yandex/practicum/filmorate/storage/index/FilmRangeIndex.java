@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.util.ChunkedLongSet;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Упорядоченные индексы фильмов по дате релиза (в днях от эпохи) и продолжительности:
+ * значение - множество id фильмов в блоках. Выборка диапазона - просмотр поддерева ключей,
+ * без обхода всех фильмов.
+ */
+@Component
+public class FilmRangeIndex implements FilmIndex {
+
+    private final PostingMap<Long> byReleaseDay = new PostingMap<>();
+    private final PostingMap<Integer> byDuration = new PostingMap<>();
+
+    @Override
+    public void update(Film previous, Film current) {
+        long id = current != null ? current.getId() : previous.getId();
+        move(byReleaseDay, id, previous, current, film -> toDay(film.getReleaseDate()));
+        move(byDuration, id, previous, current, Film::getDuration);
+    }
+
+    /**
+     * Кандидаты для фильтра с id больше {@code afterId}, по возрастанию id, без повторов. Если заданы оба диапазона,
+     * берётся меньший из них, поэтому второе условие вызывающий проверяет сам,
+     * например через {@link FilmFilter#matches(Film)}.
+     * <p>
+     * Множества id всех ключей диапазона сливаются лениво, начиная с {@code afterId}: страница стоит
+     * O((k + m) log k), где k - число ключей в диапазоне, m - число прочитанных кандидатов,
+     * а не сортировку всех id диапазона.
+     */
+    @Timed("filmorate.index")
+    public PrimitiveIterator.OfLong findCandidates(FilmFilter filter, long afterId) {
+        Collection<ChunkedLongSet> releaseRange = filter.hasReleaseRange()
+                ? range(byReleaseDay.view(), toDay(filter.getReleasedFrom()), toDay(filter.getReleasedTo())).values()
+                : null;
+        Collection<ChunkedLongSet> durationRange = filter.hasDurationRange()
+                ? range(byDuration.view(), filter.getMinDuration(), filter.getMaxDuration()).values()
+                : null;
+        if (releaseRange == null) {
+            return merge(durationRange == null ? List.of() : durationRange, afterId);
+        }
+        return merge(durationRange == null ? releaseRange : smaller(releaseRange, durationRange), afterId);
+    }
+
+    private static <K> void move(PostingMap<K> index, long id,
+                                 Film previous, Film current, Function<Film, K> key) {
+        K oldKey = previous == null ? null : key.apply(previous);
+        K newKey = current == null ? null : key.apply(current);
+        if (previous != null && current != null && Objects.equals(oldKey, newKey)) {
+            return;
+        }
+        if (oldKey != null) {
+            index.remove(oldKey, id);
+        }
+        if (newKey != null) {
+            index.add(newKey, id);
+        }
+    }
+
+    private static <K extends Comparable<K>> ConcurrentNavigableMap<K, ChunkedLongSet> range(
+            ConcurrentNavigableMap<K, ChunkedLongSet> index, K from, K to) {
+        if (from != null && to != null) {
+            return from.compareTo(to) > 0 ? new ConcurrentSkipListMap<>() : index.subMap(from, true, to, true);
+        }
+        if (from != null) {
+            return index.tailMap(from, true);
+        }
+        return to != null ? index.headMap(to, true) : index;
+    }
+
+    /**
+     * Диапазоны обходятся по очереди, каждый раз продвигается тот, где набрано меньше id.
+     * Первый закончившийся диапазон не больше другого, а работа ограничена его размером.
+     */
+    private static Collection<ChunkedLongSet> smaller(Collection<ChunkedLongSet> first,
+                                                      Collection<ChunkedLongSet> second) {
+        Iterator<ChunkedLongSet> firstIterator = first.iterator();
+        Iterator<ChunkedLongSet> secondIterator = second.iterator();
+        long firstSize = 0;
+        long secondSize = 0;
+        while (true) {
+            if (firstSize <= secondSize) {
+                if (!firstIterator.hasNext()) {
+                    return first;
+                }
+                firstSize += firstIterator.next().size();
+            } else {
+                if (!secondIterator.hasNext()) {
+                    return second;
+                }
+                secondSize += secondIterator.next().size();
+            }
+        }
+    }
+
+    private static PrimitiveIterator.OfLong merge(Collection<ChunkedLongSet> range, long afterId) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparingLong(Cursor::head));
+        for (ChunkedLongSet part : range) {
+            Cursor cursor = new Cursor(part.iteratorAfter(afterId));
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return new PrimitiveIterator.OfLong() {
+            private long last = afterId;
+
+            @Override
+            public boolean hasNext() {
+                // фильм, переезжающий между ключами во время обхода, может встретиться дважды
+                while (!heads.isEmpty() && heads.peek().head <= last) {
+                    Cursor cursor = heads.poll();
+                    if (cursor.advance()) {
+                        heads.add(cursor);
+                    }
+                }
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = heads.peek().head;
+                return last;
+            }
+        };
+    }
+
+    private static Long toDay(LocalDate date) {
+        return date == null ? null : date.toEpochDay();
+    }
+
+    /**
+     * Текущее значение одного множества при слиянии.
+     */
+    private static final class Cursor {
+        private final PrimitiveIterator.OfLong values;
+        private long head;
+
+        Cursor(PrimitiveIterator.OfLong values) {
+            this.values = values;
+        }
+
+        boolean advance() {
+            if (!values.hasNext()) {
+                return false;
+            }
+            head = values.nextLong();
+            return true;
+        }
+
+        long head() {
+            return head;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.ChunkedLongSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов: слово - множество id фильмов в блоках.
+ * Слова лежат в упорядоченной карте, поэтому поиск по префиксу - это просмотр диапазона ключей.
+ * <p>
+ * Оценка фильма - сумма по словам запроса лучшего совпадения: точное слово в названии весит больше
+ * префикса, совпадение в названии больше, чем в описании.
+ */
+@Component
+public class FilmSearchIndex implements FilmIndex {
+
+    private static final int NAME_EXACT = 4;
+    private static final int NAME_PREFIX = 3;
+    private static final int DESCRIPTION_EXACT = 2;
+    private static final int DESCRIPTION_PREFIX = 1;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_EXPANDED_TERMS = 1_000;
+
+    private static final Comparator<Map.Entry<Long, Integer>> BY_SCORE =
+            Map.Entry.<Long, Integer>comparingByValue()
+                    .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed());
+
+    private final PostingMap<String> nameTerms = new PostingMap<>();
+    private final PostingMap<String> descriptionTerms = new PostingMap<>();
+
+    @Override
+    public void update(Film previous, Film current) {
+        long id = current != null ? current.getId() : previous.getId();
+        String oldName = previous == null ? null : previous.getName();
+        String newName = current == null ? null : current.getName();
+        if (previous == null || current == null || !Objects.equals(oldName, newName)) {
+            reindex(nameTerms, id, oldName, newName);
+        }
+        String oldDescription = previous == null ? null : previous.getDescription();
+        String newDescription = current == null ? null : current.getDescription();
+        if (previous == null || current == null || !Objects.equals(oldDescription, newDescription)) {
+            reindex(descriptionTerms, id, oldDescription, newDescription);
+        }
+    }
+
+    /**
+     * @return id до {@code limit} лучших фильмов, по убыванию оценки, при равенстве по возрастанию id
+     */
+    @Timed("filmorate.index")
+    public List<Long> search(String query, int limit) {
+        return new ArrayList<>(searchScored(query, limit).keySet());
+    }
+
+    /**
+     * То же, что {@link #search}, вместе с оценками: id - оценка в порядке выдачи.
+     */
+    public Map<Long, Integer> searchScored(String query, int limit) {
+        Map<Long, Integer> scores = new HashMap<>();
+        for (String token : Tokenizer.tokenize(query)) {
+            Map<Long, Integer> tokenScores = new HashMap<>();
+            collect(nameTerms, token, NAME_EXACT, NAME_PREFIX, tokenScores);
+            collect(descriptionTerms, token, DESCRIPTION_EXACT, DESCRIPTION_PREFIX, tokenScores);
+            tokenScores.forEach((id, score) -> scores.merge(id, score, Integer::sum));
+        }
+
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(limit + 1, BY_SCORE);
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            top.add(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<Long, Integer>> best = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            best.add(top.poll());
+        }
+        Collections.reverse(best);
+        Map<Long, Integer> ranked = new LinkedHashMap<>();
+        best.forEach(entry -> ranked.put(entry.getKey(), entry.getValue()));
+        return ranked;
+    }
+
+    private static void reindex(PostingMap<String> terms, long id, String oldText, String newText) {
+        Set<String> oldTokens = Tokenizer.tokenize(oldText);
+        Set<String> newTokens = Tokenizer.tokenize(newText);
+        for (String token : oldTokens) {
+            if (!newTokens.contains(token)) {
+                terms.remove(token, id);
+            }
+        }
+        for (String token : newTokens) {
+            if (!oldTokens.contains(token)) {
+                terms.add(token, id);
+            }
+        }
+    }
+
+    private static void collect(PostingMap<String> terms, String token,
+                                int exactScore, int prefixScore, Map<Long, Integer> scores) {
+        ChunkedLongSet exact = terms.get(token);
+        if (exact != null) {
+            exact.forEach(id -> scores.merge(id, exactScore, Math::max));
+        }
+        if (token.length() < MIN_PREFIX_LENGTH) {
+            return;
+        }
+        int expanded = 0;
+        for (ChunkedLongSet ids : terms.view().subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            if (++expanded > MAX_EXPANDED_TERMS) {
+                break;
+            }
+            ids.forEach(id -> scores.merge(id, prefixScore, Math::max));
+        }
+    }
+}
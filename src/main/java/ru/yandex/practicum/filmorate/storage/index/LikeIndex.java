@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+/**
+ * Вторичный индекс лайков. Хранилище вызывает его при каждом поставленном или снятом лайке
+ * внутри критической секции фильма: лайки одного фильма приходят по порядку, разных - параллельно.
+ */
+public interface LikeIndex {
+
+    /**
+     * @param added true - лайк поставлен, false - снят
+     */
+    void update(long filmId, long userId, boolean added);
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import ru.yandex.practicum.filmorate.util.ChunkedLongSet;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Упорядоченная карта ключ - множество id фильмов для вторичных индексов.
+ * Изменения одного ключа идут под блокировкой из полосы, выбранной по ключу: так пустое множество
+ * удаляется из карты, не теряя id, добавляемый в него параллельно. Чтение идёт без блокировок.
+ */
+final class PostingMap<K> {
+
+    private final ConcurrentNavigableMap<K, ChunkedLongSet> postings = new ConcurrentSkipListMap<>();
+    private final StripedLocks keyLocks = new StripedLocks(64);
+
+    void add(K key, long id) {
+        Lock lock = lockFor(key);
+        lock.lock();
+        try {
+            postings.computeIfAbsent(key, k -> new ChunkedLongSet()).add(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(K key, long id) {
+        Lock lock = lockFor(key);
+        lock.lock();
+        try {
+            ChunkedLongSet ids = postings.get(key);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ChunkedLongSet get(K key) {
+        return postings.get(key);
+    }
+
+    /**
+     * Живое представление карты для выборки диапазонов.
+     */
+    ConcurrentNavigableMap<K, ChunkedLongSet> view() {
+        return postings;
+    }
+
+    private Lock lockFor(K key) {
+        return keyLocks.get(key.hashCode());
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Разбивает текст на слова по символам, не являющимся буквой или цифрой.
+ * Слова приводятся к нижнему регистру, «ё» заменяется на «е», поэтому кириллица и латиница
+ * обрабатываются одинаково и «Ёлки» находятся по запросу «елки».
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(normalize(c));
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
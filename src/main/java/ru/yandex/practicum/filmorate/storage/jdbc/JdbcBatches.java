@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Пакетная запись одним подготовленным выражением: строки добавляются через {@code addBatch}
+ * и уходят в базу частями по {@code batchSize}. Нарушение уникальности превращается в {@link BatchItemException}
+ * с номером строки - его нельзя получить из исключения, переведённого {@link JdbcTemplate}.
+ */
+final class JdbcBatches {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private JdbcBatches() {
+    }
+
+    /**
+     * @param onDuplicate ошибка элемента при нарушении уникальности; null - исключение драйвера пробрасывается как есть
+     */
+    static <T> void update(JdbcTemplate jdbc, String sql, List<T> items, int batchSize,
+                           ParameterizedPreparedStatementSetter<T> setter, Supplier<RuntimeException> onDuplicate) {
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int start = 0; start < items.size(); start += batchSize) {
+                    int end = Math.min(items.size(), start + batchSize);
+                    for (int i = start; i < end; i++) {
+                        setter.setValues(statement, items.get(i));
+                        statement.addBatch();
+                    }
+                    try {
+                        statement.executeBatch();
+                    } catch (BatchUpdateException e) {
+                        if (onDuplicate != null && isUniqueViolation(e)) {
+                            throw new BatchItemException(start + failedOffset(e), onDuplicate.get());
+                        }
+                        throw e;
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    static boolean isUniqueViolation(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (UNIQUE_VIOLATION.equals(current.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Первая неудачная строка части: драйвер либо отмечает её {@link Statement#EXECUTE_FAILED},
+     * либо останавливается на ней, и тогда счётчиков столько, сколько строк прошло.
+     */
+    private static int failedOffset(BatchUpdateException e) {
+        int[] counts = e.getUpdateCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.EXECUTE_FAILED) {
+                return i;
+            }
+        }
+        return counts.length;
+    }
+}
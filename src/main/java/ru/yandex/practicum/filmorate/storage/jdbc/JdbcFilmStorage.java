@@ -0,0 +1,319 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cluster.ClusterTopology;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmIndex;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище фильмов во встроенной базе H2. Id выдаёт {@link IdGenerator}, продолженный с наибольшего id в базе,
+ * поэтому пакет уходит одним {@code executeBatch} без чтения сгенерированных ключей. Страницы читаются по ключу
+ * ({@code id > ? ORDER BY id LIMIT ?}), без OFFSET. Разобранные выражения H2 держит в кеше сессии, а пул
+ * сохраняет сессии между запросами, так что повторные запросы не разбираются заново.
+ * <p>
+ * Базой владеет один процесс, поэтому порядок изменений задают блокировки приложения, как в памяти:
+ * одиночная запись - общая блокировка пакетов и блокировка id из полосы, пакет - эксклюзивная блокировка
+ * и одна транзакция. Вторичные индексы живут в памяти, заполняются из базы при старте
+ * и обновляются под теми же блокировками. Включается свойством {@code filmorate.storage.type=jdbc}.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+
+    private static final String COLUMNS = "id, name, description, release_date, duration, version";
+    private static final String INSERT = "INSERT INTO films (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, version = ? WHERE id = ?";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM films";
+    private static final int RESTORE_PAGE_SIZE = 1_000;
+
+    private static final RowMapper<Film> FILM = (rs, row) -> {
+        Film film = new Film();
+        film.setId(rs.getLong("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+        film.setDuration(rs.getObject("duration", Integer.class));
+        film.setVersion(rs.getLong("version"));
+        return film;
+    };
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final IdGenerator idGenerator;
+    private final int batchSize;
+    private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final StripedLocks writeLocks = new StripedLocks(256);
+    private final AtomicLong version = new AtomicLong();
+    private final List<FilmIndex> indexes;
+
+    public JdbcFilmStorage(DataSource dataSource, List<FilmIndex> indexes) {
+        this(dataSource, indexes, ClusterTopology.single(), 500);
+    }
+
+    @Autowired
+    public JdbcFilmStorage(DataSource dataSource, List<FilmIndex> indexes, ClusterTopology topology,
+                           @Value("${filmorate.jdbc.batch-size}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть положительным: " + batchSize);
+        }
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.indexes = List.copyOf(indexes);
+        this.idGenerator = topology.newIdGenerator();
+        this.batchSize = batchSize;
+        restore();
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Collection<Film> findAll() {
+        return jdbc.query(SELECT + " ORDER BY id", FILM);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> findPage(long afterId, int limit) {
+        return jdbc.query(SELECT + " WHERE id > ? ORDER BY id LIMIT ?", FILM, afterId, limit);
+    }
+
+    @Override
+    public Optional<Film> findById(long id) {
+        return jdbc.query(SELECT + " WHERE id = ?", FILM, id).stream().findFirst();
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film create(Film film) {
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        try {
+            film.setId(idGenerator.getNextId());
+            film.setVersion(1);
+            Lock filmLock = writeLocks.get(film.getId());
+            filmLock.lock();
+            try {
+                jdbc.update(INSERT, ps -> bindInsert(ps, film));
+                indexes.forEach(index -> index.update(null, film));
+                version.incrementAndGet();
+            } finally {
+                filmLock.unlock();
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Фильм с id:{} сохранён", film.getId());
+        return film;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film update(Film film) {
+        return update(film, anyVersion -> true);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film update(Film film, LongPredicate expectedVersion) {
+        if (film.getId() == null) {
+            throw new NotFoundException("Фильм с id:" + film.getId() + " не найден");
+        }
+        return patch(film.getId(), current -> film, expectedVersion);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Film patch(long id, UnaryOperator<Film> change, LongPredicate expectedVersion) {
+        Film film;
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        Lock filmLock = writeLocks.get(id);
+        filmLock.lock();
+        try {
+            Film oldFilm = findById(id).orElseThrow(() -> new NotFoundException("Фильм с id:" + id + " не найден"));
+            if (!expectedVersion.test(oldFilm.getVersion())) {
+                throw new PreconditionFailedException("Фильм с id:" + id + " уже изменён другим запросом");
+            }
+            film = change.apply(oldFilm);
+            film.setId(id);
+            film.setVersion(oldFilm.getVersion() + 1);
+            Film changed = film;
+            jdbc.update(UPDATE, ps -> bindUpdate(ps, changed));
+            indexes.forEach(index -> index.update(oldFilm, changed));
+            version.incrementAndGet();
+        } finally {
+            filmLock.unlock();
+            lock.unlock();
+        }
+        log.debug("Фильм с id:{} обновлён", id);
+        return film;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> createAll(List<Film> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            long firstId = idGenerator.reserveBlock(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(idGenerator.idAt(firstId, i));
+                batch.get(i).setVersion(1);
+            }
+            transactions.executeWithoutResult(status ->
+                    JdbcBatches.update(jdbc, INSERT, batch, batchSize, JdbcFilmStorage::bindInsert, null));
+            for (Film film : batch) {
+                indexes.forEach(index -> index.update(null, film));
+                version.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Сохранён пакет из {} фильмов", batch.size());
+        return batch;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<Film> updateAll(List<Film> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            Map<Long, Film> current = findAllById(batch);
+            List<Film> oldFilms = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Film film = batch.get(i);
+                Film oldFilm = film.getId() == null ? null : current.get(film.getId());
+                if (oldFilm == null) {
+                    throw new BatchItemException(i, new NotFoundException("Фильм с id:" + film.getId() + " не найден"));
+                }
+                // фильм может встретиться в пакете несколько раз: каждая замена видит предыдущую
+                film.setVersion(oldFilm.getVersion() + 1);
+                current.put(film.getId(), film);
+                oldFilms.add(oldFilm);
+            }
+            transactions.executeWithoutResult(status ->
+                    JdbcBatches.update(jdbc, UPDATE, batch, batchSize, JdbcFilmStorage::bindUpdate, null));
+            for (int i = 0; i < batch.size(); i++) {
+                Film oldFilm = oldFilms.get(i);
+                Film film = batch.get(i);
+                indexes.forEach(index -> index.update(oldFilm, film));
+                version.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Обновлён пакет из {} фильмов", batch.size());
+        return batch;
+    }
+
+    @Override
+    public boolean exists(long id) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)",
+                Boolean.class, id));
+    }
+
+    @Override
+    public int size() {
+        Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM films", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    private Map<Long, Film> findAllById(List<Film> batch) {
+        Long[] ids = batch.stream().map(Film::getId).distinct().toArray(Long[]::new);
+        Map<Long, Film> found = new HashMap<>();
+        jdbc.query(SELECT + " WHERE id = ANY(?)", FILM, (Object) ids).forEach(film -> found.put(film.getId(), film));
+        return found;
+    }
+
+    /**
+     * Продолжает выдачу id с наибольшего сохранённого и заполняет вторичные индексы страницами по ключу.
+     */
+    private void restore() {
+        Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM films", Long.class);
+        if (maxId != null) {
+            idGenerator.seed(maxId);
+        }
+        if (indexes.isEmpty()) {
+            return;
+        }
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = findPage(afterId, RESTORE_PAGE_SIZE);
+            for (Film film : page) {
+                indexes.forEach(index -> index.update(null, film));
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == RESTORE_PAGE_SIZE);
+        if (afterId > 0) {
+            log.info("Индексы фильмов восстановлены из базы, последний id:{}", afterId);
+        }
+    }
+
+    private static void bindInsert(PreparedStatement ps, Film film) throws SQLException {
+        ps.setLong(1, film.getId());
+        ps.setString(2, film.getName());
+        ps.setString(3, film.getDescription());
+        ps.setObject(4, film.getReleaseDate());
+        ps.setObject(5, film.getDuration());
+        ps.setLong(6, film.getVersion());
+    }
+
+    private static void bindUpdate(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getName());
+        ps.setString(2, film.getDescription());
+        ps.setObject(3, film.getReleaseDate());
+        ps.setObject(4, film.getDuration());
+        ps.setLong(5, film.getVersion());
+        ps.setLong(6, film.getId());
+    }
+}
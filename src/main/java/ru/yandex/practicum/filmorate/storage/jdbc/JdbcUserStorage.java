@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cluster.ClusterTopology;
+import ru.yandex.practicum.filmorate.exceptions.BatchItemException;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.StripedLocks;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Хранилище пользователей во встроенной базе H2. Уникальность email без учёта регистра обеспечивает сама база:
+ * столбец {@code VARCHAR_IGNORECASE} с ограничением UNIQUE, нарушение которого становится {@link DuplicateException}.
+ * Пакет пишется одной транзакцией, поэтому занятый email любого элемента отменяет весь пакет.
+ * Блокировки, выдача id и чтение по ключу - как в {@link JdbcFilmStorage}.
+ * <p>
+ * Кластер не поддерживается: база узла не видит email, занятые на других узлах.
+ * Включается свойством {@code filmorate.storage.type=jdbc}.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcUserStorage implements UserStorage {
+
+    private static final String COLUMNS = "id, email, login, name, birthday, version";
+    private static final String INSERT = "INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+            "UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, version = ? WHERE id = ?";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM users";
+    private static final String EMAIL_TAKEN = "Email уже используется";
+
+    private static final RowMapper<User> USER = (rs, row) -> {
+        User user = new User(rs.getLong("id"), rs.getString("email"), rs.getString("login"), rs.getString("name"),
+                rs.getObject("birthday", LocalDate.class));
+        user.setVersion(rs.getLong("version"));
+        return user;
+    };
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final IdGenerator idGenerator;
+    private final int batchSize;
+    private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final StripedLocks writeLocks = new StripedLocks(256);
+    private final AtomicLong version = new AtomicLong();
+
+    public JdbcUserStorage(DataSource dataSource) {
+        this(dataSource, ClusterTopology.single(), 500);
+    }
+
+    @Autowired
+    public JdbcUserStorage(DataSource dataSource, ClusterTopology topology,
+                           @Value("${filmorate.jdbc.batch-size}") int batchSize) {
+        if (topology.isEnabled()) {
+            throw new IllegalStateException("Хранилище jdbc не работает в кластере: email на других узлах не проверяются");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть положительным: " + batchSize);
+        }
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.idGenerator = topology.newIdGenerator();
+        this.batchSize = batchSize;
+        Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM users", Long.class);
+        if (maxId != null) {
+            idGenerator.seed(maxId);
+        }
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public Collection<User> findAll() {
+        return jdbc.query(SELECT + " ORDER BY id", USER);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<User> findPage(long afterId, int limit) {
+        return jdbc.query(SELECT + " WHERE id > ? ORDER BY id LIMIT ?", USER, afterId, limit);
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return jdbc.query(SELECT + " WHERE id = ?", USER, id).stream().findFirst();
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public User create(User user) {
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        try {
+            user.setId(idGenerator.getNextId());
+            user.setVersion(1);
+            write(INSERT, user, JdbcUserStorage::bindInsert);
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Пользователь с id:{} сохранён", user.getId());
+        return user;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<User> createAll(List<User> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            long firstId = idGenerator.reserveBlock(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(idGenerator.idAt(firstId, i));
+                batch.get(i).setVersion(1);
+            }
+            transactions.executeWithoutResult(status -> JdbcBatches.update(jdbc, INSERT, batch, batchSize,
+                    JdbcUserStorage::bindInsert, () -> new DuplicateException(EMAIL_TAKEN)));
+            version.addAndGet(batch.size());
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Сохранён пакет из {} пользователей", batch.size());
+        return batch;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public User update(User user) {
+        return update(user, anyVersion -> true);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public User update(User user, LongPredicate expectedVersion) {
+        if (user.getId() == null) {
+            throw new NotFoundException("Пользователь с заданным id не существует");
+        }
+        return patch(user.getId(), current -> user, expectedVersion);
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public User patch(long id, UnaryOperator<User> change, LongPredicate expectedVersion) {
+        User user;
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        Lock userLock = writeLocks.get(id);
+        userLock.lock();
+        try {
+            User oldUser = findById(id)
+                    .orElseThrow(() -> new NotFoundException("Пользователь с заданным id не существует"));
+            if (!expectedVersion.test(oldUser.getVersion())) {
+                throw new PreconditionFailedException("Пользователь с id:" + id + " уже изменён другим запросом");
+            }
+            user = change.apply(oldUser);
+            user.setId(id);
+            user.setVersion(oldUser.getVersion() + 1);
+            write(UPDATE, user, JdbcUserStorage::bindUpdate);
+            version.incrementAndGet();
+        } finally {
+            userLock.unlock();
+            lock.unlock();
+        }
+        log.debug("Пользователь с id:{} обновлён", id);
+        return user;
+    }
+
+    @Override
+    @Timed("filmorate.storage")
+    public List<User> updateAll(List<User> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            Map<Long, User> current = findAllById(batch);
+            Set<Long> batchIds = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Long id = batch.get(i).getId();
+                User oldUser = id == null ? null : current.get(id);
+                if (oldUser == null) {
+                    throw new BatchItemException(i, new NotFoundException("Пользователь с id:" + id + " не существует"));
+                }
+                if (!batchIds.add(id)) {
+                    throw new BatchItemException(i, new ValidationException("Пользователь с id:" + id
+                            + " встречается в пакете несколько раз"));
+                }
+                batch.get(i).setVersion(oldUser.getVersion() + 1);
+            }
+            transactions.executeWithoutResult(status -> JdbcBatches.update(jdbc, UPDATE, batch, batchSize,
+                    JdbcUserStorage::bindUpdate, () -> new DuplicateException(EMAIL_TAKEN)));
+            version.addAndGet(batch.size());
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Обновлён пакет из {} пользователей", batch.size());
+        return batch;
+    }
+
+    @Override
+    public boolean exists(long id) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)",
+                Boolean.class, id));
+    }
+
+    @Override
+    public boolean isEmailTaken(String email) {
+        // email - VARCHAR_IGNORECASE, сравнение без учёта регистра делает база
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM users WHERE email = ?)",
+                Boolean.class, email));
+    }
+
+    @Override
+    public int size() {
+        Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    private void write(String sql, User user, ParameterizedPreparedStatementSetter<User> binder) {
+        try {
+            jdbc.update(sql, ps -> binder.setValues(ps, user));
+        } catch (DuplicateKeyException e) {
+            log.warn("Пользователь с email:{} уже был добавлен", user.getEmail());
+            throw new DuplicateException(EMAIL_TAKEN);
+        }
+    }
+
+    private Map<Long, User> findAllById(List<User> batch) {
+        Long[] ids = batch.stream().map(User::getId).distinct().toArray(Long[]::new);
+        Map<Long, User> found = new HashMap<>();
+        jdbc.query(SELECT + " WHERE id = ANY(?)", USER, (Object) ids).forEach(user -> found.put(user.getId(), user));
+        return found;
+    }
+
+    private static void bindInsert(PreparedStatement ps, User user) throws SQLException {
+        ps.setLong(1, user.getId());
+        ps.setString(2, user.getEmail());
+        ps.setString(3, user.getLogin());
+        ps.setString(4, user.getName());
+        ps.setObject(5, user.getBirthday());
+        ps.setLong(6, user.getVersion());
+    }
+
+    private static void bindUpdate(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getEmail());
+        ps.setString(2, user.getLogin());
+        ps.setString(3, user.getName());
+        ps.setObject(4, user.getBirthday());
+        ps.setLong(5, user.getVersion());
+        ps.setLong(6, user.getId());
+    }
+}
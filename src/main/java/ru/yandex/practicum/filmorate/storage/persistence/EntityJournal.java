@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToLongFunction;
+
+/**
+ * Журнал изменений одного типа сущностей. Каждая запись - полное состояние сущности,
+ * поэтому при восстановлении достаточно применить записи по порядку.
+ */
+public interface EntityJournal<T> extends AutoCloseable {
+
+    /**
+     * Ставит сущность в очередь на запись. Порядок записей в журнале совпадает с порядком вызовов,
+     * поэтому вызывать нужно там же, где меняется состояние в памяти (например, внутри compute).
+     * После первой неудачной записи журнал не сохраняет больше ничего: все следующие future завершаются
+     * с ошибкой, а новые вызовы бросают исключение. Поэтому хранилище может откатить несохранённые изменения
+     * до последнего сохранённого состояния, не боясь затереть более позднее сохранённое.
+     *
+     * @return future, завершающийся после fsync записи на диск
+     */
+    CompletableFuture<Void> append(long id, T entity);
+
+    /**
+     * Ставит в очередь пакет сущностей одной группой: либо все записи пакета попадут в очередь, либо ни одна.
+     * Реализация по умолчанию пишет сущности по одной и годится только для журналов, которые не падают.
+     *
+     * @return future, завершающийся после fsync всего пакета
+     */
+    default CompletableFuture<Void> appendAll(List<? extends T> entities, ToLongFunction<? super T> idOf) {
+        CompletableFuture<?>[] written = new CompletableFuture<?>[entities.size()];
+        for (int i = 0; i < written.length; i++) {
+            T entity = entities.get(i);
+            written[i] = append(idOf.applyAsLong(entity), entity);
+        }
+        return CompletableFuture.allOf(written);
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,392 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Журнал на локальном диске: append-only сегменты {@code <name>-<номер>.wal} и снимок {@code <name>.snapshot}.
+ * <p>
+ * Записи пишет один поток: он забирает из очереди всё накопившееся, пишет пачку через прямой буфер
+ * и делает один fsync на всю пачку (group commit). Когда в сегменте набирается {@code snapshotEvery} записей,
+ * поток переключается на новый сегмент, а закрытые сегменты в фоне сворачиваются в снимок:
+ * для каждого ключа остаётся последняя запись. Снимок хранит номер первого сегмента, который в него не вошёл,
+ * поэтому сегменты, оставшиеся после прерванного сворачивания, при восстановлении пропускаются.
+ */
+@Slf4j
+final class FileJournal<T> implements EntityJournal<T> {
+
+    private static final int SNAPSHOT_MAGIC = 0x464C4D53;
+    private static final int SNAPSHOT_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_GROUP_SIZE = 4096;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final Path dir;
+    private final String name;
+    private final Class<T> type;
+    private final ObjectMapper objectMapper;
+    private final long snapshotEvery;
+    private final Pattern segmentPattern;
+
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Thread writer;
+    private volatile Thread compaction;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    // поля ниже меняет только поток записи
+    private FileChannel segment;
+    private long segmentNumber;
+    private long recordsInSegment;
+
+    private FileJournal(Path dir, String name, Class<T> type, ObjectMapper objectMapper, long snapshotEvery) {
+        this.dir = dir;
+        this.name = name;
+        this.type = type;
+        this.objectMapper = objectMapper;
+        this.snapshotEvery = snapshotEvery;
+        this.segmentPattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.wal");
+        this.writer = Thread.ofPlatform().name("journal-" + name).daemon().unstarted(this::writeLoop);
+    }
+
+    /**
+     * Восстанавливает состояние из снимка и сегментов, передавая записи в {@code replayTarget} по порядку,
+     * и открывает новый сегмент для записи.
+     */
+    static <T> FileJournal<T> open(Path dir, String name, Class<T> type, ObjectMapper objectMapper,
+                                   long snapshotEvery, Consumer<T> replayTarget) throws IOException {
+        FileJournal<T> journal = new FileJournal<>(dir, name, type, objectMapper, snapshotEvery);
+        Files.createDirectories(dir);
+        long started = System.nanoTime();
+        long replayed = journal.recover(replayTarget);
+        log.info("Журнал {}: восстановлено {} записей за {} мс", name, replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        journal.writer.start();
+        return journal;
+    }
+
+    @Override
+    public CompletableFuture<Void> append(long id, T entity) {
+        checkWritable();
+        PendingRecord record = new PendingRecord(encode(id, entity), 1, new CompletableFuture<>());
+        queue.add(record);
+        return record.written;
+    }
+
+    /**
+     * Сериализует весь пакет до постановки в очередь и ставит его одной записью очереди:
+     * поток записи не разделит пакет между группами, и при ошибке сериализации в очередь не попадёт ничего.
+     */
+    @Override
+    public CompletableFuture<Void> appendAll(List<? extends T> entities, ToLongFunction<? super T> idOf) {
+        checkWritable();
+        List<ByteBuffer> frames = new ArrayList<>(entities.size());
+        int size = 0;
+        for (T entity : entities) {
+            ByteBuffer frame = encode(idOf.applyAsLong(entity), entity);
+            frames.add(frame);
+            size += frame.remaining();
+        }
+        ByteBuffer batch = ByteBuffer.allocate(size);
+        frames.forEach(batch::put);
+        PendingRecord record = new PendingRecord(batch.flip(), entities.size(), new CompletableFuture<>());
+        queue.add(record);
+        return record.written;
+    }
+
+    private void checkWritable() {
+        if (closed) {
+            throw new IllegalStateException("Журнал " + name + " закрыт");
+        }
+        IOException failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("Журнал " + name + " не принимает записи после ошибки", failed);
+        }
+    }
+
+    private ByteBuffer encode(long id, T entity) {
+        try {
+            return JournalRecords.encode(id, objectMapper.writeValueAsBytes(entity));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+            Thread running = compaction;
+            if (running != null) {
+                running.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long recover(Consumer<T> replayTarget) throws IOException {
+        long replayed = 0;
+        long firstLiveSegment = 1;
+        Path snapshot = snapshotPath();
+        if (Files.exists(snapshot)) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                firstLiveSegment = readSnapshotHeader(channel);
+                long[] count = {0};
+                long end = JournalRecords.read(channel, SNAPSHOT_HEADER_SIZE, (key, payload, frame) -> {
+                    replayTarget.accept(decode(payload));
+                    count[0]++;
+                });
+                if (end != channel.size()) {
+                    throw new IOException("Снимок " + snapshot + " повреждён");
+                }
+                replayed += count[0];
+            }
+        }
+
+        long lastSegment = firstLiveSegment - 1;
+        for (long number : segmentNumbers()) {
+            Path path = segmentPath(number);
+            if (number < firstLiveSegment) {
+                Files.delete(path); // уже вошёл в снимок, сворачивание было прервано
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long[] count = {0};
+                long end = JournalRecords.read(channel, 0, (key, payload, frame) -> {
+                    replayTarget.accept(decode(payload));
+                    count[0]++;
+                });
+                if (end < channel.size()) {
+                    log.warn("Журнал {}: в сегменте {} отброшена недописанная запись ({} байт)",
+                            name, number, channel.size() - end);
+                    channel.truncate(end);
+                    channel.force(true);
+                }
+                replayed += count[0];
+            }
+            lastSegment = number;
+        }
+
+        segmentNumber = lastSegment + 1;
+        segment = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+        return replayed;
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> group = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        while (!closed || !queue.isEmpty()) {
+            PendingRecord first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            group.add(first);
+            queue.drainTo(group, MAX_GROUP_SIZE - 1);
+            try {
+                writeGroup(group, buffer);
+                group.forEach(record -> record.written.complete(null));
+                group.forEach(record -> recordsInSegment += record.count);
+                if (recordsInSegment >= snapshotEvery) {
+                    rotate();
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    log.error("Журнал {}: ошибка записи, дальнейшие изменения не будут сохранены", name, e);
+                    failure = e;
+                }
+                group.forEach(record -> record.written.completeExceptionally(e));
+            }
+            group.clear();
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Журнал {}: не удалось закрыть сегмент", name, e);
+        }
+    }
+
+    private void writeGroup(List<PendingRecord> group, ByteBuffer buffer) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        buffer.clear();
+        for (PendingRecord record : group) {
+            ByteBuffer frame = record.frame;
+            if (frame.remaining() > buffer.remaining()) {
+                writeFully(segment, buffer.flip());
+                buffer.clear();
+            }
+            if (frame.remaining() > buffer.capacity()) {
+                writeFully(segment, frame);
+            } else {
+                buffer.put(frame);
+            }
+        }
+        writeFully(segment, buffer.flip());
+        segment.force(false);
+    }
+
+    private void rotate() throws IOException {
+        segment.force(true);
+        segment.close();
+        segmentNumber++;
+        recordsInSegment = 0;
+        segment = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+        if (compacting.compareAndSet(false, true)) {
+            long upTo = segmentNumber;
+            compaction = Thread.ofPlatform().name("journal-" + name + "-snapshot").daemon().start(() -> {
+                try {
+                    compact(upTo);
+                } catch (IOException e) {
+                    log.error("Журнал {}: не удалось записать снимок", name, e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Сворачивает текущий снимок и все сегменты с номером меньше {@code upTo} в новый снимок.
+     */
+    private void compact(long upTo) throws IOException {
+        long started = System.nanoTime();
+        Map<Long, ByteBuffer> latest = new TreeMap<>();
+        List<FileChannel> sources = new ArrayList<>();
+        try {
+            Path snapshot = snapshotPath();
+            if (Files.exists(snapshot)) {
+                FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+                sources.add(channel);
+                readSnapshotHeader(channel);
+                JournalRecords.read(channel, SNAPSHOT_HEADER_SIZE, (key, payload, frame) -> latest.put(key, frame));
+            }
+            List<Long> merged = new ArrayList<>();
+            for (long number : segmentNumbers()) {
+                if (number >= upTo) {
+                    continue;
+                }
+                FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ);
+                sources.add(channel);
+                JournalRecords.read(channel, 0, (key, payload, frame) -> latest.put(key, frame));
+                merged.add(number);
+            }
+
+            Path temp = dir.resolve(name + ".snapshot.tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE).putInt(SNAPSHOT_MAGIC).putLong(upTo);
+                writeFully(out, header.flip());
+                for (ByteBuffer frame : latest.values()) {
+                    writeFully(out, frame);
+                }
+                out.force(true);
+            }
+            Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // переименование сохранено только после fsync каталога: иначе после сбоя останется старый снимок,
+            // а сегменты, вошедшие в новый, будут уже удалены
+            syncDirectory();
+            for (long number : merged) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+            log.info("Журнал {}: снимок из {} записей записан за {} мс, удалено сегментов: {}", name, latest.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), merged.size());
+        } finally {
+            for (FileChannel channel : sources) {
+                channel.close();
+            }
+        }
+    }
+
+    private long readSnapshotHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Снимок журнала " + name + " повреждён");
+            }
+        }
+        header.flip();
+        if (header.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Файл " + snapshotPath() + " не является снимком журнала");
+        }
+        return header.getLong();
+    }
+
+    private T decode(ByteBuffer payload) throws IOException {
+        return objectMapper.readValue(new ByteBufferBackedInputStream(payload), type);
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> segmentPattern.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("%s-%010d.wal", name, number));
+    }
+
+    private Path snapshotPath() {
+        return dir.resolve(name + ".snapshot");
+    }
+
+    /**
+     * Сохраняет на диск записи каталога: созданные, переименованные и удалённые файлы.
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Кадр одной записи или подряд идущие кадры пакета; {@code count} - число записей в нём.
+     */
+    private record PendingRecord(ByteBuffer frame, int count, CompletableFuture<Void> written) {
+    }
+}
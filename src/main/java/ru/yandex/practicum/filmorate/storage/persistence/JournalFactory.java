@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Открывает журналы хранилищ. При {@code filmorate.persistence.enabled=false} журналы ничего не пишут.
+ */
+@Slf4j
+@Component
+public class JournalFactory {
+
+    private static final CompletableFuture<Void> WRITTEN = CompletableFuture.completedFuture(null);
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long snapshotEvery;
+    private final ObjectMapper objectMapper;
+    private final List<EntityJournal<?>> opened = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public JournalFactory(@Value("${filmorate.persistence.enabled}") boolean enabled,
+                          @Value("${filmorate.persistence.dir}") Path dir,
+                          @Value("${filmorate.persistence.snapshot-every}") long snapshotEvery,
+                          ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.dir = dir;
+        this.snapshotEvery = snapshotEvery;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Фабрика без записи на диск, для хранилищ, создаваемых вне контекста Spring.
+     */
+    public static JournalFactory disabled() {
+        return new JournalFactory(false, null, 0, null);
+    }
+
+    /**
+     * Открывает журнал и передаёт все сохранённые записи в {@code replayTarget} до возврата из метода.
+     */
+    public <T> EntityJournal<T> open(String name, Class<T> type, Consumer<T> replayTarget) {
+        if (!enabled) {
+            return new DisabledJournal<>();
+        }
+        try {
+            EntityJournal<T> journal = FileJournal.open(dir, name, type, objectMapper, snapshotEvery, replayTarget);
+            opened.add(journal);
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить данные из журнала " + name, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        opened.forEach(EntityJournal::close);
+        opened.clear();
+    }
+
+    private static final class DisabledJournal<T> implements EntityJournal<T> {
+        @Override
+        public CompletableFuture<Void> append(long id, T entity) {
+            return WRITTEN;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
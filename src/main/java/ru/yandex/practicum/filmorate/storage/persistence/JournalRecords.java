@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Формат записи: [int длина данных][int crc32c ключа и данных][long ключ][данные].
+ * Одинаков для сегментов журнала и файлов снимков.
+ */
+final class JournalRecords {
+
+    static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    static final int WINDOW_SIZE = 1 << 30;
+
+    private JournalRecords() {
+    }
+
+    static ByteBuffer encode(long key, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt(0);
+        frame.putLong(key);
+        frame.put(payload);
+        frame.putInt(Integer.BYTES, checksum(frame, Integer.BYTES * 2, frame.capacity()));
+        return frame.flip();
+    }
+
+    /**
+     * Читает записи файла через отображение в память начиная с {@code position}.
+     * Файл отображается окнами по {@link #WINDOW_SIZE}, поэтому размер файла не ограничен адресуемым буфером.
+     * Чтение останавливается на первой неполной или повреждённой записи.
+     *
+     * @return позиция конца последней целой записи
+     */
+    static long read(FileChannel channel, long position, RecordConsumer consumer) throws IOException {
+        return read(channel, position, WINDOW_SIZE, consumer);
+    }
+
+    static long read(FileChannel channel, long position, int windowSize, RecordConsumer consumer) throws IOException {
+        long size = channel.size();
+        long pos = position;
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        while (size - pos >= HEADER_SIZE) {
+            if (window == null || pos + HEADER_SIZE > windowStart + window.capacity()) {
+                windowStart = pos;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, size - pos));
+            }
+            int length = window.getInt((int) (pos - windowStart));
+            long end = pos + HEADER_SIZE + (long) length;
+            if (length < 0 || end > size || end - pos > Integer.MAX_VALUE) {
+                break;
+            }
+            if (end > windowStart + window.capacity()) {
+                // запись не помещается в окно: новое окно начинается с неё и вмещает её целиком
+                windowStart = pos;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                        Math.min(Math.max(windowSize, end - pos), size - pos));
+            }
+            int from = (int) (pos - windowStart);
+            int to = (int) (end - windowStart);
+            if (window.getInt(from + Integer.BYTES) != checksum(window, from + Integer.BYTES * 2, to)) {
+                break;
+            }
+            consumer.accept(window.getLong(from + Integer.BYTES * 2),
+                    window.slice(from + HEADER_SIZE, length),
+                    window.slice(from, HEADER_SIZE + length));
+            pos = end;
+        }
+        return pos;
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(from, to - from));
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        /**
+         * @param payload данные записи
+         * @param frame   запись целиком вместе с заголовком, для побайтового копирования
+         */
+        void accept(long key, ByteBuffer payload, ByteBuffer frame) throws IOException;
+    }
+}
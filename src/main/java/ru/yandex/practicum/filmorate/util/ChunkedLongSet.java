@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Упорядоченное множество long из неизменяемых отсортированных блоков до {@link #CHUNK_SIZE} значений.
+ * Вставка и удаление копируют один блок, а не всё множество, поэтому большие списки
+ * меняются за постоянное время. На значение уходит около 9 байт.
+ * <p>
+ * Изменения - под внешней блокировкой владельца. Читатели обходят блоки без блокировок:
+ * при параллельном изменении обход может увидеть значение дважды, но не пропустит
+ * значение, которое было в множестве всё время обхода.
+ */
+public final class ChunkedLongSet {
+
+    static final int CHUNK_SIZE = 128;
+
+    /**
+     * Ключ - наименьшее значение блока.
+     */
+    private final ConcurrentNavigableMap<Long, long[]> chunks = new ConcurrentSkipListMap<>();
+    private volatile int size;
+
+    public boolean add(long value) {
+        Map.Entry<Long, long[]> entry = chunks.floorEntry(value);
+        if (entry == null) {
+            entry = chunks.firstEntry();
+            if (entry == null) {
+                chunks.put(value, new long[]{value});
+                size++;
+                return true;
+            }
+        }
+        long[] chunk = entry.getValue();
+        long[] updated = SortedLongArrays.insert(chunk, value);
+        if (updated == chunk) {
+            return false;
+        }
+        if (updated.length <= CHUNK_SIZE) {
+            replace(entry.getKey(), updated);
+        } else if (value == updated[updated.length - 1]) {
+            // значения чаще растут, поэтому новое наибольшее начинает свой блок, а полный остаётся полным
+            chunks.put(value, new long[]{value});
+        } else {
+            int half = updated.length / 2;
+            // правую половину публикуем первой, чтобы читатель не пропустил её значения
+            chunks.put(updated[half], Arrays.copyOfRange(updated, half, updated.length));
+            replace(entry.getKey(), Arrays.copyOf(updated, half));
+        }
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        Map.Entry<Long, long[]> entry = chunks.floorEntry(value);
+        if (entry == null) {
+            return false;
+        }
+        long[] chunk = entry.getValue();
+        long[] updated = SortedLongArrays.remove(chunk, value);
+        if (updated == chunk) {
+            return false;
+        }
+        if (updated.length == 0) {
+            chunks.remove(entry.getKey());
+        } else {
+            replace(entry.getKey(), updated);
+        }
+        size--;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        Map.Entry<Long, long[]> entry = chunks.floorEntry(value);
+        return entry != null && SortedLongArrays.contains(entry.getValue(), value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Обход по возрастанию.
+     */
+    public void forEach(LongConsumer action) {
+        for (long[] chunk : chunks.values()) {
+            for (long value : chunk) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Снимок значений по возрастанию.
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int count = 0;
+        for (long[] chunk : chunks.values()) {
+            if (count + chunk.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, count + chunk.length));
+            }
+            System.arraycopy(chunk, 0, values, count, chunk.length);
+            count += chunk.length;
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Обход значений больше {@code after} по возрастанию. Блоки до {@code after} не просматриваются.
+     * При параллельном изменении значение может встретиться дважды, как и в {@link #forEach}.
+     */
+    public PrimitiveIterator.OfLong iteratorAfter(long after) {
+        Long from = chunks.floorKey(after);
+        Iterator<long[]> rest = (from == null ? chunks : chunks.tailMap(from, true)).values().iterator();
+        return new PrimitiveIterator.OfLong() {
+            private long[] chunk = SortedLongArrays.EMPTY;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                while (position == chunk.length) {
+                    if (!rest.hasNext()) {
+                        return false;
+                    }
+                    chunk = rest.next();
+                    int found = Arrays.binarySearch(chunk, after);
+                    position = found >= 0 ? found + 1 : -found - 1;
+                }
+                return true;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk[position++];
+            }
+        };
+    }
+
+    private void replace(long key, long[] chunk) {
+        if (chunk[0] == key) {
+            chunks.put(key, chunk);
+        } else {
+            // наименьшее значение изменилось: новый ключ появляется раньше, чем исчезает старый
+            chunks.put(chunk[0], chunk);
+            chunks.remove(key);
+        }
+    }
+}
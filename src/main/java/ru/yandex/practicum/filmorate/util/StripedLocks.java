@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор {@link ReentrantLock}, выбираемых по хешу ключа. В отличие от {@code synchronized}
+ * ожидание такой блокировки не закрепляет виртуальный поток за потоком-носителем.
+ */
+public final class StripedLocks {
+
+    private final Lock[] locks;
+
+    /**
+     * @param stripes число блокировок, степень двойки
+     */
+    public StripedLocks(int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Число блокировок должно быть степенью двойки: " + stripes);
+        }
+        locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock get(long hash) {
+        long mixed = hash * 0x9E3779B97F4A7C15L;
+        return locks[(int) (mixed >>> 32) & (locks.length - 1)];
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Строки в UTF-8 на страницах {@code byte[]}. Строка записывается один раз и больше не меняется,
+ * ссылка на неё - одно long: номер страницы, смещение и длина в байтах. Ссылка {@link #NULL} означает null.
+ * <p>
+ * Запись - под внешней блокировкой владельца. Строку по ссылке, полученной под блокировкой или
+ * с успешной проверкой оптимистичного чтения, можно читать без блокировок: записанные байты не меняются.
+ */
+public final class Utf8Arena {
+
+    public static final long NULL = -1;
+
+    private static final long EMPTY = 0;
+
+    static final int PAGE_SIZE = 1 << 16;
+
+    private static final int OFFSET_BITS = 16;
+    private static final int LENGTH_BITS = 26;
+    private static final int MAX_PAGES = 1 << (Long.SIZE - OFFSET_BITS - LENGTH_BITS);
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private volatile byte[][] pages = new byte[0][];
+    private int pageCount;
+    private int currentPage = -1;
+    private int position = PAGE_SIZE;
+    private long allocatedBytes;
+
+    public long add(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return put(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Переносит строку из другой арены без перекодирования.
+     */
+    public long copyFrom(Utf8Arena source, long ref) {
+        if (ref == NULL || ref == EMPTY) {
+            return ref;
+        }
+        return put(source.pages[page(ref)], offset(ref), length(ref));
+    }
+
+    public String get(long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        if (ref == EMPTY) {
+            return "";
+        }
+        return new String(pages[page(ref)], offset(ref), length(ref), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Байты, занятые строкой; для null - 0.
+     */
+    public static int length(long ref) {
+        return ref == NULL ? 0 : (int) (ref & LENGTH_MASK);
+    }
+
+    /**
+     * Объём выделенных страниц, включая незанятые хвосты.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    private long put(byte[] bytes, int from, int length) {
+        if (length > LENGTH_MASK) {
+            throw new IllegalArgumentException("Строка длиной " + length + " байт не помещается в арену");
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+        int pageIndex;
+        int offset;
+        if (length > PAGE_SIZE) {
+            // длинная строка получает свою страницу, текущая продолжает заполняться
+            pageIndex = publish(new byte[length]);
+            offset = 0;
+        } else {
+            if (position + length > PAGE_SIZE) {
+                currentPage = publish(new byte[PAGE_SIZE]);
+                position = 0;
+            }
+            pageIndex = currentPage;
+            offset = position;
+            position += length;
+        }
+        System.arraycopy(bytes, from, pages[pageIndex], offset, length);
+        return ((long) pageIndex << (OFFSET_BITS + LENGTH_BITS)) | ((long) offset << LENGTH_BITS) | length;
+    }
+
+    private int publish(byte[] page) {
+        if (pageCount == MAX_PAGES) {
+            throw new IllegalStateException("Арена строк заполнена");
+        }
+        byte[][] current = pages;
+        byte[][] grown = pageCount < current.length ? current : Arrays.copyOf(current, Math.max(16, pageCount * 2));
+        grown[pageCount] = page;
+        allocatedBytes += page.length;
+        // запись ссылки на массив публикует и саму страницу
+        pages = grown;
+        return pageCount++;
+    }
+
+    private static int page(long ref) {
+        return (int) (ref >>> (OFFSET_BITS + LENGTH_BITS));
+    }
+
+    private static int offset(long ref) {
+        return (int) ((ref >>> LENGTH_BITS) & OFFSET_MASK);
+    }
+}
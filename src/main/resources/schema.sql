@@ -0,0 +1,23 @@
+-- схема хранилища jdbc (filmorate.storage.type=jdbc); id выдаёт приложение, version - версия записи для ETag
+
+CREATE TABLE IF NOT EXISTS films
+(
+    id           BIGINT PRIMARY KEY,
+    name         VARCHAR      NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE         NOT NULL,
+    duration     INTEGER,
+    version      BIGINT       NOT NULL
+);
+
+-- VARCHAR_IGNORECASE: уникальность email без учёта регистра, как в EmailIndex
+CREATE TABLE IF NOT EXISTS users
+(
+    id       BIGINT PRIMARY KEY,
+    email    VARCHAR_IGNORECASE NOT NULL,
+    login    VARCHAR            NOT NULL,
+    name     VARCHAR,
+    birthday DATE               NOT NULL,
+    version  BIGINT             NOT NULL,
+    CONSTRAINT users_email_unique UNIQUE (email)
+);
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Время от запуска JVM до первого успешного ответа {@code GET /films} - то, что ждёт балансировщик
+ * при масштабировании. Приложение запускается отдельным процессом - собранный jar с архивом CDS и AOT
+ * из каталога сборки ({@code startup.jar}, {@code startup.jvm-args}, {@code startup.dir}), поэтому тест
+ * выполняется только в профиле fast-startup, который их задаёт. Тест падает, если старт дольше {@code startup.budget}.
+ */
+@EnabledIfSystemProperty(named = "startup.jar", matches = ".+")
+class StartupTimeTest {
+
+    private static final Duration BUDGET = Duration.parse(System.getProperty("startup.budget", "PT40S"));
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    @Test
+    void firstRequest_freshJvm_servedWithinBudget(@TempDir Path workDir) throws Exception {
+        int port = freePort();
+        Path log = workDir.resolve("application.log");
+        String dir = System.getProperty("startup.dir");
+        Process process = new ProcessBuilder(command(port))
+                .directory(dir == null ? workDir.toFile() : new File(dir))
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        long started = System.nanoTime();
+        try {
+            Duration elapsed = awaitFirstResponse(process, port, started, log);
+            assertThat(elapsed).as("время до первого ответа").isLessThanOrEqualTo(BUDGET);
+
+            HttpResponse<String> created = client.send(HttpRequest.newBuilder(uri(port, "/films"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"name\":\"Старт\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(created.statusCode()).isEqualTo(200);
+            assertThat(created.body()).contains("\"id\":1");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private Duration awaitFirstResponse(Process process, int port, long started, Path log) throws Exception {
+        // ждём вдвое дольше бюджета, чтобы при провале увидеть, насколько он превышен
+        long deadline = started + BUDGET.multipliedBy(2).toNanos();
+        HttpRequest request = HttpRequest.newBuilder(uri(port, "/films")).GET().build();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                fail("Приложение завершилось с кодом " + process.exitValue() + ":\n" + Files.readString(log));
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return Duration.ofNanos(System.nanoTime() - started);
+                }
+            } catch (ConnectException e) {
+                // сервер ещё не слушает порт
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+        return fail("Нет ответа за " + BUDGET.multipliedBy(2).toSeconds() + " с:\n" + Files.readString(log));
+    }
+
+    private static List<String> command(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = System.getProperty("startup.jvm-args", "");
+        if (!jvmArgs.isBlank()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.add("-jar");
+        command.add(System.getProperty("startup.jar"));
+        command.add("--server.port=" + port);
+        return command;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static URI uri(int port, String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.yandex.practicum.filmorate.cluster.ClusterClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "filmorate.admission.enabled=true",
+        "filmorate.admission.write.rate=5",
+        "filmorate.admission.write.burst=10",
+        "filmorate.admission.read.rate=1000",
+        "filmorate.admission.read.burst=1000",
+        "filmorate.admission.max-in-flight=64",
+        "filmorate.admission.client-header=X-Client-Id"
+})
+class AdmissionFilterTest {
+
+    private static final String FILM = """
+            {"name":"Импорт","description":"Нагрузка","releaseDate":"2000-01-01","duration":100}""";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AdmissionFilter filter;
+
+    @Test
+    void importerFloodingWrites_limitedAlone() throws Exception {
+        List<HttpResponse<String>> flood = new ArrayList<>();
+        try (HttpClient http = HttpClient.newHttpClient();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<HttpResponse<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                futures.add(clients.submit(() -> http.send(post("importer"), HttpResponse.BodyHandlers.ofString())));
+            }
+            for (Future<HttpResponse<String>> future : futures) {
+                flood.add(future.get());
+            }
+
+            assertThat(flood).filteredOn(response -> response.statusCode() == 200).hasSizeBetween(10, 12);
+            HttpResponse<String> rejected = flood.stream()
+                    .filter(response -> response.statusCode() == 429)
+                    .findFirst().orElseThrow();
+            assertThat(rejected.headers().firstValue("Retry-After")).hasValue("1");
+            assertThat(rejected.body()).contains("\"error\":\"Превышен лимит запросов клиента\"");
+
+            // чтение у импортёра и запись у других клиентов считаются отдельно
+            HttpRequest read = HttpRequest.newBuilder(uri("/films?limit=1")).header("X-Client-Id", "importer").build();
+            assertThat(http.send(read, HttpResponse.BodyHandlers.discarding()).statusCode()).isEqualTo(200);
+            assertThat(http.send(post("editor"), HttpResponse.BodyHandlers.discarding()).statusCode()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void requestsInFlightAtLimit_newRequestShedWith503() throws Exception {
+        CountDownLatch entered = new CountDownLatch(64);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int i = 0; i < 64; i++) {
+                workers.submit(() -> {
+                    filter.doFilter(request("/films"), new MockHttpServletResponse(), (request, response) -> {
+                        entered.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    return null;
+                });
+            }
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            MockHttpServletResponse shed = new MockHttpServletResponse();
+            filter.doFilter(request("/users"), shed, (request, response) -> {
+                throw new AssertionError("Запрос сверх предела не должен дойти до контроллера");
+            });
+
+            assertThat(shed.getStatus()).isEqualTo(503);
+            assertThat(shed.getHeader("Retry-After")).isEqualTo("1");
+            assertThat(shed.getContentAsString(StandardCharsets.UTF_8)).contains("Сервер перегружен");
+        } finally {
+            release.countDown();
+            workers.close();
+        }
+
+        MockHttpServletResponse afterLoad = new MockHttpServletResponse();
+        filter.doFilter(request("/users"), afterLoad, (request, response) -> { });
+        assertThat(afterLoad.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void spoofedForwardedHeader_stillCharged() throws Exception {
+        AtomicInteger admitted = new AtomicInteger();
+        for (int i = 0; i < 30; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/films");
+            request.addHeader("X-Client-Id", "spoofer");
+            // кластер выключен, поэтому заголовок пересылки ничего не значит
+            request.addHeader(ClusterClient.FORWARDED_HEADER, "1");
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> admitted.incrementAndGet());
+        }
+        assertThat(admitted.get()).isBetween(10, 12);
+    }
+
+    private HttpRequest post(String client) {
+        return HttpRequest.newBuilder(uri("/films"))
+                .header("Content-Type", "application/json")
+                .header("X-Client-Id", client)
+                .POST(HttpRequest.BodyPublishers.ofString(FILM))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader("X-Client-Id", "shed-test");
+        return request;
+    }
+}
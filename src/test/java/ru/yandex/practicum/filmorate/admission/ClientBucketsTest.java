@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientBucketsTest {
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    void tryAcquire_burstExhausted_rejectsUntilTokenRefills() {
+        ClientBuckets buckets = new ClientBuckets(10, 3, 100, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(buckets.tryAcquire("importer")).isZero();
+        }
+        assertThat(buckets.tryAcquire("importer")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(buckets.tryAcquire("importer")).isZero();
+        assertThat(buckets.tryAcquire("importer")).isPositive();
+    }
+
+    @Test
+    void tryAcquire_clientsHaveSeparateBuckets() {
+        ClientBuckets buckets = new ClientBuckets(1, 1, 100, clock::get);
+
+        assertThat(buckets.tryAcquire("importer")).isZero();
+        assertThat(buckets.tryAcquire("importer")).isPositive();
+
+        assertThat(buckets.tryAcquire("reader")).isZero();
+    }
+
+    @Test
+    void tryAcquire_mapFull_evictsFullBucketsAndSharesOverflow() {
+        ClientBuckets buckets = new ClientBuckets(1, 1, 2, clock::get);
+        buckets.tryAcquire("first");
+        buckets.tryAcquire("second");
+
+        // обе корзины пусты, удалить нечего: новые клиенты делят общую
+        assertThat(buckets.tryAcquire("third")).isZero();
+        assertThat(buckets.tryAcquire("fourth")).isPositive();
+        assertThat(buckets.size()).isEqualTo(2);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(buckets.tryAcquire("fifth")).isZero();
+        assertThat(buckets.size()).isEqualTo(1);
+    }
+
+    @Test
+    void tryAcquire_mapFull_scansForFullBucketsOncePerInterval() {
+        ClientBuckets buckets = new ClientBuckets(1, 1, 2, clock::get);
+        buckets.tryAcquire("first");
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(900));
+        buckets.tryAcquire("second");
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        buckets.tryAcquire("third");
+
+        // корзина "second" уже полна, но с прошлого поиска не прошёл интервал
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(950));
+        buckets.tryAcquire("fourth");
+        assertThat(buckets.size()).isEqualTo(2);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(buckets.tryAcquire("fifth")).isZero();
+        assertThat(buckets.size()).isEqualTo(1);
+    }
+}
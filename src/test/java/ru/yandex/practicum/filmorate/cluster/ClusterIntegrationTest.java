@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.controllers.FilmController;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Три узла в одной JVM на свободных портах localhost.
+ */
+class ClusterIntegrationTest {
+
+    private static final int NODE_COUNT = 3;
+    private static final String SECRET = "cluster-test-secret";
+    private static final List<ConfigurableApplicationContext> NODES = new ArrayList<>();
+    private static final List<String> URLS = new ArrayList<>();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort());
+            }
+        }
+        ports.forEach(port -> URLS.add("http://localhost:" + port));
+        for (int i = 0; i < NODE_COUNT; i++) {
+            // аргументы командной строки важнее application.properties
+            NODES.add(new SpringApplicationBuilder(FilmorateApplication.class).run(
+                    "--server.port=" + ports.get(i),
+                    "--filmorate.cluster.enabled=true",
+                    "--filmorate.cluster.nodes=" + String.join(",", URLS),
+                    "--filmorate.cluster.self=" + URLS.get(i),
+                    "--filmorate.cluster.partitions=64",
+                    "--filmorate.cluster.secret=" + SECRET));
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        NODES.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void films_createdOnEveryNode_ownedByCreatorAndVisibleFromAnyNode() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            int node = i % NODE_COUNT;
+            JsonNode film = body(send(node, "POST", "/films", film("Фильм " + i), 200));
+            long id = film.get("id").asLong();
+            assertThat(topology(node).isLocal(id)).isTrue();
+            ids.add(id);
+        }
+
+        for (int node = 0; node < NODE_COUNT; node++) {
+            List<Long> listed = ids(body(send(node, "GET", "/films", null, 200)));
+            assertThat(listed).containsAll(ids).isSorted();
+            List<Long> page = ids(body(send(node, "GET", "/films?after=" + listed.get(2) + "&limit=5", null, 200)));
+            assertThat(page).isEqualTo(listed.subList(3, 8));
+        }
+        HttpResponse<String> stream = HTTP.send(HttpRequest.newBuilder(URI.create(URLS.get(1) + "/films"))
+                .header("Accept", "application/x-ndjson").build(), HttpResponse.BodyHandlers.ofString());
+        List<Long> streamed = new ArrayList<>();
+        for (String line : stream.body().split("\n")) {
+            streamed.add(JSON.readTree(line).get("id").asLong());
+        }
+        assertThat(streamed).containsAll(ids).isSorted();
+        for (int i = 0; i < ids.size(); i++) {
+            JsonNode film = body(send((i + 1) % NODE_COUNT, "GET", "/films/" + ids.get(i), null, 200));
+            assertThat(film.get("name").asText()).isEqualTo("Фильм " + i);
+        }
+        send(2, "PATCH", "/films/" + ids.get(0), "{\"duration\":77}", 200);
+        assertThat(body(send(1, "GET", "/films/" + ids.get(0), null, 200)).get("duration").asInt()).isEqualTo(77);
+    }
+
+    @Test
+    void films_moreThanNodePage_wholeListMergedAcrossPages() throws Exception {
+        // узел 0 отдаёт свой список больше чем за одну страницу
+        for (int i = 0; i < 2; i++) {
+            List<String> batch = new ArrayList<>();
+            for (int j = 0; j < FilmController.MAX_PAGE_SIZE; j++) {
+                batch.add(film("Пакетный фильм " + j));
+            }
+            send(0, "POST", "/films/batch", "[" + String.join(",", batch) + "]", 200);
+        }
+        send(2, "POST", "/films", film("Ещё фильм"), 200);
+
+        List<Long> listed = ids(body(send(2, "GET", "/films", null, 200)));
+        HttpResponse<String> stream = HTTP.send(HttpRequest.newBuilder(URI.create(URLS.get(2) + "/films"))
+                .header("Accept", "application/x-ndjson").build(), HttpResponse.BodyHandlers.ofString());
+        List<Long> streamed = new ArrayList<>();
+        for (String line : stream.body().split("\n")) {
+            streamed.add(JSON.readTree(line).get("id").asLong());
+        }
+        assertThat(listed).hasSizeGreaterThan(2 * FilmController.MAX_PAGE_SIZE).isSorted().isEqualTo(streamed);
+    }
+
+    @Test
+    void films_filterWithoutLimit_defaultPageAcrossNodes() throws Exception {
+        for (int node = 0; node < 2; node++) {
+            List<String> batch = new ArrayList<>();
+            for (int j = 0; j < FilmController.DEFAULT_PAGE_SIZE; j++) {
+                batch.add(film("Фильм с фильтром " + j));
+            }
+            send(node, "POST", "/films/batch", "[" + String.join(",", batch) + "]", 200);
+        }
+
+        List<Long> page = ids(body(send(2, "GET", "/films?minDuration=100", null, 200)));
+        List<Long> all = ids(body(send(2, "GET", "/films?minDuration=100&limit=" + FilmController.MAX_PAGE_SIZE,
+                null, 200)));
+        assertThat(all).hasSizeGreaterThanOrEqualTo(2 * FilmController.DEFAULT_PAGE_SIZE);
+        assertThat(page).isEqualTo(all.subList(0, FilmController.DEFAULT_PAGE_SIZE));
+    }
+
+    @Test
+    void users_sameEmailOnAnyNode_conflict() throws Exception {
+        long first = body(send(0, "POST", "/users", user("Taken@Mail.ru", "first"), 200)).get("id").asLong();
+        send(1, "POST", "/users", user("taken@mail.ru", "second"), 409);
+        send(2, "POST", "/users", user("TAKEN@mail.ru", "third"), 409);
+
+        JsonNode other = body(send(2, "POST", "/users", user("other@mail.ru", "other"), 200));
+        ((ObjectNode) other).put("email", "taken@mail.ru");
+        send(1, "PUT", "/users", other.toString(), 409);
+
+        send(1, "PATCH", "/users/" + first, "{\"email\":\"moved@mail.ru\"}", 200);
+        send(2, "POST", "/users", user("taken@mail.ru", "fourth"), 200);
+        send(0, "POST", "/users", user("moved@mail.ru", "fifth"), 409);
+    }
+
+    @Test
+    void likesAndFriends_acrossNodes() throws Exception {
+        long first = body(send(0, "POST", "/users", user("first@friends.ru", "first"), 200)).get("id").asLong();
+        long second = body(send(1, "POST", "/users", user("second@friends.ru", "second"), 200)).get("id").asLong();
+        long common = body(send(2, "POST", "/users", user("common@friends.ru", "common"), 200)).get("id").asLong();
+        long film = body(send(2, "POST", "/films", film("Популярный"), 200)).get("id").asLong();
+
+        send(1, "PUT", "/films/" + film + "/like/" + first, null, 200);
+        send(0, "PUT", "/films/" + film + "/like/" + second, null, 200);
+        send(0, "PUT", "/films/" + film + "/like/999999", null, 404);
+        assertThat(ids(body(send(0, "GET", "/films/popular?count=1", null, 200)))).containsExactly(film);
+
+        send(2, "PUT", "/users/" + first + "/friends/" + common, null, 200);
+        send(0, "PUT", "/users/" + second + "/friends/" + common, null, 200);
+        assertThat(ids(body(send(1, "GET", "/users/" + common + "/friends", null, 200))))
+                .containsExactlyInAnyOrder(first, second);
+        assertThat(ids(body(send(2, "GET", "/users/" + first + "/friends/common/" + second, null, 200))))
+                .containsExactly(common);
+    }
+
+    @Test
+    void batchUpdate_entitiesOfDifferentNodes_rejected() throws Exception {
+        List<JsonNode> films = new ArrayList<>();
+        for (int node = 0; node < NODE_COUNT; node++) {
+            films.add(body(send(node, "POST", "/films", film("Пакетный " + node), 200)));
+        }
+
+        send(0, "PUT", "/films/batch", films.toString(), 400);
+        send(0, "PUT", "/films/batch", List.of(films.get(1)).toString(), 200);
+    }
+
+    @Test
+    void internalPathsAndForwardedHeader_withoutClusterSecret_notTrusted() throws Exception {
+        String reserve = ClusterClient.INTERNAL_PATH + "/emails?email=stolen@mail.ru&userId=1";
+        assertThat(HTTP.send(HttpRequest.newBuilder(URI.create(URLS.get(0) + reserve))
+                .PUT(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString())
+                .statusCode()).isEqualTo(403);
+        assertThat(HTTP.send(HttpRequest.newBuilder(URI.create(URLS.get(0) + reserve))
+                .header(ClusterClient.FORWARDED_HEADER, "1")
+                .PUT(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString())
+                .statusCode()).isEqualTo(403);
+        assertThat(HTTP.send(HttpRequest.newBuilder(URI.create(URLS.get(0) + reserve))
+                .header(ClusterClient.FORWARDED_HEADER, SECRET)
+                .PUT(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString())
+                .statusCode()).isEqualTo(200);
+
+        // поддельный заголовок не мешает переслать запрос владельцу фильма
+        long id = body(send(1, "POST", "/films", film("Чужой"), 200)).get("id").asLong();
+        HttpResponse<String> spoofed = HTTP.send(HttpRequest.newBuilder(URI.create(URLS.get(0) + "/films/" + id))
+                .header(ClusterClient.FORWARDED_HEADER, "1").build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(spoofed.statusCode()).isEqualTo(200);
+        assertThat(body(spoofed).get("name").asText()).isEqualTo("Чужой");
+    }
+
+    private static ClusterTopology topology(int node) {
+        return NODES.get(node).getBean(ClusterTopology.class);
+    }
+
+    private static HttpResponse<String> send(int node, String method, String path, String body, int expectedStatus)
+            throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(URLS.get(node) + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = HTTP.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as("%s %s: %s", method, path, response.body()).isEqualTo(expectedStatus);
+        return response;
+    }
+
+    private static JsonNode body(HttpResponse<String> response) throws IOException {
+        return JSON.readTree(response.body());
+    }
+
+    private static List<Long> ids(JsonNode array) {
+        List<Long> ids = new ArrayList<>();
+        array.forEach(item -> ids.add(item.get("id").asLong()));
+        return ids;
+    }
+
+    private static String film(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"Описание\",\"releaseDate\":\"2000-01-01\",\"duration\":100}";
+    }
+
+    private static String user(String email, String login) {
+        return "{\"email\":\"" + email + "\",\"login\":\"" + login + "\",\"birthday\":\"1990-01-01\"}";
+    }
+}
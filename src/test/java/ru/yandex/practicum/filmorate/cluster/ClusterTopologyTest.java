@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterTopologyTest {
+
+    private static final List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void emailHomeOf_emailsEqualForIndex_sameNode() {
+        ClusterTopology topology = new ClusterTopology(true, NODES, "http://a:8080", 64, false);
+
+        for (int i = 0; i < 200; i++) {
+            // İ в нижнем регистре через toLowerCase - две буквы, а для индекса она равна i
+            String email = "İ" + i + "@mail.ru";
+            assertThat(topology.emailHomeOf(email)).isEqualTo(topology.emailHomeOf("i" + i + "@MAIL.RU"));
+            assertThat(topology.isEmailHome(email)).isEqualTo(topology.isEmailHome("I" + i + "@mail.ru"));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashRingTest {
+
+    private static final int PARTITIONS = 1024;
+
+    @Test
+    void nodeFor_partitionsSpreadEvenly() {
+        HashRing ring = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080"), 128);
+        int[] owned = new int[3];
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            owned[ring.nodeFor(partition)]++;
+        }
+
+        for (int count : owned) {
+            assertThat(count).isBetween(PARTITIONS / 3 * 7 / 10, PARTITIONS / 3 * 13 / 10);
+        }
+    }
+
+    @Test
+    void nodeFor_nodeAdded_onlyItsShareMoves() {
+        HashRing three = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080"), 128);
+        HashRing four = new HashRing(List.of("http://a:8080", "http://b:8080", "http://c:8080", "http://d:8080"), 128);
+        int moved = 0;
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            int before = three.nodeFor(partition);
+            int after = four.nodeFor(partition);
+            if (before != after) {
+                // раздел может перейти только к новому узлу
+                assertThat(after).isEqualTo(3);
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(PARTITIONS / 4 * 7 / 10, PARTITIONS / 4 * 13 / 10);
+    }
+
+    @Test
+    void nodeFor_sameKeySameNode() {
+        HashRing ring = new HashRing(List.of("http://a:8080", "http://b:8080"), 16);
+
+        assertThat(ring.nodeFor("user@mail.ru")).isEqualTo(ring.nodeFor("user@mail.ru"));
+        assertThat(ring.nodeFor(42L)).isEqualTo(new HashRing(List.of("http://a:8080", "http://b:8080"), 16).nodeFor(42L));
+    }
+}
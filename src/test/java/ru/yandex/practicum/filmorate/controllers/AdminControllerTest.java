@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class AdminControllerTest {
+
+    @TempDir
+    static Path dumpDir;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void dumpDir(DynamicPropertyRegistry registry) {
+        registry.add("filmorate.admin.dump-dir", () -> dumpDir.toString());
+    }
+
+    @Test
+    public void export_thenImportSameUsers_conflictOnEmail() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"user@mail.ru\",\"login\":\"login\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/admin/export").param("file", "catalogue.dump"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users").value(1))
+                .andExpect(jsonPath("$.films").value(0));
+        assertThat(dumpDir.resolve("catalogue.dump")).exists();
+
+        mockMvc.perform(post("/admin/import").param("file", "catalogue.dump"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void import_films_publishedToChangeFeed() throws Exception {
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Фильм\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/admin/export").param("file", "films.dump"))
+                .andExpect(status().isOk());
+        MvcResult changes = mockMvc.perform(get("/films/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/admin/import").param("file", "films.dump"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.films").value(1));
+
+        String created = "event:created\ndata:{\"id\":2,";
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!changes.getResponse().getContentAsString().contains(created) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(changes.getResponse().getContentAsString()).contains(created);
+    }
+
+    @Test
+    public void import_missingFile_notFound() throws Exception {
+        mockMvc.perform(post("/admin/import").param("file", "missing.dump"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void import_pathOutsideDumpDir_badRequest() throws Exception {
+        mockMvc.perform(post("/admin/import").param("file", "../catalogue.dump"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/admin/export").param("file", "catalogue.dump.tmp"))
+                .andExpect(status().isBadRequest());
+    }
+}
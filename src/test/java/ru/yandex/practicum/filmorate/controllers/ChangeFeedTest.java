@@ -0,0 +1,242 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ChangeFeedTest {
+
+    private static final long WRITE_TIMEOUT_MILLIS = 60_000;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService writer = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+        writer.shutdownNow();
+    }
+
+    @Test
+    void subscribe_withoutLastEventId_receivesOnlyNewEvents() throws Exception {
+        ChangeFeed feed = feed(8);
+        feed.publish(ChangeFeed.CREATED, "{\"id\":1}");
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, null);
+
+        feed.publish(ChangeFeed.UPDATED, "{\"id\":1}");
+
+        assertThat(emitter.next()).isEqualTo("2 updated {\"id\":1}");
+    }
+
+    @Test
+    void subscribe_withLastEventId_replaysMissedEventsInOrder() throws Exception {
+        ChangeFeed feed = feed(8);
+        for (int i = 1; i <= 5; i++) {
+            feed.publish(ChangeFeed.CREATED, "{\"id\":" + i + "}");
+        }
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        feed.subscribe(emitter, 3L);
+
+        assertThat(emitter.next()).isEqualTo("4 created {\"id\":4}");
+        assertThat(emitter.next()).isEqualTo("5 created {\"id\":5}");
+    }
+
+    @Test
+    void subscribe_lastEventIdOverwritten_sendsResetAndContinuesFromOldest() throws Exception {
+        ChangeFeed feed = feed(4);
+        for (int i = 1; i <= 10; i++) {
+            feed.publish(ChangeFeed.CREATED, "{\"id\":" + i + "}");
+        }
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        feed.subscribe(emitter, 2L);
+
+        assertThat(emitter.next()).isEqualTo("6 reset {}");
+        assertThat(emitter.next()).isEqualTo("7 created {\"id\":7}");
+        assertThat(emitter.next()).isEqualTo("8 created {\"id\":8}");
+        assertThat(feed.resets()).isEqualTo(1);
+    }
+
+    @Test
+    void subscribe_lastEventIdAheadOfFeed_sendsReset() throws Exception {
+        ChangeFeed feed = feed(4);
+        feed.publish(ChangeFeed.CREATED, "{\"id\":1}");
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        feed.subscribe(emitter, 100L);
+
+        assertThat(emitter.next()).isEqualTo("1 reset {}");
+        feed.publish(ChangeFeed.CREATED, "{\"id\":2}");
+        assertThat(emitter.next()).isEqualTo("2 created {\"id\":2}");
+    }
+
+    @Test
+    void publish_stuckSubscriber_doesNotBlockWriterOrOtherSubscribers() throws Exception {
+        ChangeFeed feed = feed(64);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stuck = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter();
+        feed.subscribe(stuck, null);
+        feed.subscribe(fast, null);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 1; i <= 10_000; i++) {
+                feed.publish(ChangeFeed.CREATED, "{\"id\":" + i + "}");
+            }
+        });
+        // быстрый подписчик доходит до последнего события, пока медленный ещё не отправил первое
+        awaitLast(fast);
+        assertThat(stuck.events).isEmpty();
+
+        release.countDown();
+        assertThat(awaitLast(stuck)).anyMatch(event -> event.endsWith(" reset {}"));
+    }
+
+    @Test
+    void publish_stalledSubscribers_droppedAfterWriteTimeout() throws Exception {
+        ChangeFeed feed = new ChangeFeed("films", 64, executor, writer, 0, 200);
+        CountDownLatch never = new CountDownLatch(1);
+        List<RecordingEmitter> stalled = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordingEmitter emitter = new RecordingEmitter(never);
+            stalled.add(emitter);
+            feed.subscribe(emitter, null);
+        }
+        RecordingEmitter fast = new RecordingEmitter();
+        feed.subscribe(fast, null);
+
+        for (int i = 1; i <= 10_000; i++) {
+            feed.publish(ChangeFeed.CREATED, "{\"id\":" + i + "}");
+        }
+
+        awaitLast(fast);
+        for (RecordingEmitter emitter : stalled) {
+            // ответ завершается, когда зависшая запись отпускает монитор эмиттера
+            assertThat(emitter.completed.await(5, TimeUnit.SECONDS)).as("ответ отключённого подписчика").isTrue();
+            assertThat(emitter.events).isEmpty();
+        }
+        assertThat(feed.subscribers()).isEqualTo(1);
+
+        feed.publish(ChangeFeed.UPDATED, "{\"id\":1}");
+        assertThat(fast.next()).isEqualTo("10001 updated {\"id\":1}");
+    }
+
+    @Test
+    void publish_subscriberDisconnected_removesSubscriber() throws Exception {
+        ChangeFeed feed = feed(8);
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failing = true;
+        feed.subscribe(emitter, null);
+
+        feed.publish(ChangeFeed.CREATED, "{\"id\":1}");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (feed.subscribers() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(feed.subscribers()).isZero();
+    }
+
+    private ChangeFeed feed(int capacity) {
+        return new ChangeFeed("films", capacity, executor, writer, 0, WRITE_TIMEOUT_MILLIS);
+    }
+
+    private static List<String> awaitLast(RecordingEmitter emitter) throws InterruptedException {
+        List<String> received = new ArrayList<>();
+        String event;
+        do {
+            event = emitter.next();
+            received.add(event);
+        } while (!event.equals("10000 created {\"id\":10000}"));
+        return received;
+    }
+
+    /**
+     * Запоминает отправленные события строками вида {@code "id имя данные"}.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch release;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile boolean failing;
+
+        RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        // сюда приходят и готовые кадры ленты, и события, собранные через SseEmitter.event();
+        // монитор держится всю запись, как в ResponseBodyEmitter
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (DataWithMediaType part : items) {
+                text.append(part.getData());
+            }
+            if (text.charAt(0) == ':') {
+                // комментарий, которым начинается подписка
+                return;
+            }
+            if (failing) {
+                throw new IOException("Соединение закрыто");
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            for (String frame : text.toString().split("\n\n")) {
+                events.add(format(frame));
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+
+        String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertThat(event).as("событие ленты").isNotNull();
+            return event;
+        }
+
+        private static String format(String raw) {
+            String id = null;
+            String name = null;
+            String data = null;
+            for (String line : raw.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = line.substring(3);
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data = line.substring(5);
+                }
+            }
+            return id + " " + name + " " + data;
+        }
+    }
+}
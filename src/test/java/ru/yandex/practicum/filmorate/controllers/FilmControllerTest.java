@@ -8,10 +8,14 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -123,4 +127,341 @@ class FilmControllerTest {
                         .content("null"))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAll_afterAndLimit_returnsNextPageInIdOrder() throws Exception {
+        long firstId = createFilm();
+        long secondId = createFilm();
+        createFilm();
+
+        mockMvc.perform(get("/films").param("after", String.valueOf(firstId)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(secondId));
+    }
+
+    @Test
+    void findAll_limitOutOfRange_returns400() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAll_acceptAll_returnsJsonArray() throws Exception {
+        createFilm();
+
+        mockMvc.perform(get("/films").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    @Test
+    void findAll_acceptNdjson_streamsOneFilmPerLine() throws Exception {
+        long id = createFilm();
+
+        MvcResult result = mockMvc.perform(get("/films").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).allSatisfy(line -> assertThat(line).startsWith("{").endsWith("}"));
+        assertThat(objectMapper.readValue(lines[lines.length - 1], Film.class).getId()).isEqualTo(id);
+    }
+
+    @Test
+    void changes_filmCreatedAndLiked_streamedAsServerSentEvents() throws Exception {
+        long userId = createUser("changes@mail.ru");
+        MvcResult result = mockMvc.perform(get("/films/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        long filmId = createFilm();
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+        // повторный лайк ничего не меняет и в ленту не попадает
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+
+        String liked = "event:liked\ndata:{\"filmId\":" + filmId + ",\"userId\":" + userId + "}";
+        String body = awaitContent(result, liked);
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+        assertThat(body).contains("event:created\ndata:{\"id\":" + filmId + ",");
+        assertThat(body.indexOf("event:liked")).isEqualTo(body.lastIndexOf("event:liked"));
+    }
+
+    @Test
+    void createAll_oneInvalidFilm_wholeBatchRejected() throws Exception {
+        Film invalid = new Film();
+        invalid.setName("");
+        invalid.setReleaseDate(LocalDate.of(2000, 1, 1));
+        invalid.setDuration(90);
+
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(validFilm, invalid))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$[0].status").value(424))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].body.name").value("Название фильма не может быть пустым"));
+    }
+
+    @Test
+    void createAll_validBatch_returnsSavedFilms() throws Exception {
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(validFilm, validFilm))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].body.id").exists())
+                .andExpect(jsonPath("$[1].status").value(200));
+    }
+
+    @Test
+    void updateAll_nullId_returns400() throws Exception {
+        mockMvc.perform(put("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(validFilm))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$[0].body.error").value("Id фильма не может быть null"));
+    }
+
+    @Test
+    void updateAll_sameIdTwice_returns400NothingUpdated() throws Exception {
+        long id = createFilm();
+        Film first = objectMapper.readValue(objectMapper.writeValueAsString(validFilm), Film.class);
+        first.setId(id);
+        first.setName("Первая правка");
+        Film second = objectMapper.readValue(objectMapper.writeValueAsString(validFilm), Film.class);
+        second.setId(id);
+        second.setName("Вторая правка");
+
+        mockMvc.perform(put("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(first, second))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$[1].status").value(400));
+
+        mockMvc.perform(get("/films/{id}", id))
+                .andExpect(jsonPath("$.name").value(validFilm.getName()));
+    }
+
+    @Test
+    void getPopular_filmsLikedByUsers_sortedByLikesCount() throws Exception {
+        long firstUser = createUser("popular1@mail.ru");
+        long secondUser = createUser("popular2@mail.ru");
+        long lessPopular = createFilm();
+        long mostPopular = createFilm();
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", lessPopular, firstUser)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", mostPopular, firstUser)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", mostPopular, secondUser)).andExpect(status().isOk());
+        mockMvc.perform(put("/films/{id}/like/{userId}", mostPopular, secondUser)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(mostPopular))
+                .andExpect(jsonPath("$[1].id").value(lessPopular));
+
+        mockMvc.perform(delete("/films/{id}/like/{userId}", mostPopular, firstUser)).andExpect(status().isOk());
+        mockMvc.perform(delete("/films/{id}/like/{userId}", mostPopular, secondUser)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("count", "1"))
+                .andExpect(jsonPath("$[0].id").value(lessPopular));
+    }
+
+    @Test
+    void findAll_releaseAndDurationFilters_returnsOnlyMatchingFilms() throws Exception {
+        validFilm.setReleaseDate(LocalDate.of(1961, 4, 12));
+        validFilm.setDuration(108);
+        long matching = createFilm();
+        validFilm.setDuration(60);
+        long tooShort = createFilm();
+
+        String response = mockMvc.perform(get("/films")
+                        .param("releasedFrom", "1961-04-12")
+                        .param("releasedTo", "1961-04-12")
+                        .param("minDuration", "100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Film> found = List.of(objectMapper.readValue(response, Film[].class));
+        assertThat(found).extracting(Film::getId).contains(matching).doesNotContain(tooShort);
+        assertThat(found).allMatch(film -> film.getDuration() >= 100
+                && film.getReleaseDate().equals(LocalDate.of(1961, 4, 12)));
+    }
+
+    @Test
+    void findAll_invalidDurationFilter_returns400() throws Exception {
+        mockMvc.perform(get("/films").param("minDuration", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAll_ifNoneMatch_returns304UntilCatalogueChanges() throws Exception {
+        createFilm();
+        String tag = mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/films").header("If-None-Match", tag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        createFilm();
+        String newTag = mockMvc.perform(get("/films").header("If-None-Match", tag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(newTag).isNotEqualTo(tag);
+    }
+
+    @Test
+    void findAll_cachedPage_refreshedAfterCreateAndUpdate() throws Exception {
+        long id = createFilm();
+        mockMvc.perform(get("/films").param("after", String.valueOf(id - 1)).param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].name").value(validFilm.getName()));
+
+        validFilm.setId(id);
+        validFilm.setName("Новое название");
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validFilm)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films").param("after", String.valueOf(id - 1)).param("limit", "5"))
+                .andExpect(jsonPath("$[0].name").value("Новое название"));
+        mockMvc.perform(get("/films/{id}", id))
+                .andExpect(jsonPath("$.name").value("Новое название"));
+    }
+
+    @Test
+    void update_ifMatch_onlyFirstOfTwoConcurrentEditorsWins() throws Exception {
+        long id = createFilm();
+        String tag = mockMvc.perform(get("/films/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        validFilm.setId(id);
+
+        validFilm.setName("Правка первого");
+        String newTag = mockMvc.perform(put("/films").header("If-Match", tag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validFilm)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        validFilm.setName("Правка второго");
+        mockMvc.perform(put("/films").header("If-Match", tag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validFilm)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/films/{id}", id).header("If-None-Match", newTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/films/{id}", id))
+                .andExpect(jsonPath("$.name").value("Правка первого"));
+    }
+
+    @Test
+    void patch_singleField_changesOnlyThatFieldAndReindexes() throws Exception {
+        validFilm.setName("Бегущий по лезвию");
+        long id = createFilm();
+
+        mockMvc.perform(patch("/films/{id}", id).contentType("application/merge-patch+json")
+                        .content("{\"name\": \"Чужой\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.name").value("Чужой"))
+                .andExpect(jsonPath("$.description").value(validFilm.getDescription()))
+                .andExpect(jsonPath("$.duration").value(validFilm.getDuration()));
+
+        mockMvc.perform(get("/films/search").param("q", "чужой"))
+                .andExpect(jsonPath("$[0].id").value(id));
+        mockMvc.perform(get("/films/search").param("q", "бегущий"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void patch_invalidOrUnknownField_returns400AndKeepsFilm() throws Exception {
+        long id = createFilm();
+
+        mockMvc.perform(patch("/films/{id}", id).contentType("application/merge-patch+json")
+                        .content("{\"duration\": -5}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/films/{id}", id).contentType("application/merge-patch+json")
+                        .content("{\"rating\": 5}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/films/{id}", id).contentType("application/merge-patch+json")
+                        .content("{\"id\": " + (id + 1) + "}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/films/{id}", id).contentType("application/merge-patch+json")
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/films/{id}", id))
+                .andExpect(jsonPath("$.duration").value(validFilm.getDuration()));
+    }
+
+    @Test
+    void search_wordFromName_returnsMatchingFilm() throws Exception {
+        validFilm.setName("Крёстный отец");
+        long filmId = createFilm();
+
+        String response = mockMvc.perform(get("/films/search").param("q", "крестный"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Film> found = List.of(objectMapper.readValue(response, Film[].class));
+        assertThat(found).extracting(Film::getId).contains(filmId);
+    }
+
+    @Test
+    void search_blankQuery_returns400() throws Exception {
+        mockMvc.perform(get("/films/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void addLike_unknownUser_returns404() throws Exception {
+        long filmId = createFilm();
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, 9999))
+                .andExpect(status().isNotFound());
+    }
+
+    private long createUser(String email) throws Exception {
+        User user = new User(null, email, "login", "name", LocalDate.of(1990, 1, 1));
+        String response = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, User.class).getId();
+    }
+
+    private String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String body = result.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            body = result.getResponse().getContentAsString();
+        }
+        assertThat(body).contains(expected);
+        return body;
+    }
+
+    private long createFilm() throws Exception {
+        String response = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validFilm)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, Film.class).getId();
+    }
+}
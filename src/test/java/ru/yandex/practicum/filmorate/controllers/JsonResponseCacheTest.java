@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonResponseCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void get_sameVersion_serializesOnceAndNewVersionReplacesEntry() {
+        JsonResponseCache cache = cache(1024);
+        AtomicInteger serialized = new AtomicInteger();
+
+        byte[] first = cache.get("films", 1, () -> body(serialized, "a"));
+        byte[] second = cache.get("films", 1, () -> body(serialized, "b"));
+        byte[] changed = cache.get("films", 2, () -> body(serialized, "c"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(new String(changed)).isEqualTo("[\"c\"]");
+        assertThat(serialized.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(registry.get("filmorate.response.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_olderVersionAfterNewer_doesNotReplaceNewerEntry() {
+        JsonResponseCache cache = cache(1024);
+        cache.get("films/1", 5, () -> List.of("new"));
+        cache.get("films/1", 4, () -> List.of("old"));
+
+        assertThat(new String(cache.get("films/1", 5, () -> List.of("again")))).isEqualTo("[\"new\"]");
+    }
+
+    @Test
+    void get_budgetExceeded_evictsLeastRecentlyReadAndSkipsOversized() {
+        // каждый ответ ["xxxxxx"] занимает 10 байт
+        JsonResponseCache cache = cache(25);
+        cache.get("a", 1, () -> List.of("aaaaaa"));
+        cache.get("b", 1, () -> List.of("bbbbbb"));
+        cache.get("a", 1, () -> List.of("changed"));
+        cache.get("c", 1, () -> List.of("cccccc"));
+        cache.get("huge", 1, () -> List.of("x".repeat(100)));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.usedBytes()).isEqualTo(20);
+        assertThat(new String(cache.get("a", 1, () -> List.of("changed")))).isEqualTo("[\"aaaaaa\"]");
+        assertThat(new String(cache.get("b", 1, () -> List.of("reloaded")))).isEqualTo("[\"reloaded\"]");
+    }
+
+    private JsonResponseCache cache(long maxBytes) {
+        return new JsonResponseCache(Jackson2ObjectMapperBuilder.json().build(), maxBytes, registry);
+    }
+
+    private static List<String> body(AtomicInteger serialized, String value) {
+        serialized.incrementAndGet();
+        return List.of(value);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void prometheus_afterRequests_exposesGaugesAndRequestHistogram() throws Exception {
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film())))
+                .andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(metrics).contains("filmorate_films_stored", "filmorate_users_stored");
+        assertThat(metrics).contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/films\"");
+        assertThat(registry.get("filmorate.films.stored").gauge().value()).isPositive();
+    }
+
+    @Test
+    void errors_eachHandlerBranch_incrementsItsCounter() throws Exception {
+        double notFound = errors("not_found");
+        double validation = errors("validation");
+        double conflict = errors("conflict");
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", 9999, 9999))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        String email = "metrics" + System.nanoTime() + "@mail.ru";
+        createUser(email);
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user(email))))
+                .andExpect(status().isConflict());
+
+        assertThat(errors("not_found")).isEqualTo(notFound + 1);
+        assertThat(errors("validation")).isEqualTo(validation + 1);
+        assertThat(errors("conflict")).isEqualTo(conflict + 1);
+    }
+
+    @Test
+    void storageAndIndexTimers_recordCalls() throws Exception {
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film())))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/search").param("q", "метрики"))
+                .andExpect(status().isOk());
+
+        assertThat(registry.get("filmorate.storage")
+                .tags("class", "ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage", "method", "create").timer().count()).isPositive();
+        assertThat(registry.get("filmorate.index")
+                .tags("class", "ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex", "method", "search").timer().count()).isPositive();
+    }
+
+    private double errors(String type) {
+        return registry.get("filmorate.errors").tag("type", type).counter().count();
+    }
+
+    private void createUser(String email) throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user(email))))
+                .andExpect(status().isOk());
+    }
+
+    private static Film film() {
+        Film film = new Film();
+        film.setName("Метрики");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String email) {
+        return new User(null, email, "login", "name", LocalDate.of(1990, 1, 1));
+    }
+}
@@ -11,10 +11,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -141,6 +144,87 @@ class UserControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void update_staleIfMatch_returns412AndKeepsCurrentUser() throws Exception {
+        User user = new User(null, "user@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        String staleTag = mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        User first = new User(1L, "first@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(put("/users").header("If-Match", staleTag)
+                        .contentType(MediaType.APPLICATION_JSON).content(toJson(first)))
+                .andExpect(status().isOk());
+        User second = new User(1L, "second@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(put("/users").header("If-Match", staleTag)
+                        .contentType(MediaType.APPLICATION_JSON).content(toJson(second)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("first@mail.ru"))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    public void patch_onlyEmail_changesEmailAndKeepsOtherFields() throws Exception {
+        User user = new User(null, "user@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                .andExpect(status().isOk());
+        User other = new User(null, "other@mail.ru", "other", "other", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(other)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/users/1").contentType("application/merge-patch+json")
+                        .content("{\"email\": \"new@mail.ru\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.email").value("new@mail.ru"))
+                .andExpect(jsonPath("$.login").value("login"))
+                .andExpect(jsonPath("$.name").value("name"));
+
+        mockMvc.perform(patch("/users/1").contentType("application/merge-patch+json")
+                        .content("{\"email\": \"OTHER@mail.ru\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/users/1").contentType("application/merge-patch+json")
+                        .content("{\"email\": \"not-an-email\"}"))
+                .andExpect(status().isBadRequest());
+        // старый адрес освобождён, новый занят
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void patch_nullName_nameEqualsNewLogin() throws Exception {
+        User user = new User(null, "user@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/users/1").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": null, \"login\": \"new_login\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("new_login"));
+        mockMvc.perform(patch("/users/2").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"x\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void findById_matchingIfNoneMatch_returns304() throws Exception {
+        User user = new User(null, "user@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                .andExpect(status().isOk());
+        String tag = mockMvc.perform(get("/users/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/users/1").header("If-None-Match", tag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/users/999"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void findAll_afterAddingTwoUsers_returnsCollectionSize2() throws Exception {
         User user1 = new User(null, "user1@mail.ru", "login1", "name1", LocalDate.of(1984, 12, 13));
@@ -153,4 +237,149 @@ class UserControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createAll_validBatch_allUsersAddedWithConsecutiveIds() throws Exception {
+        List<User> batch = List.of(
+                new User(null, "batch1@mail.ru", "login1", "name1", LocalDate.of(1990, 1, 1)),
+                new User(null, "batch2@mail.ru", "login2", null, LocalDate.of(1991, 1, 1)));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].body.id").value(1))
+                .andExpect(jsonPath("$[1].body.id").value(2))
+                .andExpect(jsonPath("$[1].body.name").value("login2"));
+    }
+
+    @Test
+    public void createAll_duplicateEmailInsideBatch_nothingAdded() throws Exception {
+        List<User> batch = List.of(
+                new User(null, "same@mail.ru", "login1", "name1", LocalDate.of(1990, 1, 1)),
+                new User(null, "SAME@mail.ru", "login2", "name2", LocalDate.of(1991, 1, 1)));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(batch)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$[0].status").value(424))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[1].body.error").value("Email уже используется"));
+
+        mockMvc.perform(get("/users"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void createAll_invalidItem_returnsFieldErrorsForThatItem() throws Exception {
+        List<User> batch = List.of(
+                new User(null, "valid@mail.ru", "login1", "name1", LocalDate.of(1990, 1, 1)),
+                new User(null, "invalid-email", "login2", "name2", LocalDate.of(1991, 1, 1)));
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(batch)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].body.email").exists());
+    }
+
+    @Test
+    public void updateAll_oneUserMissing_nothingUpdated() throws Exception {
+        User user = new User(null, "user@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                .andExpect(status().isOk());
+
+        List<User> batch = List.of(
+                new User(1L, "changed@mail.ru", "login", "name", LocalDate.of(1995, 2, 13)),
+                new User(999L, "other@mail.ru", "login", "name", LocalDate.of(1995, 2, 13)));
+        mockMvc.perform(put("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(batch)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$[1].status").value(404));
+
+        mockMvc.perform(get("/users"))
+                .andExpect(jsonPath("$[0].email").value("user@mail.ru"));
+    }
+
+    @Test
+    public void createAll_emptyBatch_returns400() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void friends_addRemoveAndCommon_returnsMutualFriends() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            User user = new User(null, "friend" + i + "@mail.ru", "login" + i, "name" + i, LocalDate.of(1990, 1, i));
+            mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(put("/users/1/friends/3")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/2/friends/3")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/3/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+
+        mockMvc.perform(delete("/users/3/friends/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/1/friends"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void addFriend_unknownUser_throwsNotFoundException() throws Exception {
+        User user = new User(null, "user@mail.ru", "login", "name", LocalDate.of(1995, 2, 13));
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/users/1/friends/999"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/users/1/friends/1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getRecommendations_likesChange_followsSimilarUsers() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            User user = new User(null, "taste" + i + "@mail.ru", "login" + i, "name" + i, LocalDate.of(1990, 1, i));
+            mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(user)))
+                    .andExpect(status().isOk());
+            mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(
+                            "{\"name\":\"Фильм " + i + "\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(put("/films/1/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/1/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/2")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/1/recommendations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(2));
+
+        mockMvc.perform(put("/films/3/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/1/recommendations"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+        mockMvc.perform(get("/users/3/recommendations"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/users/999/recommendations"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyCacheTest {
+
+    private static final byte[] BODY = {1, 2, 3};
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    void claim_sameKeyTwice_secondGetsFirstEntry() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(1), clock::get);
+
+        IdempotencyCache.Claim first = cache.claim("/films a", BODY);
+        IdempotencyCache.Claim second = cache.claim("/films a", BODY);
+
+        assertThat(first.first()).isTrue();
+        assertThat(second.first()).isFalse();
+        assertThat(second.entry()).isSameAs(first.entry());
+        assertThat(cache.claim("/users a", BODY).first()).isTrue();
+    }
+
+    @Test
+    void claim_afterTtlOrRelease_keyClaimedAgain() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(1), clock::get);
+        cache.claim("/films a", BODY);
+        IdempotencyCache.Claim released = cache.claim("/films b", BODY);
+
+        cache.release(released.entry());
+        assertThat(cache.claim("/films b", BODY).first()).isTrue();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertThat(cache.claim("/films a", BODY).first()).isTrue();
+        // просроченная запись "/films b" снята при вытеснении
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void claim_overMaxKeys_evictsOldest() {
+        IdempotencyCache cache = new IdempotencyCache(2, Duration.ofMinutes(1), clock::get);
+        cache.claim("/films a", BODY);
+        cache.claim("/films b", BODY);
+        cache.claim("/films c", BODY);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.claim("/films a", BODY).first()).isTrue();
+        assertThat(cache.claim("/films c", BODY).first()).isFalse();
+    }
+
+    @Test
+    void release_moreThanMaxKeys_queueStaysBounded() {
+        IdempotencyCache cache = new IdempotencyCache(3, Duration.ofMinutes(1), clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            cache.release(cache.claim("/films " + i, BODY).entry());
+        }
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.queuedSize()).isLessThanOrEqualTo(3);
+        cache.claim("/films a", BODY);
+        cache.claim("/films b", BODY);
+        assertThat(cache.claim("/films a", BODY).first()).isFalse();
+        assertThat(cache.queuedSize()).isLessThanOrEqualTo(3);
+    }
+}
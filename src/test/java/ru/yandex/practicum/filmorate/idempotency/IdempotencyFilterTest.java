@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.idempotency;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.cluster.ClusterClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class IdempotencyFilterTest {
+
+    private static final String FILM = """
+            {"name":"Сталкер","description":"Зона","releaseDate":"1979-05-25","duration":163}""";
+    private static final String USER = """
+            {"email":"retry@mail.ru","login":"retry","birthday":"1990-01-01"}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyFilter filter;
+
+    @Test
+    void createFilm_retriedWithSameKey_replaysFirstResponseWithoutDuplicate() throws Exception {
+        String etag = mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(FILM)
+                        .header(IdempotencyFilter.KEY_HEADER, "film-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(FILM)
+                        .header(IdempotencyFilter.KEY_HEADER, "film-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+
+        mockMvc.perform(get("/films")).andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void createFilm_spoofedForwardedHeader_stillDeduplicated() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(FILM)
+                            .header(IdempotencyFilter.KEY_HEADER, "spoofed")
+                            .header(ClusterClient.FORWARDED_HEADER, "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(1));
+        }
+
+        mockMvc.perform(get("/films")).andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void createUser_retriedWithSameKey_noConflict() throws Exception {
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(USER)
+                        .header(IdempotencyFilter.KEY_HEADER, "user-1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(USER)
+                        .header(IdempotencyFilter.KEY_HEADER, "user-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        // без ключа повтор - новый запрос, и email уже занят
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(USER))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void create_sameKeyDifferentBody_unprocessable() throws Exception {
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(FILM)
+                        .header(IdempotencyFilter.KEY_HEADER, "film-1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(FILM.replace("Сталкер", "Солярис"))
+                        .header(IdempotencyFilter.KEY_HEADER, "film-1"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error").value("Ключ Idempotency-Key уже использован для другого запроса"));
+    }
+
+    @Test
+    void create_invalidBodyRetried_validationErrorReplayed() throws Exception {
+        String invalid = FILM.replace("Сталкер", "");
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(invalid)
+                            .header(IdempotencyFilter.KEY_HEADER, "invalid"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.name").exists());
+        }
+    }
+
+    @Test
+    void create_concurrentDuplicates_executedOnceOthersWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 16; i++) {
+                responses.add(clients.submit(() -> {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    filter.doFilter(request("concurrent"), response, (request, servletResponse) -> {
+                        executions.incrementAndGet();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                        servletResponse.getOutputStream().write("{\"id\":42}".getBytes(StandardCharsets.UTF_8));
+                    });
+                    return response;
+                }));
+            }
+            // даём повторам дойти до ожидания, прежде чем первый запрос завершится
+            TimeUnit.MILLISECONDS.sleep(200);
+            release.countDown();
+
+            int replayed = 0;
+            for (Future<MockHttpServletResponse> future : responses) {
+                MockHttpServletResponse response = future.get(5, TimeUnit.SECONDS);
+                assertThat(response.getStatus()).isEqualTo(200);
+                assertThat(response.getContentAsString()).isEqualTo("{\"id\":42}");
+                if ("true".equals(response.getHeader(IdempotencyFilter.REPLAYED_HEADER))) {
+                    replayed++;
+                }
+            }
+            assertThat(executions).hasValue(1);
+            assertThat(replayed).isEqualTo(15);
+        }
+    }
+
+    @Test
+    void create_firstFailsWithServerError_retryExecutesAgain() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("failing"), response, (request, servletResponse) -> {
+                executions.incrementAndGet();
+                ((HttpServletResponse) servletResponse).setStatus(503);
+            });
+            assertThat(response.getStatus()).isEqualTo(503);
+        }
+        assertThat(executions).hasValue(2);
+    }
+
+    private static MockHttpServletRequest request(String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/films");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(FILM.getBytes(StandardCharsets.UTF_8));
+        request.addHeader(IdempotencyFilter.KEY_HEADER, key);
+        return request;
+    }
+}
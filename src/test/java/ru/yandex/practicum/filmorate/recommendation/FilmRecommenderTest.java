@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmRecommenderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void recommend_userWithoutLikes_empty() {
+        FilmRecommender recommender = new FilmRecommender(10, 1_000, registry);
+        recommender.update(1, 2, true);
+
+        assertThat(recommender.recommend(1, 10)).isEmpty();
+        assertThat(recommender.recommend(3, 10)).isEmpty();
+    }
+
+    @Test
+    void recommend_closerNeighbourWeighsMore_filmsOrderedByScore() {
+        FilmRecommender recommender = new FilmRecommender(10, 1_000, registry);
+        like(recommender, 1, 10, 11, 12);
+        like(recommender, 2, 10, 11, 12, 20, 21);
+        like(recommender, 3, 10, 21, 22);
+        like(recommender, 4, 30);
+
+        // 21: 3 + 1, 20: 3, 22: 1; фильм 30 несхожего пользователя не попадает
+        assertThat(recommender.recommend(1, 10)).containsExactly(21, 20, 22);
+        assertThat(recommender.recommend(1, 2)).containsExactly(21, 20);
+        assertThat(requests("computed")).isEqualTo(1);
+        assertThat(requests("hit")).isEqualTo(1);
+
+        recommender.update(22, 4, true);
+        like(recommender, 4, 10, 11, 12);
+        recommender.update(20, 2, false);
+
+        assertThat(recommender.recommend(1, 10)).containsExactly(21, 22, 30);
+        assertThat(requests("computed")).isEqualTo(1);
+        assertThat(requests("reranked")).isEqualTo(1);
+    }
+
+    @Test
+    void recommend_randomLikesAndUnlikes_incrementalMatchesFreshComputation() {
+        FilmRecommender incremental = new FilmRecommender(5, 2_000, registry);
+        Random random = new Random(42);
+        Set<Long> likes = new HashSet<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            long userId = 1 + random.nextInt(200);
+            // перекос популярности: малые id фильмов лайкают чаще
+            long filmId = 1 + (long) (300 * Math.pow(random.nextDouble(), 2));
+            boolean added = likes.add(userId << 32 | filmId);
+            if (!added) {
+                likes.remove(userId << 32 | filmId);
+            }
+            incremental.update(filmId, userId, added);
+            if (i % 10 == 0) {
+                incremental.recommend(1 + random.nextInt(200), 10);
+            }
+        }
+
+        FilmRecommender fresh = new FilmRecommender(5, 2_000, new SimpleMeterRegistry());
+        for (long like : likes) {
+            fresh.update(like & 0xFFFFFFFFL, like >>> 32, true);
+        }
+        List<long[]> expected = new ArrayList<>();
+        List<long[]> actual = new ArrayList<>();
+        for (long userId = 1; userId <= 200; userId++) {
+            expected.add(fresh.recommend(userId, 10));
+            actual.add(incremental.recommend(userId, 10));
+        }
+        assertThat(actual).containsExactlyElementsOf(expected);
+        assertThat(requests("reranked")).isPositive();
+    }
+
+    private static void like(FilmRecommender recommender, long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            recommender.update(filmId, userId, true);
+        }
+    }
+
+    private double requests(String result) {
+        return registry.get("filmorate.recommendations.requests").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,231 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.model.DumpSummary;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EmailIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.dump.DumpWriter;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogueTransferTest {
+
+    private static final ValidatorFactory VALIDATOR_FACTORY =
+            Validation.buildDefaultValidatorFactory();
+
+    private final Validator validator = VALIDATOR_FACTORY.getValidator();
+
+    @TempDir
+    private Path dir;
+
+    @AfterAll
+    static void closeValidator() {
+        VALIDATOR_FACTORY.close();
+    }
+
+    @Test
+    void exportThenLoad_intoEmptyCatalogue_nothingLost() {
+        FilmStorage films = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        UserStorage users = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+        LikeStorage likes = new InMemoryLikeStorage(List.of());
+        FriendStorage friends = new InMemoryFriendStorage();
+        List<Film> sourceFilms = new ArrayList<>();
+        for (int i = 0; i < 25_000; i++) {
+            sourceFilms.add(film("Фильм " + i, i % 7 == 0 ? null : "Описание " + i, 60 + i % 100));
+        }
+        films.createAll(sourceFilms);
+        List<User> sourceUsers = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            sourceUsers.add(new User(null, "user" + i + "@mail.ru", "login" + i, "Имя " + i,
+                    LocalDate.of(1980, 1, 1).plusDays(i)));
+        }
+        users.createAll(sourceUsers);
+        for (int i = 0; i < 5_000; i++) {
+            long userId = sourceUsers.get(i).getId();
+            likes.addLike(sourceFilms.get(i * 5).getId(), userId);
+            likes.addLike(sourceFilms.get(7).getId(), userId);
+            if (i > 0) {
+                friends.addFriend(userId, sourceUsers.get(i / 2).getId());
+            }
+        }
+        Path file = dir.resolve("catalogue.dump");
+
+        DumpSummary exported = new CatalogueTransfer(films, users, likes, friends, validator).export(file);
+        // загрузка в каталог, где id уже заняты: связи переводятся на новые id
+        FilmStorage loadedFilms = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        loadedFilms.create(film("Уже был", null, 90));
+        UserStorage loadedUsers = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+        loadedUsers.create(new User(null, "existing@mail.ru", "existing", "Был", LocalDate.of(1980, 1, 1)));
+        LikeStorage loadedLikes = new InMemoryLikeStorage(List.of());
+        FriendStorage loadedFriends = new InMemoryFriendStorage();
+        List<Film> savedFilms = new ArrayList<>();
+        List<User> savedUsers = new ArrayList<>();
+        List<long[]> savedLikes = new ArrayList<>();
+        DumpSummary loaded = new CatalogueTransfer(loadedFilms, loadedUsers, loadedLikes, loadedFriends, validator)
+                .load(file, new CatalogueTransfer.Listener() {
+                    @Override
+                    public void filmsSaved(List<Film> films) {
+                        savedFilms.addAll(films);
+                    }
+
+                    @Override
+                    public void usersSaved(List<User> users) {
+                        savedUsers.addAll(users);
+                    }
+
+                    @Override
+                    public void liked(long filmId, long userId) {
+                        savedLikes.add(new long[]{filmId, userId});
+                    }
+                });
+
+        assertThat(exported).isEqualTo(loaded);
+        assertThat(loaded.getFilms()).isEqualTo(25_000);
+        assertThat(loaded.getUsers()).isEqualTo(5_000);
+        assertThat(loaded.getLikes()).isEqualTo(10_000);
+        assertThat(loaded.getFriendships()).isEqualTo(4_999);
+        for (int i = 0; i < 5_000; i += 499) {
+            User source = sourceUsers.get(i);
+            User copy = loadedUsers.findPage(0, 10_000).get(i + 1);
+            assertThat(copy.getEmail()).isEqualTo(source.getEmail());
+            assertThat(loadedFriends.findFriendIds(copy.getId())).hasSameSizeAs(friends.findFriendIds(source.getId()));
+        }
+        Film popular = loadedFilms.findPage(0, 30_000).get(8);
+        assertThat(popular.getName()).isEqualTo("Фильм 7");
+        assertThat(loadedLikes.countLikes(popular.getId())).isEqualTo(likes.countLikes(sourceFilms.get(7).getId()));
+        assertThat(loadedLikes.findMostLiked(1)).containsExactly(popular.getId());
+        assertThat(loadedFilms.findPage(1, 30_000))
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version")
+                .containsExactlyElementsOf(films.findPage(0, 30_000));
+        assertThat(loadedUsers.findPage(1, 30_000))
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id", "version")
+                .containsExactlyElementsOf(users.findPage(0, 30_000));
+        // слушатель получает сохранённые записи с новыми id
+        assertThat(savedFilms).containsExactlyElementsOf(loadedFilms.findPage(1, 30_000));
+        assertThat(savedUsers).containsExactlyElementsOf(loadedUsers.findPage(1, 30_000));
+        assertThat(savedLikes).hasSize(10_000)
+                .allMatch(like -> loadedLikes.findUserIds(like[0]).length > 0 && like[1] > 1);
+    }
+
+    @Test
+    void load_invalidRecord_nothingSaved() throws Exception {
+        Path file = dir.resolve("invalid.dump");
+        try (DumpWriter writer = DumpWriter.create(file)) {
+            Film valid = film("Фильм", "Описание", 100);
+            valid.setId(1L);
+            writer.write(valid);
+            Film tooEarly = film("Прибытие поезда", "Описание", 1);
+            tooEarly.setId(2L);
+            tooEarly.setReleaseDate(LocalDate.of(1890, 1, 1));
+            writer.write(tooEarly);
+            writer.finish();
+        }
+        FilmStorage films = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        CatalogueTransfer transfer = transfer(films, new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled()));
+
+        ValidationException e = assertThrows(ValidationException.class, () -> transfer.load(file));
+
+        assertThat(e.getMessage()).contains("запись фильма 1").contains("releaseDate");
+        assertThat(films.size()).isZero();
+    }
+
+    @Test
+    void load_emailAlreadyTaken_throwsDuplicateNothingSaved() {
+        FilmStorage films = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        films.create(film("Фильм", "Описание", 100));
+        UserStorage users = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+        for (int i = 0; i < 1_500; i++) {
+            users.create(new User(null, "user" + i + "@mail.ru", "login", "name", LocalDate.of(1990, 1, 1)));
+        }
+        CatalogueTransfer transfer = transfer(films, users);
+        Path file = dir.resolve("users.dump");
+        transfer.export(file);
+        FilmStorage target = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        UserStorage targetUsers = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+        // занят email из второго пакета: первый пакет и фильмы не должны сохраниться
+        targetUsers.create(new User(null, "USER1200@mail.ru", "login", "name", LocalDate.of(1990, 1, 1)));
+
+        DuplicateException e = assertThrows(DuplicateException.class, () -> transfer(target, targetUsers).load(file));
+
+        assertThat(e.getMessage()).contains("user1200@mail.ru");
+        assertThat(target.size()).isZero();
+        assertThat(targetUsers.size()).isEqualTo(1);
+    }
+
+    @Test
+    void load_sameEmailTwiceInFile_nothingSaved() throws Exception {
+        Path file = dir.resolve("twice.dump");
+        try (DumpWriter writer = DumpWriter.create(file)) {
+            Film film = film("Фильм", "Описание", 100);
+            film.setId(1L);
+            writer.write(film);
+            writer.write(new User(1L, "same@mail.ru", "first", "name", LocalDate.of(1990, 1, 1)));
+            writer.write(new User(2L, "SAME@mail.ru", "second", "name", LocalDate.of(1990, 1, 1)));
+            writer.finish();
+        }
+        FilmStorage films = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        UserStorage users = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+
+        ValidationException e = assertThrows(ValidationException.class, () -> transfer(films, users).load(file));
+
+        assertThat(e.getMessage()).contains("запись пользователя 1").contains("повторяется");
+        assertThat(films.size()).isZero();
+        assertThat(users.size()).isZero();
+    }
+
+    @Test
+    void load_likeOfUserMissingInFile_nothingSaved() throws Exception {
+        Path file = dir.resolve("dangling.dump");
+        try (DumpWriter writer = DumpWriter.create(file)) {
+            Film film = film("Фильм", "Описание", 100);
+            film.setId(1L);
+            writer.write(film);
+            writer.writeLike(1, 42);
+            writer.finish();
+        }
+        FilmStorage films = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> transfer(films, new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled())).load(file));
+
+        assertThat(e.getMessage()).contains("запись лайка 0").contains("id:42");
+        assertThat(films.size()).isZero();
+    }
+
+    private CatalogueTransfer transfer(FilmStorage films, UserStorage users) {
+        return new CatalogueTransfer(films, users, new InMemoryLikeStorage(List.of()), new InMemoryFriendStorage(),
+                validator);
+    }
+
+    private static Film film(String name, String description, int duration) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(1960, 1, 1).plusDays(duration));
+        film.setDuration(duration);
+        return film;
+    }
+}
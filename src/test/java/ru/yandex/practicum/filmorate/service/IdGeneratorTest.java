@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdGeneratorTest {
+
+    @Test
+    void getNextId_sequentialCalls_returnsIncreasingIds() {
+        IdGenerator generator = new IdGenerator();
+
+        assertThat(generator.getNextId()).isEqualTo(1);
+        assertThat(generator.getNextId()).isEqualTo(2);
+        assertThat(generator.getCurrentId()).isEqualTo(2);
+    }
+
+    @Test
+    void seed_existingMaxId_nextIdContinuesAfterIt() {
+        IdGenerator generator = new IdGenerator();
+        generator.seed(41);
+        generator.seed(7); // меньший id не сдвигает последовательность назад
+
+        assertThat(generator.getNextId()).isEqualTo(42);
+    }
+
+    @Test
+    void reserveBlock_returnsFirstIdAndSkipsWholeBlock() {
+        IdGenerator generator = new IdGenerator();
+
+        assertThat(generator.reserveBlock(10)).isEqualTo(1);
+        assertThat(generator.getNextId()).isEqualTo(11);
+        assertThrows(IllegalArgumentException.class, () -> generator.reserveBlock(0));
+    }
+
+    @Test
+    void partitioned_idsOnlyFromOwnedPartitionsInOrder() {
+        IdGenerator generator = new IdGenerator(8, new int[]{1, 4, 6});
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(generator.getNextId());
+        }
+        long first = generator.reserveBlock(4);
+        for (int i = 0; i < 4; i++) {
+            ids.add(generator.idAt(first, i));
+        }
+
+        assertThat(ids).containsExactly(4L, 6L, 9L, 12L, 14L, 17L, 20L, 22L, 25L, 28L, 30L);
+        assertThat(generator.getNextId()).isEqualTo(33);
+    }
+
+    @Test
+    void partitioned_seedForeignId_continuesWithNextOwned() {
+        IdGenerator generator = new IdGenerator(8, new int[]{1, 4, 6});
+        generator.seed(19); // раздел 3 чужой: ближайший свой id не больше 19 - 17
+
+        assertThat(generator.getNextId()).isEqualTo(20);
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(8, new int[]{4, 1}));
+    }
+
+    @Test
+    void getNextId_parallelCalls_noDuplicates() throws Exception {
+        IdGenerator generator = new IdGenerator();
+        int threads = 16;
+        int idsPerThread = 10_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids.add(generator.getNextId());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(threads * idsPerThread);
+        assertThat(generator.getCurrentId()).isEqualTo((long) threads * idsPerThread);
+    }
+}
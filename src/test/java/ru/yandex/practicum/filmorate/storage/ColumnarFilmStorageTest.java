@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.persistence.EntityJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarFilmStorageTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void create_cyrillicNullAndEmptyStrings_readBackUnchanged() {
+        ColumnarFilmStorage storage = new ColumnarFilmStorage(JournalFactory.disabled(), List.of());
+        Film withNull = film("Сталкер", null, 163);
+        Film withEmpty = film("Солярис", "", 167);
+        storage.create(withNull);
+        storage.create(withEmpty);
+
+        Film read = storage.findById(withNull.getId()).orElseThrow();
+        assertThat(read.getName()).isEqualTo("Сталкер");
+        assertThat(read.getDescription()).isNull();
+        assertThat(read.getReleaseDate()).isEqualTo(LocalDate.of(1979, 5, 25));
+        assertThat(read.getDuration()).isEqualTo(163);
+        assertThat(read.getVersion()).isEqualTo(1);
+        assertThat(storage.findById(withEmpty.getId()).orElseThrow().getDescription()).isEmpty();
+        assertThat(storage.findById(100)).isEmpty();
+        assertThat(storage.findPage(withNull.getId(), 10)).extracting(Film::getId).containsExactly(withEmpty.getId());
+    }
+
+    @Test
+    void update_manyTimes_compactsArenaAndKeepsLatestValues() {
+        ColumnarFilmStorage storage = new ColumnarFilmStorage(JournalFactory.disabled(), List.of());
+        for (int i = 0; i < 3000; i++) {
+            storage.create(film("Фильм " + i, "Описание " + i, 100));
+        }
+        // каждая правка оставляет в арене около 300 байт мусора, этого хватает на несколько сжатий
+        for (int round = 1; round <= 5; round++) {
+            for (long id = 1; id <= 3000; id++) {
+                Film film = film("Фильм " + id + " правка " + round, "Ё".repeat(140), 100 + round);
+                film.setId(id);
+                storage.update(film);
+            }
+        }
+
+        assertThat(storage.size()).isEqualTo(3000);
+        Film film = storage.findById(1234).orElseThrow();
+        assertThat(film.getName()).isEqualTo("Фильм 1234 правка 5");
+        assertThat(film.getDescription()).isEqualTo("Ё".repeat(140));
+        assertThat(film.getDuration()).isEqualTo(105);
+        assertThat(film.getVersion()).isEqualTo(6);
+        assertThat(storage.findAll()).hasSize(3000);
+    }
+
+    @Test
+    void update_staleVersion_throwsAndLeavesFilmUnchanged() {
+        ColumnarFilmStorage storage = new ColumnarFilmStorage(JournalFactory.disabled(), List.of());
+        long id = storage.create(film("Зеркало", "Описание", 107)).getId();
+        Film edit = film("Правка", "Описание", 107);
+        edit.setId(id);
+
+        assertThrows(PreconditionFailedException.class, () -> storage.update(edit, current -> current == 7));
+        assertThat(storage.findById(id).orElseThrow().getName()).isEqualTo("Зеркало");
+    }
+
+    @Test
+    void restart_restoresColumnsIndexAndIdSequence() {
+        JournalFactory factory = new JournalFactory(true, dir, 1000, objectMapper);
+        ColumnarFilmStorage storage = new ColumnarFilmStorage(factory, List.of());
+        storage.create(film("Андрей Рублёв", "Описание", 205));
+        Film second = storage.create(film("Иваново детство", "Описание", 95));
+        second.setName("Жертвоприношение");
+        storage.update(second);
+        factory.close();
+
+        JournalFactory restartedFactory = new JournalFactory(true, dir, 1000, objectMapper);
+        FilmSearchIndex index = new FilmSearchIndex();
+        ColumnarFilmStorage restarted = new ColumnarFilmStorage(restartedFactory, List.of(index));
+        try {
+            assertThat(restarted.size()).isEqualTo(2);
+            assertThat(restarted.findById(2).orElseThrow().getName()).isEqualTo("Жертвоприношение");
+            assertThat(index.search("жертвоприношение", 10)).containsExactly(2L);
+            assertThat(index.search("иваново", 10)).isEmpty();
+            assertThat(restarted.create(film("Ностальгия", "Описание", 125)).getId()).isEqualTo(3);
+        } finally {
+            restartedFactory.close();
+        }
+    }
+
+    @Test
+    void journalFailsAfterAppend_bothLayouts_changesRolledBack() {
+        for (boolean columnar : new boolean[]{false, true}) {
+            AtomicBoolean failing = new AtomicBoolean();
+            JournalFactory factory = failingAsync(failing);
+            FilmSearchIndex index = new FilmSearchIndex();
+            FilmStorage storage = columnar
+                    ? new ColumnarFilmStorage(factory, List.of(index))
+                    : new InMemoryFilmStorage(factory, List.of(index));
+            long id = storage.create(film("Сталкер", "Описание", 163)).getId();
+            failing.set(true);
+            long versionBefore = storage.version();
+
+            assertThrows(CompletionException.class, () -> storage.create(film("Солярис", "Описание", 167)));
+            Film edit = film("Зеркало", "Описание", 107);
+            edit.setId(id);
+            assertThrows(CompletionException.class, () -> storage.update(edit));
+            assertThrows(CompletionException.class, () -> storage.createAll(List.of(film("Ностальгия", "", 125))));
+
+            assertThat(storage.size()).isEqualTo(1);
+            Film kept = storage.findById(id).orElseThrow();
+            assertThat(kept.getName()).isEqualTo("Сталкер");
+            assertThat(kept.getVersion()).isEqualTo(1);
+            assertThat(storage.findPage(0, 10)).extracting(Film::getId).containsExactly(id);
+            assertThat(index.search("сталкер", 10)).containsExactly(id);
+            assertThat(index.search("солярис", 10)).isEmpty();
+            assertThat(index.search("зеркало", 10)).isEmpty();
+            assertThat(index.search("ностальгия", 10)).isEmpty();
+            assertThat(storage.version()).isGreaterThan(versionBefore);
+        }
+    }
+
+    /**
+     * Журнал, который принимает записи, но при {@code failing} сообщает об ошибке fsync через future.
+     */
+    static JournalFactory failingAsync(AtomicBoolean failing) {
+        return new JournalFactory(false, null, 0, null) {
+            @Override
+            public <T> EntityJournal<T> open(String name, Class<T> type, Consumer<T> replayTarget) {
+                return new EntityJournal<>() {
+                    @Override
+                    public CompletableFuture<Void> append(long id, T entity) {
+                        return failing.get()
+                                ? CompletableFuture.failedFuture(new IOException("диск недоступен"))
+                                : CompletableFuture.completedFuture(null);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+    }
+
+    private static Film film(String name, String description, int duration) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(1979, 5, 25));
+        film.setDuration(duration);
+        return film;
+    }
+}
@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.persistence.EntityJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EmailIndexTest {
+
+    @Test
+    void reserve_sameEmailDifferentCase_throwsDuplicate() {
+        EmailIndex index = new EmailIndex();
+        index.reserve("User@Mail.ru", 1);
+
+        index.reserve("user@mail.ru", 1); // тот же владелец
+        assertThrows(DuplicateException.class, () -> index.reserve("USER@MAIL.RU", 2));
+        assertThat(index.isTaken("uSeR@mail.RU")).isTrue();
+    }
+
+    @Test
+    void normalize_emailsEqualForIndex_sameKey() {
+        // İ и знак кельвина: toLowerCase даёт для них другие строки, чем сравнение индекса
+        List<String[]> pairs = List.of(new String[]{"İvan@mail.ru", "ivan@mail.ru"},
+                new String[]{"\u212Aate@mail.ru", "kATE@mail.ru"}, new String[]{"ΣΟΦΙΑ@mail.ru", "σοφια@mail.ru"});
+        for (String[] pair : pairs) {
+            assertThat(String.CASE_INSENSITIVE_ORDER.compare(pair[0], pair[1])).isZero();
+            assertThat(EmailIndex.normalize(pair[0])).isEqualTo(EmailIndex.normalize(pair[1]));
+        }
+        assertThat(EmailIndex.normalize("first@mail.ru")).isNotEqualTo(EmailIndex.normalize("second@mail.ru"));
+    }
+
+    @Test
+    void swap_newEmailTaken_oldEmailKept() {
+        EmailIndex index = new EmailIndex();
+        index.reserve("first@mail.ru", 1);
+        index.reserve("second@mail.ru", 2);
+
+        assertThrows(DuplicateException.class, () -> index.swap("first@mail.ru", "SECOND@mail.ru", 1));
+
+        assertThat(index.isTaken("first@mail.ru")).isTrue();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void swap_freeEmail_oldEmailReleased() {
+        EmailIndex index = new EmailIndex();
+        index.reserve("old@mail.ru", 1);
+
+        index.swap("old@mail.ru", "new@mail.ru", 1);
+
+        assertThat(index.isTaken("old@mail.ru")).isFalse();
+        assertThat(index.isTaken("NEW@mail.ru")).isTrue();
+    }
+
+    @Test
+    void release_notOwner_emailStaysReserved() {
+        EmailIndex index = new EmailIndex();
+        index.reserve("owner@mail.ru", 1);
+
+        index.release("owner@mail.ru", 2);
+
+        assertThat(index.isTaken("owner@mail.ru")).isTrue();
+    }
+
+    @Test
+    void create_manyThreadsSameEmail_exactlyOneSucceeds() throws Exception {
+        EmailIndex index = new EmailIndex();
+        InMemoryUserStorage storage = new InMemoryUserStorage(index, JournalFactory.disabled());
+        int threads = 32;
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String email = i % 2 == 0 ? "race@mail.ru" : "RACE@mail.ru";
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        storage.create(new User(null, email, "login", "name", LocalDate.of(1990, 1, 1)));
+                        created.incrementAndGet();
+                    } catch (DuplicateException e) {
+                        duplicates.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(duplicates.get()).isEqualTo(threads - 1);
+        assertThat(storage.size()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void createAndPatch_journalFails_emailReleased() {
+        EmailIndex index = new EmailIndex();
+        AtomicBoolean failing = new AtomicBoolean();
+        InMemoryUserStorage storage = new InMemoryUserStorage(index, new JournalFactory(false, null, 0, null) {
+            @Override
+            public <T> EntityJournal<T> open(String name, Class<T> type, Consumer<T> replayTarget) {
+                return new EntityJournal<>() {
+                    @Override
+                    public CompletableFuture<Void> append(long id, T entity) {
+                        if (failing.get()) {
+                            throw new UncheckedIOException(new IOException("диск недоступен"));
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        });
+        long id = storage.create(user("kept@mail.ru")).getId();
+        failing.set(true);
+
+        assertThrows(UncheckedIOException.class, () -> storage.create(user("lost@mail.ru")));
+        User changed = user("changed@mail.ru");
+        changed.setId(id);
+        assertThrows(UncheckedIOException.class, () -> storage.update(changed));
+
+        assertThat(index.isTaken("lost@mail.ru")).isFalse();
+        assertThat(index.isTaken("changed@mail.ru")).isFalse();
+        assertThat(index.isTaken("kept@mail.ru")).isTrue();
+        failing.set(false);
+        storage.create(user("lost@mail.ru"));
+    }
+
+    @Test
+    void createAndPatch_journalFailsAfterAppend_changesRolledBackAndEmailsFreed() {
+        EmailIndex index = new EmailIndex();
+        AtomicBoolean failing = new AtomicBoolean();
+        InMemoryUserStorage storage = new InMemoryUserStorage(index, ColumnarFilmStorageTest.failingAsync(failing));
+        long id = storage.create(user("kept@mail.ru")).getId();
+        failing.set(true);
+
+        assertThrows(CompletionException.class, () -> storage.create(user("lost@mail.ru")));
+        User changed = user("changed@mail.ru");
+        changed.setId(id);
+        assertThrows(CompletionException.class, () -> storage.update(changed));
+        assertThrows(CompletionException.class, () -> storage.createAll(List.of(user("batch@mail.ru"))));
+
+        assertThat(storage.size()).isEqualTo(1);
+        User kept = storage.findById(id).orElseThrow();
+        assertThat(kept.getEmail()).isEqualTo("kept@mail.ru");
+        assertThat(kept.getVersion()).isEqualTo(1);
+        assertThat(index.isTaken("kept@mail.ru")).isTrue();
+        assertThat(index.isTaken("lost@mail.ru")).isFalse();
+        assertThat(index.isTaken("changed@mail.ru")).isFalse();
+        assertThat(index.isTaken("batch@mail.ru")).isFalse();
+        failing.set(false);
+        storage.create(user("lost@mail.ru"));
+    }
+
+    @Test
+    void batches_journalRejectsBatch_nothingAppliedAndEmailsReleased() {
+        EmailIndex index = new EmailIndex();
+        AtomicBoolean failing = new AtomicBoolean();
+        InMemoryUserStorage storage = new InMemoryUserStorage(index, new JournalFactory(false, null, 0, null) {
+            @Override
+            public <T> EntityJournal<T> open(String name, Class<T> type, Consumer<T> replayTarget) {
+                return new EntityJournal<>() {
+                    @Override
+                    public CompletableFuture<Void> append(long id, T entity) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+
+                    @Override
+                    public CompletableFuture<Void> appendAll(List<? extends T> entities, ToLongFunction<? super T> idOf) {
+                        if (failing.get()) {
+                            throw new UncheckedIOException(new IOException("пакет не сериализован"));
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        });
+        List<User> kept = storage.createAll(List.of(user("first@mail.ru"), user("second@mail.ru")));
+        failing.set(true);
+        long versionBefore = storage.version();
+
+        assertThrows(UncheckedIOException.class,
+                () -> storage.createAll(List.of(user("third@mail.ru"), user("fourth@mail.ru"))));
+        User firstChanged = user("first-changed@mail.ru");
+        firstChanged.setId(kept.get(0).getId());
+        User secondChanged = user("second-changed@mail.ru");
+        secondChanged.setId(kept.get(1).getId());
+        assertThrows(UncheckedIOException.class, () -> storage.updateAll(List.of(firstChanged, secondChanged)));
+
+        assertThat(storage.size()).isEqualTo(2);
+        assertThat(storage.version()).isEqualTo(versionBefore);
+        assertThat(storage.findById(kept.get(0).getId()).orElseThrow().getEmail()).isEqualTo("first@mail.ru");
+        assertThat(index.isTaken("first@mail.ru")).isTrue();
+        assertThat(index.isTaken("second@mail.ru")).isTrue();
+        assertThat(index.isTaken("third@mail.ru")).isFalse();
+        assertThat(index.isTaken("fourth@mail.ru")).isFalse();
+        assertThat(index.isTaken("first-changed@mail.ru")).isFalse();
+        assertThat(index.isTaken("second-changed@mail.ru")).isFalse();
+    }
+
+    @Test
+    void reserve_slowRemoteIndex_doesNotBlockOtherWrites() throws Exception {
+        CountDownLatch reserving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // как в кластере: резервирование чужого адреса - медленный запрос к другому узлу
+        EmailIndex index = new EmailIndex() {
+            @Override
+            public void reserve(String email, long userId) {
+                if (email.startsWith("remote")) {
+                    reserving.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.reserve(email, userId);
+            }
+        };
+        InMemoryUserStorage storage = new InMemoryUserStorage(index, JournalFactory.disabled());
+        User existing = storage.create(user("local@mail.ru"));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<User> created = executor.submit(() -> storage.create(user("remote-new@mail.ru")));
+            User changed = user("remote-changed@mail.ru");
+            changed.setId(existing.getId());
+            Future<User> patched = executor.submit(() -> storage.update(changed));
+            assertThat(reserving.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<List<User>> batch = executor.submit(() -> storage.createAll(List.of(user("batch@mail.ru"))));
+            assertThat(batch).succeedsWithin(5, TimeUnit.SECONDS);
+            release.countDown();
+            assertThat(created).succeedsWithin(5, TimeUnit.SECONDS);
+            assertThat(patched).succeedsWithin(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertThat(storage.size()).isEqualTo(3);
+        assertThat(storage.findById(existing.getId()).orElseThrow().getEmail()).isEqualTo("remote-changed@mail.ru");
+        assertThat(index.isTaken("local@mail.ru")).isFalse();
+    }
+
+    private static User user(String email) {
+        return new User(null, email, "login", "name", LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Память на фильм в обоих режимах хранения, по графу объектов хранилища (JOL), без вторичных индексов.
+ */
+class FilmStorageFootprintTest {
+
+    private static final int FILMS = 20_000;
+
+    @Test
+    void bytesPerFilm_columnarLayout_atLeastTwiceSmallerThanObjects() {
+        InMemoryFilmStorage objects = fill(new InMemoryFilmStorage(JournalFactory.disabled(), List.of()));
+        ColumnarFilmStorage columnar = fill(new ColumnarFilmStorage(JournalFactory.disabled(), List.of()));
+
+        long objectBytes = GraphLayout.parseInstance(objects).totalSize() / FILMS;
+        long columnarBytes = GraphLayout.parseInstance(columnar).totalSize() / FILMS;
+
+        assertThat(columnarBytes * 2).isLessThan(objectBytes);
+    }
+
+    private static <T extends FilmStorage> T fill(T storage) {
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание фильма номер " + i);
+            film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(i));
+            film.setDuration(60 + i % 120);
+            storage.create(film);
+        }
+        return storage;
+    }
+}
@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InMemoryStorageConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+
+    @Test
+    void filmStorage_mixedCreateUpdateGet_staysConsistent() throws Exception {
+        mixedCreateUpdateGet(new InMemoryFilmStorage(JournalFactory.disabled(), List.of()));
+    }
+
+    @Test
+    void columnarFilmStorage_mixedCreateUpdateGet_staysConsistent() throws Exception {
+        mixedCreateUpdateGet(new ColumnarFilmStorage(JournalFactory.disabled(), List.of()));
+    }
+
+    private void mixedCreateUpdateGet(FilmStorage storage) throws Exception {
+        Set<Long> createdIds = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Long> ownIds = new ArrayList<>();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int operation = random.nextInt(3);
+                if (operation == 0 || ownIds.isEmpty()) {
+                    Film film = storage.create(film("Фильм " + i, 100));
+                    assertThat(createdIds.add(film.getId())).isTrue();
+                    ownIds.add(film.getId());
+                } else if (operation == 1) {
+                    Film film = film("Обновлён " + i, 120);
+                    film.setId(ownIds.get(random.nextInt(ownIds.size())));
+                    storage.update(film);
+                } else {
+                    // чтение чужих id: фильм может быть ещё не добавлен, но чтение не должно падать
+                    storage.findById(random.nextLong(1, OPERATIONS_PER_THREAD * THREADS));
+                    Film own = storage.findById(ownIds.get(random.nextInt(ownIds.size()))).orElseThrow();
+                    // строка читается целиком из одной версии: название и продолжительность от одной правки
+                    assertThat(own.getDuration()).isEqualTo(own.getName().startsWith("Обновлён") ? 120 : 100);
+                }
+            }
+        });
+
+        assertThat(storage.size()).isEqualTo(createdIds.size());
+        assertThat(storage.findAll()).hasSize(createdIds.size());
+        createdIds.forEach(id -> assertThat(storage.exists(id)).isTrue());
+    }
+
+    @Test
+    void filmStorage_concurrentCreates_versionNeverAheadOfPage() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 500; i++) {
+                storage.create(film("Фильм " + i, 100));
+                // без правок версия равна числу созданных фильмов: ETag новой версии не должен отдать старый список
+                long version = storage.version();
+                assertThat(storage.findPage(0, Integer.MAX_VALUE).size()).isGreaterThanOrEqualTo((int) version);
+            }
+        });
+    }
+
+    @Test
+    void filmStorage_conditionalUpdatesOfSameVersion_exactlyOneWins() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        long id = storage.create(film("Фильм", 100)).getId();
+        long version = storage.findById(id).orElseThrow().getVersion();
+        AtomicInteger applied = new AtomicInteger();
+
+        runConcurrently(() -> {
+            Film film = film("Правка", 120);
+            film.setId(id);
+            try {
+                storage.update(film, current -> current == version);
+                applied.incrementAndGet();
+            } catch (PreconditionFailedException e) {
+                // правку уже сделал другой поток
+            }
+        });
+
+        assertThat(applied.get()).isEqualTo(1);
+        assertThat(storage.findById(id).orElseThrow().getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void filmStorage_concurrentPatchesOfDifferentFields_noneLost() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(JournalFactory.disabled(), List.of());
+        long id = storage.create(film("Фильм", 100)).getId();
+        AtomicInteger thread = new AtomicInteger();
+
+        runConcurrently(() -> {
+            boolean renames = thread.getAndIncrement() % 2 == 0;
+            for (int i = 1; i <= 1000; i++) {
+                storage.patch(id, current -> {
+                    Film film = film(current.getName(), current.getDuration());
+                    if (renames) {
+                        film.setName(current.getName() + "+");
+                    } else {
+                        film.setDuration(current.getDuration() + 1);
+                    }
+                    return film;
+                }, anyVersion -> true);
+            }
+        });
+
+        Film film = storage.findById(id).orElseThrow();
+        assertThat(film.getName()).hasSize("Фильм".length() + THREADS / 2 * 1000);
+        assertThat(film.getDuration()).isEqualTo(100 + THREADS / 2 * 1000);
+        assertThat(film.getVersion()).isEqualTo(1 + THREADS * 1000L);
+    }
+
+    @Test
+    void userStorage_concurrentEmailChanges_emailsStayUnique() throws Exception {
+        InMemoryUserStorage storage = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+        int usersCount = 50;
+        for (int i = 0; i < usersCount; i++) {
+            storage.create(user("user" + i + "@mail.ru"));
+        }
+        AtomicInteger conflicts = new AtomicInteger();
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                // пул email меньше удвоенного числа пользователей, поэтому конфликты неизбежны
+                User user = user("USER" + random.nextInt(usersCount * 2) + "@mail.ru");
+                user.setId(random.nextLong(1, usersCount + 1));
+                try {
+                    storage.update(user);
+                } catch (DuplicateException e) {
+                    conflicts.incrementAndGet();
+                }
+                storage.findAll().forEach(existing -> assertThat(existing.getEmail()).isNotNull());
+            }
+        });
+
+        assertThat(conflicts.get()).isPositive();
+        Set<String> emails = ConcurrentHashMap.newKeySet();
+        for (User user : storage.findAll()) {
+            assertThat(emails.add(user.getEmail().toLowerCase())).isTrue();
+            assertThrows(DuplicateException.class, () -> storage.create(user(user.getEmail())));
+        }
+        assertThat(storage.size()).isEqualTo(usersCount);
+        // освобождённые при смене email адреса снова доступны
+        for (int i = 0; i < usersCount * 2; i++) {
+            String email = "user" + i + "@mail.ru";
+            if (!emails.contains(email)) {
+                storage.create(user(email));
+                return;
+            }
+        }
+    }
+
+    @Test
+    void userStorage_batches_bumpVersionOncePerBatch() {
+        InMemoryUserStorage storage = new InMemoryUserStorage(new EmailIndex(), JournalFactory.disabled());
+
+        List<User> created = storage.createAll(List.of(user("a@mail.ru"), user("b@mail.ru"), user("c@mail.ru")));
+        assertThat(storage.version()).isEqualTo(1);
+
+        created.forEach(user -> user.setName("Новое имя"));
+        storage.updateAll(created);
+        assertThat(storage.version()).isEqualTo(2);
+    }
+
+    private void runConcurrently(ThrowingRunnable task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Film film(String name, int duration) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(duration);
+        return film;
+    }
+
+    private static User user(String email) {
+        return new User(null, email, "login", "name", LocalDate.of(1990, 1, 1));
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.storage.dump;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.DumpSummary;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DumpFormatTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void read_writtenFile_returnsSameRecordsIncludingNullsAndStringsLongerThanBuffer() throws Exception {
+        Path file = dir.resolve("catalogue.dump");
+        Film longFilm = film(1, "Долгий фильм", "Ж".repeat(DumpFormat.BUFFER_SIZE));
+        Film emptyFilm = film(2, "", null);
+        emptyFilm.setDuration(null);
+        emptyFilm.setReleaseDate(null);
+        User user = new User(7L, "user@mail.ru", "login", null, LocalDate.of(1990, 1, 1));
+        try (DumpWriter writer = DumpWriter.create(file)) {
+            writer.write(longFilm);
+            writer.write(emptyFilm);
+            writer.write(user);
+            assertThat(writer.finish()).isEqualTo(Files.size(file));
+        }
+
+        List<Film> films = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        DumpSummary summary;
+        try (DumpReader reader = DumpReader.open(file)) {
+            summary = reader.read(films::add, users::add);
+        }
+
+        assertThat(summary.getFilms()).isEqualTo(2);
+        assertThat(summary.getUsers()).isEqualTo(1);
+        assertThat(films).usingRecursiveFieldByFieldElementComparator().containsExactly(longFilm, emptyFilm);
+        assertThat(users.get(0)).usingRecursiveComparison().isEqualTo(user);
+    }
+
+    @Test
+    void read_truncatedOrCorruptedFile_throwsDumpFormatException() throws Exception {
+        Path file = dir.resolve("catalogue.dump");
+        try (DumpWriter writer = DumpWriter.create(file)) {
+            for (int i = 1; i <= 1000; i++) {
+                writer.write(film(i, "Фильм " + i, "Описание"));
+            }
+            writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = dir.resolve("truncated.dump");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 30));
+        Path corrupted = dir.resolve("corrupted.dump");
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(corrupted, bytes);
+
+        assertThrows(DumpFormatException.class, () -> readAll(truncated));
+        assertThrows(DumpFormatException.class, () -> readAll(corrupted));
+    }
+
+    @Test
+    void read_firstVersionWithoutLinks_stillReadable() throws Exception {
+        Path file = dir.resolve("v1.dump");
+        ByteBuffer content = ByteBuffer.allocate(64)
+                .putInt(DumpFormat.MAGIC).putInt(DumpFormat.VERSION_WITHOUT_LINKS)
+                .put(DumpFormat.END).putLong(0).putLong(0);
+        CRC32C crc = new CRC32C();
+        crc.update(content.array(), 0, content.position());
+        content.putInt((int) crc.getValue());
+        Files.write(file, Arrays.copyOf(content.array(), content.position()));
+
+        DumpSummary summary;
+        try (DumpReader reader = DumpReader.open(file)) {
+            summary = reader.read(film -> { }, user -> { });
+        }
+
+        assertThat(summary).isEqualTo(new DumpSummary(0, 0, 0, 0, Files.size(file)));
+    }
+
+    private static void readAll(Path file) throws Exception {
+        try (DumpReader reader = DumpReader.open(file)) {
+            reader.read(film -> { }, user -> { });
+        }
+    }
+
+    private static Film film(long id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(id));
+        film.setDuration(90);
+        return film;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmRangeIndexTest {
+
+    private final FilmRangeIndex index = new FilmRangeIndex();
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage(JournalFactory.disabled(), List.of(index));
+
+    @Test
+    void findCandidates_releaseRange_includesBoundsInIdOrder() {
+        long early = storage.create(film(LocalDate.of(1999, 12, 31), 90)).getId();
+        long first = storage.create(film(LocalDate.of(2000, 1, 1), 90)).getId();
+        long last = storage.create(film(LocalDate.of(2000, 12, 31), 150)).getId();
+
+        assertThat(candidates(filter(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31), null, null)))
+                .containsExactly(first, last);
+        assertThat(candidates(filter(null, LocalDate.of(2000, 1, 1), null, null)))
+                .containsExactly(early, first);
+        assertThat(candidates(filter(LocalDate.of(2001, 1, 1), LocalDate.of(2000, 1, 1), null, null)))
+                .isEmpty();
+    }
+
+    @Test
+    void findCandidates_afterUpdate_filmMovesToNewKeys() {
+        Film film = storage.create(film(LocalDate.of(2000, 1, 1), 90));
+        Film changed = film(LocalDate.of(2010, 1, 1), 180);
+        changed.setId(film.getId());
+        storage.update(changed);
+
+        assertThat(candidates(filter(null, null, null, 100))).isEmpty();
+        assertThat(candidates(filter(null, null, 150, null))).containsExactly(film.getId());
+        assertThat(candidates(filter(null, LocalDate.of(2005, 1, 1), null, null))).isEmpty();
+    }
+
+    @Test
+    void findCandidates_bothRanges_returnsSmallerRangeContainingAllMatches() {
+        for (int i = 0; i < 50; i++) {
+            storage.create(film(LocalDate.of(2000, 1, 1).plusDays(i), 100));
+        }
+        long longFilm = storage.create(film(LocalDate.of(2000, 1, 10), 200)).getId();
+        FilmFilter filter = filter(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31), 150, null);
+
+        long[] candidates = candidates(filter);
+
+        assertThat(candidates).containsExactly(longFilm);
+        assertThat(filter.matches(storage.findById(longFilm).orElseThrow())).isTrue();
+    }
+
+    @Test
+    void findCandidates_afterId_mergesRangeFromThatIdWithoutRepeats() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // ключи чередуются, поэтому id каждого ключа идут вперемешку с id других
+            ids.add(storage.create(film(LocalDate.of(2000, 1, 1).plusDays(i % 7), 90 + i % 5)).getId());
+        }
+        FilmFilter filter = filter(LocalDate.of(2000, 1, 2), LocalDate.of(2000, 1, 6), null, null);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i % 7 >= 1 && i % 7 <= 5 && ids.get(i) > ids.get(100)) {
+                expected.add(ids.get(i));
+            }
+        }
+
+        List<Long> merged = new ArrayList<>();
+        index.findCandidates(filter, ids.get(100)).forEachRemaining((long id) -> merged.add(id));
+
+        assertThat(merged).isEqualTo(expected);
+    }
+
+    private long[] candidates(FilmFilter filter) {
+        List<Long> ids = new ArrayList<>();
+        index.findCandidates(filter, 0).forEachRemaining((long id) -> ids.add(id));
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static FilmFilter filter(LocalDate from, LocalDate to, Integer minDuration, Integer maxDuration) {
+        return new FilmFilter(from, to, minDuration, maxDuration);
+    }
+
+    private static Film film(LocalDate releaseDate, int duration) {
+        Film film = new Film();
+        film.setName("Фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(releaseDate);
+        film.setDuration(duration);
+        return film;
+    }
+}
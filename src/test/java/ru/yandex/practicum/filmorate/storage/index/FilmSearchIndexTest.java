@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchIndexTest {
+
+    private final FilmSearchIndex index = new FilmSearchIndex();
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage(JournalFactory.disabled(), List.of(index));
+
+    @Test
+    void search_afterNameUpdate_findsOnlyNewName() {
+        Film film = storage.create(film("Матрица", "Фантастика"));
+        Film renamed = film("Бойцовский клуб", "Фантастика");
+        renamed.setId(film.getId());
+        storage.update(renamed);
+
+        assertThat(index.search("матрица", 10)).isEmpty();
+        assertThat(index.search("клуб", 10)).containsExactly(film.getId());
+        assertThat(index.search("фантастика", 10)).containsExactly(film.getId());
+    }
+
+    @Test
+    void search_mixedCaseAndYo_matchesNormalizedWords() {
+        long cyrillic = storage.create(film("Ёлки", "Новогодняя комедия")).getId();
+        long latin = storage.create(film("The MATRIX", "Neo and Trinity")).getId();
+
+        assertThat(index.search("ЕЛКИ", 10)).containsExactly(cyrillic);
+        assertThat(index.search("matrix", 10)).containsExactly(latin);
+        assertThat(index.search("trinity, neo!", 10)).containsExactly(latin);
+    }
+
+    @Test
+    void search_prefix_matchesWordBeginningsOnly() {
+        long interstellar = storage.create(film("Интерстеллар", "Космос")).getId();
+        storage.create(film("Начало", "Сон во сне")).getId();
+
+        assertThat(index.search("интер", 10)).containsExactly(interstellar);
+        assertThat(index.search("стеллар", 10)).isEmpty();
+        // префиксы из одной буквы не раскрываются
+        assertThat(index.search("и", 10)).isEmpty();
+    }
+
+    @Test
+    void search_scores_nameBeforeDescriptionAndExactBeforePrefix() {
+        long inDescription = storage.create(film("Фильм", "Про космос")).getId();
+        long namePrefix = storage.create(film("Космонавты", "Описание")).getId();
+        long nameExact = storage.create(film("Космос", "Описание")).getId();
+
+        assertThat(index.search("космос", 10)).containsExactly(nameExact, inDescription);
+        assertThat(index.search("косм", 10)).containsExactly(namePrefix, nameExact, inDescription);
+        assertThat(index.search("косм", 1)).containsExactly(namePrefix);
+    }
+
+    private static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}
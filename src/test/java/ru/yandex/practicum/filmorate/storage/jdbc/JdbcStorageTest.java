@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "filmorate.storage.type=jdbc",
+        "filmorate.jdbc.pool.jdbc-url=jdbc:h2:mem:filmorate-test",
+        "filmorate.jdbc.batch-size=100"
+})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class JdbcStorageTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void storages_jdbcType_backedByDatabase() {
+        assertThat(filmStorage).isInstanceOf(JdbcFilmStorage.class);
+        assertThat(userStorage).isInstanceOf(JdbcUserStorage.class);
+    }
+
+    @Test
+    void createUser_emailTakenInOtherCase_conflictFromDatabase() throws Exception {
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(user("user@mail.ru"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(user("USER@Mail.ru"))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Email уже используется"));
+
+        User other = userStorage.create(user("other@mail.ru"));
+        other.setEmail("User@mail.ru");
+        mockMvc.perform(put("/users").contentType(MediaType.APPLICATION_JSON).content(toJson(other)))
+                .andExpect(status().isConflict());
+        assertThat(userStorage.findById(other.getId()).orElseThrow().getEmail()).isEqualTo("other@mail.ru");
+    }
+
+    @Test
+    void createAllUsers_duplicateInSecondChunk_nothingAdded() throws Exception {
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            batch.add(user("batch" + i + "@mail.ru"));
+        }
+        batch.set(120, user("BATCH3@mail.ru"));
+
+        mockMvc.perform(post("/users/batch").contentType(MediaType.APPLICATION_JSON).content(toJson(batch)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$[0].status").value(424))
+                .andExpect(jsonPath("$[120].status").value(409))
+                .andExpect(jsonPath("$[120].body.error").value("Email уже используется"));
+
+        assertThat(userStorage.size()).isZero();
+    }
+
+    @Test
+    void films_batchedWritesAndKeysetPages_readBackInOrder() {
+        List<Film> batch = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            batch.add(film("Фильм " + i, i % 2 == 0 ? null : "Описание " + i));
+        }
+        filmStorage.createAll(batch);
+
+        List<Long> ids = new ArrayList<>();
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.findPage(afterId, 60);
+            page.forEach(film -> ids.add(film.getId()));
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+        } while (page.size() == 60);
+        assertThat(ids).hasSize(250).isSorted().doesNotHaveDuplicates();
+        assertThat(filmStorage.size()).isEqualTo(250);
+
+        Film first = filmStorage.findById(1).orElseThrow();
+        assertThat(first.getDescription()).isNull();
+        assertThat(first.getReleaseDate()).isEqualTo(LocalDate.of(1979, 5, 25));
+        assertThat(first.getVersion()).isEqualTo(1);
+
+        Film changed = film("Сталкер", "Зона");
+        changed.setId(1L);
+        filmStorage.updateAll(List.of(changed, filmStorage.findById(2).orElseThrow()));
+        assertThat(filmStorage.findById(1).orElseThrow().getName()).isEqualTo("Сталкер");
+        assertThrows(PreconditionFailedException.class, () -> filmStorage.update(changed, version -> version == 1));
+        assertThat(filmStorage.update(changed, version -> version == 2).getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void newStorage_existingDatabase_continuesIdsAndRestoresIndexes() throws Exception {
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(film("Солярис", "Океан"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/1")).andExpect(jsonPath("$.name").value("Солярис"));
+
+        FilmSearchIndex searchIndex = new FilmSearchIndex();
+        JdbcFilmStorage restarted = new JdbcFilmStorage(dataSource, List.of(searchIndex));
+
+        assertThat(searchIndex.search("солярис", 10)).containsExactly(1L);
+        assertThat(restarted.create(film("Зеркало", null)).getId()).isEqualTo(2);
+    }
+
+    private String toJson(Object value) throws Exception {
+        return objectMapper.writeValueAsString(value);
+    }
+
+    private static User user(String email) {
+        return new User(null, email, "login", "name", LocalDate.of(1990, 1, 1));
+    }
+
+    private static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        film.setReleaseDate(LocalDate.of(1979, 5, 25));
+        film.setDuration(163);
+        return film;
+    }
+}
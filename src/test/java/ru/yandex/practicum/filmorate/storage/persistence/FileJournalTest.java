@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.exceptions.DuplicateException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EmailIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileJournalTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void read_recordsCrossWindowBoundaries_allReadInOrder() throws Exception {
+        Path file = dir.resolve("windows.wal");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (long key = 1; key <= 50; key++) {
+                // записи разной длины, часть больше окна
+                channel.write(JournalRecords.encode(key, new byte[(int) (key * 7 % 90)]));
+            }
+        }
+
+        List<Long> keys = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = JournalRecords.read(channel, 0, 64, (key, payload, frame) -> {
+                assertThat(payload.remaining()).isEqualTo((int) (key * 7 % 90));
+                keys.add(key);
+            });
+            assertThat(end).isEqualTo(channel.size());
+        }
+        assertThat(keys).hasSize(50).isSorted();
+    }
+
+    @Test
+    void open_afterCrashInTheMiddleOfWrite_recoversCompleteRecordsAndKeepsWorking() throws Exception {
+        try (EntityJournal<Film> journal = open(1000, new ArrayList<>())) {
+            for (long id = 1; id <= 100; id++) {
+                journal.append(id, film(id, "Фильм " + id)).join();
+            }
+        }
+        // имитация падения посреди записи: заголовок обещает 500 байт, дописаны только 20
+        Path lastSegment = segments().get(segments().size() - 1);
+        ByteBuffer tornRecord = ByteBuffer.allocate(JournalRecords.HEADER_SIZE + 20)
+                .putInt(500).putInt(42).putLong(101);
+        Files.write(lastSegment, tornRecord.array(), StandardOpenOption.APPEND);
+
+        List<Film> replayed = new ArrayList<>();
+        try (EntityJournal<Film> journal = open(1000, replayed)) {
+            journal.append(101, film(101, "После сбоя")).join();
+        }
+        assertThat(replayed).hasSize(100);
+        assertThat(replayed.get(99).getName()).isEqualTo("Фильм 100");
+
+        List<Film> afterRestart = new ArrayList<>();
+        open(1000, afterRestart).close();
+        assertThat(afterRestart).hasSize(101);
+        assertThat(afterRestart.get(100).getName()).isEqualTo("После сбоя");
+    }
+
+    @Test
+    void open_corruptedChecksum_stopsBeforeDamagedRecord() throws Exception {
+        try (EntityJournal<Film> journal = open(1000, new ArrayList<>())) {
+            journal.append(1, film(1, "Первый")).join();
+            journal.append(2, film(2, "Второй")).join();
+        }
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 2] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        List<Film> replayed = new ArrayList<>();
+        open(1000, replayed).close();
+
+        assertThat(replayed).extracting(Film::getName).containsExactly("Первый");
+    }
+
+    @Test
+    void append_manyUpdatesOfSameFilms_snapshotKeepsLatestStateAndDropsOldSegments() throws Exception {
+        try (EntityJournal<Film> journal = open(10, new ArrayList<>())) {
+            for (int version = 1; version <= 9; version++) {
+                for (long id = 1; id <= 5; id++) {
+                    journal.append(id, film(id, "Фильм " + id + " v" + version)).join();
+                }
+            }
+        }
+
+        assertThat(Files.exists(dir.resolve("films.snapshot"))).isTrue();
+        assertThat(segments().size()).isLessThan(5);
+        List<Film> replayed = new ArrayList<>();
+        open(10, replayed).close();
+        Map<Long, String> state = new HashMap<>();
+        replayed.forEach(film -> state.put(film.getId(), film.getName()));
+        assertThat(state).hasSize(5);
+        state.forEach((id, name) -> assertThat(name).isEqualTo("Фильм " + id + " v9"));
+    }
+
+    @Test
+    void appendAll_itemFailsToSerialize_nothingFromBatchWritten() throws Exception {
+        try (EntityJournal<Object> journal = FileJournal.open(dir, "objects", Object.class, objectMapper, 1000,
+                replayed -> { })) {
+            // у Object нет свойств, Jackson отказывается его сериализовать
+            assertThrows(UncheckedIOException.class,
+                    () -> journal.appendAll(List.of("первый", new Object(), "третий"), item -> 1));
+            journal.appendAll(List.of("после", "ошибки"), item -> 2).join();
+        }
+
+        List<Object> replayed = new ArrayList<>();
+        FileJournal.open(dir, "objects", Object.class, objectMapper, 1000, replayed::add).close();
+        assertThat(replayed).containsExactly("после", "ошибки");
+    }
+
+    @Test
+    void userStorage_restart_restoresUsersEmailIndexAndIdSequence() {
+        JournalFactory factory = new JournalFactory(true, dir, 1000, objectMapper);
+        InMemoryUserStorage storage = new InMemoryUserStorage(new EmailIndex(), factory);
+        storage.create(user("first@mail.ru"));
+        User second = storage.create(user("second@mail.ru"));
+        second.setEmail("changed@mail.ru");
+        storage.update(second);
+        factory.close();
+
+        JournalFactory restartedFactory = new JournalFactory(true, dir, 1000, objectMapper);
+        InMemoryUserStorage restarted = new InMemoryUserStorage(new EmailIndex(), restartedFactory);
+        try {
+            assertThat(restarted.size()).isEqualTo(2);
+            assertThat(restarted.findById(2).orElseThrow().getEmail()).isEqualTo("changed@mail.ru");
+            assertThrows(DuplicateException.class, () -> restarted.create(user("CHANGED@mail.ru")));
+            assertThat(restarted.create(user("second@mail.ru")).getId()).isGreaterThan(2);
+        } finally {
+            restartedFactory.close();
+        }
+    }
+
+    private EntityJournal<Film> open(long snapshotEvery, List<Film> replayed) throws Exception {
+        return FileJournal.open(dir, "films", Film.class, objectMapper, snapshotEvery, replayed::add);
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static Film film(long id, String name) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String email) {
+        return new User(null, email, "login", "name", LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.util;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedBodyRequestTest {
+
+    private static final byte[] BODY = "{\"name\":\"Фильм\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void setReadListener_bodyInMemory_listenerReadsAllAtOnce() {
+        ServletInputStream in = new CachedBodyRequest(new MockHttpServletRequest(), BODY).getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> calls = new ArrayList<>();
+
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                calls.add("data");
+                byte[] buffer = new byte[4];
+                while (in.isReady() && !in.isFinished()) {
+                    read.write(buffer, 0, in.read(buffer));
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                calls.add("all");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                calls.add("error");
+            }
+        });
+
+        assertThat(calls).containsExactly("data", "all");
+        assertThat(read.toByteArray()).isEqualTo(BODY);
+        assertThat(in.isFinished()).isTrue();
+    }
+
+    @Test
+    void getReader_readsCachedBodyAgain() throws IOException {
+        CachedBodyRequest request = new CachedBodyRequest(new MockHttpServletRequest(), BODY);
+
+        assertThat(request.getInputStream().readAllBytes()).isEqualTo(BODY);
+        assertThat(request.getReader().readLine()).isEqualTo("{\"name\":\"Фильм\"}");
+        assertThat(request.getContentLength()).isEqualTo(BODY.length);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkedLongSetTest {
+
+    @Test
+    void addAndRemove_randomOrder_matchesTreeSetAcrossChunkSplits() {
+        Random random = new Random(11);
+        ChunkedLongSet set = new ChunkedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            long value = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            } else {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            }
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        assertThat(set.toArray()).containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+        List<Long> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        assertThat(visited).containsExactlyElementsOf(expected);
+        expected.forEach(value -> assertThat(set.contains(value)).isTrue());
+        for (long after : new long[]{-1, 0, 1_234, 2_500, 5_000}) {
+            List<Long> tail = new ArrayList<>();
+            set.iteratorAfter(after).forEachRemaining((long value) -> tail.add(value));
+            assertThat(tail).containsExactlyElementsOf(expected.tailSet(after, false));
+        }
+    }
+
+    @Test
+    void add_increasingValues_fillsChunksCompletely() {
+        ChunkedLongSet set = new ChunkedLongSet();
+        for (long value = 1; value <= ChunkedLongSet.CHUNK_SIZE * 3L; value++) {
+            set.add(value);
+        }
+        set.add(0);
+
+        assertThat(set.size()).isEqualTo(ChunkedLongSet.CHUNK_SIZE * 3 + 1);
+        assertThat(set.toArray()[0]).isZero();
+        assertThat(set.remove(0)).isTrue();
+        assertThat(set.contains(0)).isFalse();
+        assertThat(set.remove(-5)).isFalse();
+    }
+}
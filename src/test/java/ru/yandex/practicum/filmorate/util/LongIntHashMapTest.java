@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIntHashMapTest {
+
+    @Test
+    void addTo_randomOperations_matchesHashMap() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            int delta = random.nextInt(5) - 2;
+            int value = expected.getOrDefault(key, 0) + delta;
+            if (value == 0) {
+                expected.remove(key);
+            } else {
+                expected.put(key, value);
+            }
+            assertThat(map.addTo(key, delta)).isEqualTo(value);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, 0));
+        }
+        Map<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertThat(visited).isEqualTo(expected);
+    }
+
+    @Test
+    void addAll_sumsCounters() {
+        LongIntHashMap first = new LongIntHashMap();
+        first.addTo(1, 2);
+        first.addTo(2, 1);
+        LongIntHashMap second = new LongIntHashMap(100);
+        second.addTo(2, -1);
+        second.addTo(3, 5);
+
+        first.addAll(second);
+
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(first.get(1)).isEqualTo(2);
+        assertThat(first.get(2)).isZero();
+        assertThat(first.get(3)).isEqualTo(5);
+        assertThrows(IllegalArgumentException.class, () -> first.addTo(0, 1));
+    }
+}
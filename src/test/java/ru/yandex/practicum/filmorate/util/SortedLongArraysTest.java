@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedLongArraysTest {
+
+    @Test
+    void insertAndRemove_keepArraySortedWithoutDuplicates() {
+        long[] values = SortedLongArrays.EMPTY;
+        values = SortedLongArrays.insert(values, 5);
+        values = SortedLongArrays.insert(values, 1);
+        values = SortedLongArrays.insert(values, 3);
+        long[] same = SortedLongArrays.insert(values, 3);
+
+        assertThat(same).isSameAs(values);
+        assertThat(values).containsExactly(1, 3, 5);
+        assertThat(SortedLongArrays.remove(values, 3)).containsExactly(1, 5);
+        assertThat(SortedLongArrays.remove(values, 4)).isSameAs(values);
+    }
+
+    @Test
+    void intersect_similarAndSkewedSizes_matchesSetIntersection() {
+        Random random = new Random(7);
+        for (int[] sizes : new int[][]{{1_000, 1_200}, {10, 50_000}, {0, 10}}) {
+            Set<Long> first = randomSet(random, sizes[0]);
+            Set<Long> second = randomSet(random, sizes[1]);
+            Set<Long> expected = new TreeSet<>(first);
+            expected.retainAll(second);
+
+            long[] common = SortedLongArrays.intersect(toArray(first), toArray(second));
+
+            assertThat(common).containsExactly(toArray(expected));
+        }
+    }
+
+    private static Set<Long> randomSet(Random random, int size) {
+        Set<Long> values = new TreeSet<>();
+        while (values.size() < size) {
+            values.add(1 + (long) random.nextInt(100_000));
+        }
+        return values;
+    }
+
+    private static long[] toArray(Set<Long> values) {
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+}